@@ -18,13 +18,19 @@ package org.apache.dubbo.rpc.cluster.loadbalance;
 
 import org.apache.dubbo.common.Constants;
 import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.logger.Logger;
+import org.apache.dubbo.common.logger.LoggerFactory;
 import org.apache.dubbo.rpc.Invocation;
 import org.apache.dubbo.rpc.Invoker;
+import org.apache.dubbo.rpc.RpcStatus;
 import org.apache.dubbo.rpc.support.RpcUtils;
 
 import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -33,11 +39,19 @@ import java.util.concurrent.ConcurrentMap;
 
 /**
  * ConsistentHashLoadBalance
- *
+ * <p>
+ * When <code>hash.load.factor</code> is set (e.g. 1.25), a key is only routed to its node while that node has
+ * fewer active invocations than factor * average, otherwise it moves on clockwise along the ring
+ * (consistent hashing with bounded loads). Active counts are read from {@link RpcStatus}, which only counts
+ * them when <code>actives</code> is configured on the reference, see
+ * {@link org.apache.dubbo.rpc.filter.ActiveLimitFilter}. Without it every node looks idle and the bound has no
+ * effect.
  */
 public class ConsistentHashLoadBalance extends AbstractLoadBalance {
     public static final String NAME = "consistenthash";
 
+    private static final Logger logger = LoggerFactory.getLogger(ConsistentHashLoadBalance.class);
+
     private final ConcurrentMap<String, ConsistentHashSelector<?>> selectors = new ConcurrentHashMap<String, ConsistentHashSelector<?>>();
 
     @SuppressWarnings("unchecked")
@@ -48,25 +62,38 @@ public class ConsistentHashLoadBalance extends AbstractLoadBalance {
         int identityHashCode = System.identityHashCode(invokers);
         ConsistentHashSelector<T> selector = (ConsistentHashSelector<T>) selectors.get(key);
         if (selector == null || selector.identityHashCode != identityHashCode) {
-            selectors.put(key, new ConsistentHashSelector<T>(invokers, methodName, identityHashCode));
-            selector = (ConsistentHashSelector<T>) selectors.get(key);
+            // rebuild on top of the previous ring, only providers which joined need to be hashed
+            selector = new ConsistentHashSelector<T>(invokers, methodName, identityHashCode, selector);
+            selectors.put(key, selector);
         }
         return selector.select(invocation);
     }
 
     private static final class ConsistentHashSelector<T> {
 
-        private final TreeMap<Long, Invoker<T>> virtualInvokers;
+        private final int identityHashCode;
 
         private final int replicaNumber;
 
-        private final int identityHashCode;
-
         private final int[] argumentIndex;
 
-        ConsistentHashSelector(List<Invoker<T>> invokers, String methodName, int identityHashCode) {
-            this.virtualInvokers = new TreeMap<Long, Invoker<T>>();
+        private final double loadFactor;
+
+        // distinct nodes of the ring and their addresses
+        private final List<Invoker<T>> nodes;
+
+        private final String[] addresses;
+
+        private final String methodName;
+
+        // sorted virtual node hashes, and the index in nodes owning each of them
+        private final long[] ring;
+
+        private final int[] owners;
+
+        ConsistentHashSelector(List<Invoker<T>> invokers, String methodName, int identityHashCode, ConsistentHashSelector<T> previous) {
             this.identityHashCode = identityHashCode;
+            this.methodName = methodName;
             URL url = invokers.get(0).getUrl();
             this.replicaNumber = url.getMethodParameter(methodName, "hash.nodes", 160);
             String[] index = Constants.COMMA_SPLIT_PATTERN.split(url.getMethodParameter(methodName, "hash.arguments", "0"));
@@ -74,22 +101,105 @@ public class ConsistentHashLoadBalance extends AbstractLoadBalance {
             for (int i = 0; i < index.length; i++) {
                 argumentIndex[i] = Integer.parseInt(index[i]);
             }
+            this.loadFactor = url.getMethodParameter(methodName, "hash.load.factor", 0d);
+            if (loadFactor > 0 && url.getMethodParameter(methodName, Constants.ACTIVES_KEY, 0) <= 0
+                    && (previous == null || previous.loadFactor <= 0)) {
+                logger.warn("hash.load.factor of " + url.getServiceKey() + "." + methodName + " has no effect without "
+                        + Constants.ACTIVES_KEY + ", active invocations are not counted.");
+            }
+
+            Map<String, Integer> nodeIndex = new HashMap<String, Integer>();
+            List<String> addressList = new ArrayList<String>();
+            this.nodes = new ArrayList<Invoker<T>>();
             for (Invoker<T> invoker : invokers) {
                 String address = invoker.getUrl().getAddress();
+                Integer i = nodeIndex.get(address);
+                if (i == null) {
+                    nodeIndex.put(address, nodes.size());
+                    nodes.add(invoker);
+                    addressList.add(address);
+                } else {
+                    nodes.set(i, invoker);
+                }
+            }
+            this.addresses = addressList.toArray(new String[addressList.size()]);
+
+            // keep the virtual nodes of providers which are still there
+            boolean[] placed = new boolean[addresses.length];
+            long[] retainedRing = new long[0];
+            int[] retainedOwners = new int[0];
+            if (previous != null && previous.replicaNumber == replicaNumber) {
+                int[] mapping = new int[previous.addresses.length];
+                for (int i = 0; i < mapping.length; i++) {
+                    Integer current = nodeIndex.get(previous.addresses[i]);
+                    mapping[i] = current == null ? -1 : current;
+                    if (current != null) {
+                        placed[current] = true;
+                    }
+                }
+                retainedRing = new long[previous.ring.length];
+                retainedOwners = new int[previous.ring.length];
+                int size = 0;
+                for (int i = 0; i < previous.ring.length; i++) {
+                    int owner = mapping[previous.owners[i]];
+                    if (owner >= 0) {
+                        retainedRing[size] = previous.ring[i];
+                        retainedOwners[size] = owner;
+                        size++;
+                    }
+                }
+                retainedRing = Arrays.copyOf(retainedRing, size);
+                retainedOwners = Arrays.copyOf(retainedOwners, size);
+            }
+
+            // hash the virtual nodes of providers which joined
+            TreeMap<Long, Integer> added = new TreeMap<Long, Integer>();
+            MessageDigest md5 = null;
+            for (int n = 0; n < addresses.length; n++) {
+                if (placed[n]) {
+                    continue;
+                }
+                if (md5 == null) {
+                    md5 = md5();
+                }
                 for (int i = 0; i < replicaNumber / 4; i++) {
-                    byte[] digest = md5(address + i);
+                    byte[] digest = md5(md5, addresses[n] + i);
                     for (int h = 0; h < 4; h++) {
-                        long m = hash(digest, h);
-                        virtualInvokers.put(m, invoker);
+                        added.put(hash(digest, h), n);
                     }
                 }
             }
+
+            // merge both sorted sequences, an existing virtual node wins on collision
+            this.ring = new long[retainedRing.length + added.size()];
+            this.owners = new int[ring.length];
+            int size = 0;
+            int r = 0;
+            for (Map.Entry<Long, Integer> entry : added.entrySet()) {
+                long h = entry.getKey();
+                while (r < retainedRing.length && retainedRing[r] <= h) {
+                    ring[size] = retainedRing[r];
+                    owners[size++] = retainedOwners[r++];
+                }
+                if (size > 0 && ring[size - 1] == h) {
+                    continue;
+                }
+                ring[size] = h;
+                owners[size++] = entry.getValue();
+            }
+            while (r < retainedRing.length) {
+                ring[size] = retainedRing[r];
+                owners[size++] = retainedOwners[r++];
+            }
         }
 
         public Invoker<T> select(Invocation invocation) {
             String key = toKey(invocation.getArguments());
-            byte[] digest = md5(key);
-            return selectForKey(hash(digest, 0));
+            int index = indexForKey(hash(key));
+            if (loadFactor > 0 && nodes.size() > 1) {
+                return selectWithBoundedLoad(index);
+            }
+            return nodes.get(owners[index]);
         }
 
         private String toKey(Object[] args) {
@@ -102,12 +212,38 @@ public class ConsistentHashLoadBalance extends AbstractLoadBalance {
             return buf.toString();
         }
 
-        private Invoker<T> selectForKey(long hash) {
-            Map.Entry<Long, Invoker<T>> entry = virtualInvokers.ceilingEntry(hash);
-            if (entry == null) {
-                entry = virtualInvokers.firstEntry();
+        private int indexForKey(long hash) {
+            int index = Arrays.binarySearch(ring, 0, ring.length, hash);
+            if (index < 0) {
+                index = -index - 1;
             }
-            return entry.getValue();
+            return index == ring.length ? 0 : index;
+        }
+
+        private Invoker<T> selectWithBoundedLoad(int index) {
+            int owner = owners[index];
+            // an idle node is below any capacity, which is at least 1
+            if (getActive(owner) == 0) {
+                return nodes.get(owner);
+            }
+            long total = 0;
+            for (int i = 0; i < nodes.size(); i++) {
+                total += getActive(i);
+            }
+            // counting the incoming invocation, some node is always below the capacity
+            double capacity = Math.ceil(loadFactor * (total + 1) / nodes.size());
+            for (int i = 0; i < ring.length; i++) {
+                owner = owners[(index + i) % ring.length];
+                if (getActive(owner) < capacity) {
+                    return nodes.get(owner);
+                }
+            }
+            return nodes.get(owners[index]);
+        }
+
+        // looked up on every call, a status removed from RpcStatus is replaced by a new one
+        private int getActive(int node) {
+            return RpcStatus.getStatus(nodes.get(node).getUrl(), methodName).getActive();
         }
 
         private long hash(byte[] digest, int number) {
@@ -118,13 +254,44 @@ public class ConsistentHashLoadBalance extends AbstractLoadBalance {
                     & 0xFFFFFFFFL;
         }
 
-        private byte[] md5(String value) {
-            MessageDigest md5;
+        /**
+         * 32 bits murmur3 over the chars of the key, which is far cheaper than md5 on every invocation
+         */
+        static long hash(String key) {
+            int h = 0;
+            int length = key.length();
+            int i = 0;
+            for (; i + 1 < length; i += 2) {
+                h ^= mixK(key.charAt(i) | (key.charAt(i + 1) << 16));
+                h = Integer.rotateLeft(h, 13) * 5 + 0xe6546b64;
+            }
+            if (i < length) {
+                h ^= mixK(key.charAt(i));
+            }
+            h ^= length * 2;
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return h & 0xFFFFFFFFL;
+        }
+
+        private static int mixK(int k) {
+            k *= 0xcc9e2d51;
+            k = Integer.rotateLeft(k, 15);
+            return k * 0x1b873593;
+        }
+
+        private static MessageDigest md5() {
             try {
-                md5 = MessageDigest.getInstance("MD5");
+                return MessageDigest.getInstance("MD5");
             } catch (NoSuchAlgorithmException e) {
                 throw new IllegalStateException(e.getMessage(), e);
             }
+        }
+
+        private static byte[] md5(MessageDigest md5, String value) {
             md5.reset();
             byte[] bytes;
             try {
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.cluster.loadbalance;
+
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.rpc.Invocation;
+import org.apache.dubbo.rpc.Invoker;
+import org.apache.dubbo.rpc.RpcStatus;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Peak EWMA load balance with power of two choices.
+ * <p>
+ * Every invoker keeps a latency estimate which jumps to any slower sample immediately and
+ * otherwise decays exponentially, so a provider that suddenly slows down (e.g. in a long GC)
+ * is avoided at once. The load of an invoker is that estimate multiplied by its active count,
+ * and the less loaded of two randomly picked invokers is chosen. Estimates of invokers which
+ * receive no more traffic decay toward the estimates of those they are compared with, so they get
+ * retried eventually. Only the two picked invokers are looked at, whatever the number of providers.
+ * <p>
+ * Like {@link LeastActiveLoadBalance}, latency and active counts are read from {@link RpcStatus}.
+ */
+public class PeakEwmaLoadBalance extends AbstractLoadBalance {
+
+    public static final String NAME = "peakewma";
+
+    private static final String COST_KEY = PeakEwmaLoadBalance.class.getName() + ".cost";
+
+    private final Random random = new Random();
+
+    @Override
+    protected <T> Invoker<T> doSelect(List<Invoker<T>> invokers, URL url, Invocation invocation) {
+        int length = invokers.size(); // Number of invokers
+        String methodName = invocation.getMethodName();
+        long now = System.nanoTime();
+        long decay = TimeUnit.MILLISECONDS.toNanos(url.getMethodPositiveParameter(methodName,
+                Constants.PEAK_EWMA_DECAY_KEY, Constants.DEFAULT_PEAK_EWMA_DECAY));
+        // Two distinct random choices
+        int first = random.nextInt(length);
+        int second = random.nextInt(length - 1);
+        if (second >= first) {
+            second++;
+        }
+        Invoker<T> a = invokers.get(first);
+        Invoker<T> b = invokers.get(second);
+        RpcStatus statusA = RpcStatus.getStatus(a.getUrl(), methodName);
+        RpcStatus statusB = RpcStatus.getStatus(b.getUrl(), methodName);
+        Cost costA = getCost(statusA);
+        Cost costB = getCost(statusB);
+        // A stale estimate decays toward the estimate of the invoker it is compared with
+        double valueA = costA.getValue();
+        double valueB = costB.getValue();
+        return getLoad(a, invocation, statusA, costA, now, decay, valueB)
+                <= getLoad(b, invocation, statusB, costB, now, decay, valueA) ? a : b;
+    }
+
+    private double getLoad(Invoker<?> invoker, Invocation invocation, RpcStatus status, Cost estimate,
+                           long now, long decay, double target) {
+        int weight = getWeight(invoker, invocation);
+        if (weight <= 0) {
+            return Double.MAX_VALUE;
+        }
+        double cost = estimate.observe(status, now, decay, target);
+        // Elapsed time is measured in milliseconds, so do not let sub-millisecond providers look free
+        return Math.max(cost, 1) * (status.getActive() + 1) / weight;
+    }
+
+    private static Cost getCost(RpcStatus status) {
+        Cost cost = (Cost) status.get(COST_KEY);
+        if (cost == null) { // concurrent initialization is tolerant
+            cost = new Cost();
+            status.set(COST_KEY, cost);
+        }
+        return cost;
+    }
+
+    private static final class Cost {
+
+        private volatile double value;
+
+        private long lastTotal = -1;
+
+        private long lastElapsed;
+
+        private long stamp;
+
+        double getValue() {
+            return value;
+        }
+
+        synchronized double observe(RpcStatus status, long now, long decay, double target) {
+            long total = status.getTotal();
+            long elapsed = status.getTotalElapsed();
+            if (lastTotal < 0) {
+                // First look at this invoker, start from its history if any
+                value = total > 0 ? (double) elapsed / total : target;
+            } else {
+                double w = Math.exp(-(double) Math.max(now - stamp, 0) / decay);
+                if (total > lastTotal) {
+                    double rtt = (double) (elapsed - lastElapsed) / (total - lastTotal);
+                    value = rtt > value ? rtt : value * w + rtt * (1 - w);
+                } else if (target > 0) {
+                    value = value * w + target * (1 - w);
+                }
+            }
+            lastTotal = total;
+            lastElapsed = elapsed;
+            stamp = now;
+            return value;
+        }
+    }
+
+}
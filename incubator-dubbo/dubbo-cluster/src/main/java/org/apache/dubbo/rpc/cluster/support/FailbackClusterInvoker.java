@@ -16,9 +16,21 @@
  */
 package org.apache.dubbo.rpc.cluster.support;
 
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.common.URL;
 import org.apache.dubbo.common.logger.Logger;
 import org.apache.dubbo.common.logger.LoggerFactory;
 import org.apache.dubbo.common.threadlocal.NamedInternalThreadFactory;
+import org.apache.dubbo.common.timer.HashedWheelTimer;
+import org.apache.dubbo.common.timer.Timeout;
+import org.apache.dubbo.common.timer.Timer;
+import org.apache.dubbo.common.timer.TimerTask;
+import org.apache.dubbo.metrics.Counter;
+import org.apache.dubbo.metrics.Gauge;
+import org.apache.dubbo.metrics.Metric;
+import org.apache.dubbo.metrics.MetricFilter;
+import org.apache.dubbo.metrics.MetricManager;
+import org.apache.dubbo.metrics.MetricName;
 import org.apache.dubbo.rpc.Invocation;
 import org.apache.dubbo.rpc.Invoker;
 import org.apache.dubbo.rpc.Result;
@@ -28,19 +40,25 @@ import org.apache.dubbo.rpc.RpcContext;
 import org.apache.dubbo.rpc.cluster.Directory;
 import org.apache.dubbo.rpc.cluster.LoadBalance;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * When fails, record failure requests and schedule for retry on a regular interval.
  * Especially useful for services of notification.
+ * <p>
+ * Each failed invocation is retried up to <code>failback.retries</code> times (default 3), scheduled by a timer shared by all
+ * failback invokers and run on a pool so that a slow provider does not delay the other retries, waiting <code>failback.period</code> ms (default 5000) before the first retry and twice as
+ * long before each next one, up to <code>failback.maxperiod</code> ms. Every delay is randomized between half and
+ * all of its value, so the retries of an outage do not all fire at once when it ends. At most
+ * <code>failbacktasks</code> retries (default 100) are pending per invoker, see
+ * {@link Constants#FAILBACK_OVERFLOW_KEY} for what happens to the others.
  *
  * <a href="http://en.wikipedia.org/wiki/Failback">Failback</a>
  *
@@ -49,73 +67,228 @@ public class FailbackClusterInvoker<T> extends AbstractClusterInvoker<T> {
 
     private static final Logger logger = LoggerFactory.getLogger(FailbackClusterInvoker.class);
 
-    private static final long RETRY_FAILED_PERIOD = 5 * 1000;
+    private static final String METRIC_GROUP = "dubbo";
 
     /**
      * Use {@link NamedInternalThreadFactory} to produce {@link org.apache.dubbo.common.threadlocal.InternalThread}
      * which with the use of {@link org.apache.dubbo.common.threadlocal.InternalThreadLocal} in {@link RpcContext}.
      */
-    private final ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(2,
-            new NamedInternalThreadFactory("failback-cluster-timer", true));
+    private static final Timer RETRY_TIMER = new HashedWheelTimer(
+            new NamedInternalThreadFactory("failback-cluster-timer", true),
+            100,
+            TimeUnit.MILLISECONDS);
 
-    private final ConcurrentMap<Invocation, AbstractClusterInvoker<?>> failed = new ConcurrentHashMap<Invocation, AbstractClusterInvoker<?>>();
-    private volatile ScheduledFuture<?> retryFuture;
+    private static final ExecutorService RETRY_EXECUTOR = Executors.newCachedThreadPool(
+            new NamedInternalThreadFactory("failback-cluster-retry", true));
+
+    private final int failbackTasks;
+
+    private final int retries;
+
+    private final long period;
+
+    private final long maxPeriod;
+
+    private final boolean discardOldest;
+
+    // pending retries, oldest first
+    private final ConcurrentLinkedQueue<RetryTimerTask> pending = new ConcurrentLinkedQueue<RetryTimerTask>();
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final Counter succeeded;
+
+    private final Counter exhausted;
+
+    private final Counter discarded;
+
+    private final Gauge<Integer> pendingGauge;
 
     public FailbackClusterInvoker(Directory<T> directory) {
         super(directory);
-    }
+        URL url = getUrl();
+        this.failbackTasks = url.getPositiveParameter(Constants.FAILBACK_TASKS_KEY, Constants.DEFAULT_FAILBACK_TASKS);
+        int retries = url.getParameter(Constants.FAILBACK_RETRIES_KEY, Constants.DEFAULT_FAILBACK_TIMES);
+        this.retries = retries >= 0 ? retries : Constants.DEFAULT_FAILBACK_TIMES;
+        this.period = url.getPositiveParameter(Constants.FAILBACK_PERIOD_KEY, Constants.DEFAULT_FAILBACK_PERIOD);
+        this.maxPeriod = Math.max(period, url.getPositiveParameter(Constants.FAILBACK_MAX_PERIOD_KEY,
+                Constants.DEFAULT_FAILBACK_MAX_PERIOD));
+        this.discardOldest = Constants.FAILBACK_OVERFLOW_DISCARD_OLDEST.equals(url.getParameter(
+                Constants.FAILBACK_OVERFLOW_KEY, Constants.DEFAULT_FAILBACK_OVERFLOW));
 
-    private void addFailed(Invocation invocation, AbstractClusterInvoker<?> router) {
-        if (retryFuture == null) {
-            synchronized (this) {
-                if (retryFuture == null) {
-                    retryFuture = scheduledExecutorService.scheduleWithFixedDelay(new Runnable() {
-
-                        @Override
-                        public void run() {
-                            // collect retry statistics
-                            try {
-                                retryFailed();
-                            } catch (Throwable t) { // Defensive fault tolerance
-                                logger.error("Unexpected error occur at collect statistic", t);
-                            }
-                        }
-                    }, RETRY_FAILED_PERIOD, RETRY_FAILED_PERIOD, TimeUnit.MILLISECONDS);
-                }
+        MetricName name = new MetricName("dubbo.failback").tag("service", url.getServiceKey());
+        this.succeeded = MetricManager.getCounter(METRIC_GROUP, name.resolve("succeeded"));
+        this.exhausted = MetricManager.getCounter(METRIC_GROUP, name.resolve("exhausted"));
+        this.discarded = MetricManager.getCounter(METRIC_GROUP, name.resolve("discarded"));
+        this.pendingGauge = new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getPendingCount();
             }
-        }
-        failed.put(invocation, router);
+
+            @Override
+            public long lastUpdateTime() {
+                return System.currentTimeMillis();
+            }
+        };
+        MetricManager.register(METRIC_GROUP, name.resolve("pending"), pendingGauge);
     }
 
-    void retryFailed() {
-        if (failed.size() == 0) {
+    /**
+     * @return the number of failed invocations waiting for a retry
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    private void addFailed(LoadBalance loadbalance, Invocation invocation, Invoker<T> lastInvoker) {
+        if (retries == 0) {
+            // the failure is only logged
             return;
         }
-        for (Map.Entry<Invocation, AbstractClusterInvoker<?>> entry : new HashMap<Invocation, AbstractClusterInvoker<?>>(
-                failed).entrySet()) {
-            Invocation invocation = entry.getKey();
-            Invoker<?> invoker = entry.getValue();
-            try {
-                invoker.invoke(invocation);
-                failed.remove(invocation);
-            } catch (Throwable e) {
-                logger.error("Failed retry to invoke method " + invocation.getMethodName() + ", waiting again.", e);
-            }
+        if (pendingCount.incrementAndGet() > failbackTasks && !(discardOldest && discardOldest())) {
+            pendingCount.decrementAndGet();
+            discarded.inc();
+            logger.error("Discard the failed invocation of method " + invocation.getMethodName()
+                    + ", " + failbackTasks + " retries are already pending, see " + Constants.FAILBACK_TASKS_KEY);
+            return;
         }
+        RetryTimerTask task = new RetryTimerTask(loadbalance, invocation, lastInvoker);
+        pending.offer(task);
+        task.schedule();
+    }
+
+    private boolean discardOldest() {
+        RetryTimerTask oldest = pending.poll();
+        if (oldest == null) {
+            return false;
+        }
+        oldest.cancel();
+        pendingCount.decrementAndGet();
+        discarded.inc();
+        logger.error("Discard the oldest pending retry of method " + oldest.invocation.getMethodName()
+                + ", " + failbackTasks + " retries are already pending, see " + Constants.FAILBACK_TASKS_KEY);
+        return true;
+    }
+
+    private boolean remove(RetryTimerTask task) {
+        if (pending.remove(task)) {
+            pendingCount.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    long nextDelay(int retryTimes) {
+        long delay = Math.min(maxPeriod, period << Math.min(retryTimes, 20));
+        long half = delay / 2;
+        return delay - half + ThreadLocalRandom.current().nextLong(half + 1);
     }
 
     @Override
     protected Result doInvoke(Invocation invocation, List<Invoker<T>> invokers, LoadBalance loadbalance) throws RpcException {
+        Invoker<T> invoker = null;
         try {
             checkInvokers(invokers, invocation);
-            Invoker<T> invoker = select(loadbalance, invocation, invokers, null);
+            invoker = select(loadbalance, invocation, invokers, null);
             return invoker.invoke(invocation);
         } catch (Throwable e) {
             logger.error("Failback to invoke method " + invocation.getMethodName() + ", wait for retry in background. Ignored exception: "
                     + e.getMessage() + ", ", e);
-            addFailed(invocation, this);
+            addFailed(loadbalance, invocation, invoker);
             return new RpcResult(); // ignore
         }
     }
 
+    @Override
+    public void destroy() {
+        super.destroy();
+        RetryTimerTask task;
+        while ((task = pending.poll()) != null) {
+            task.cancel();
+            pendingCount.decrementAndGet();
+        }
+        // the gauge holds this invoker, leave the gauge of another invoker of the service alone
+        MetricManager.getIMetricManager().getMetricRegistryByGroup(METRIC_GROUP).removeMatching(new MetricFilter() {
+            @Override
+            public boolean matches(MetricName name, Metric metric) {
+                return metric == pendingGauge;
+            }
+        });
+    }
+
+    private class RetryTimerTask implements TimerTask, Runnable {
+
+        private final LoadBalance loadbalance;
+
+        private final Invocation invocation;
+
+        private volatile Invoker<T> lastInvoker;
+
+        private volatile int retryTimes;
+
+        private volatile boolean cancelled;
+
+        private volatile Timeout timeout;
+
+        RetryTimerTask(LoadBalance loadbalance, Invocation invocation, Invoker<T> lastInvoker) {
+            this.loadbalance = loadbalance;
+            this.invocation = invocation;
+            this.lastInvoker = lastInvoker;
+        }
+
+        void schedule() {
+            if (!cancelled) {
+                timeout = RETRY_TIMER.newTimeout(this, nextDelay(retryTimes), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            Timeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            if (!cancelled) {
+                // never invoke on the timer thread, which fires the retries of all the failback invokers
+                RETRY_EXECUTOR.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            retryTimes++;
+            try {
+                List<Invoker<T>> invokers = list(invocation);
+                checkInvokers(invokers, invocation);
+                // prefer another provider than the one which failed last time
+                Invoker<T> invoker = select(loadbalance, invocation, invokers,
+                        lastInvoker == null ? null : Collections.singletonList(lastInvoker));
+                lastInvoker = invoker;
+                invoker.invoke(invocation);
+                if (remove(this)) {
+                    succeeded.inc();
+                }
+            } catch (Throwable e) {
+                if (retryTimes >= retries) {
+                    if (remove(this)) {
+                        exhausted.inc();
+                    }
+                    logger.error("Failed retry to invoke method " + invocation.getMethodName() + " " + retryTimes
+                            + " times, give up.", e);
+                } else {
+                    logger.error("Failed retry to invoke method " + invocation.getMethodName() + ", waiting again.", e);
+                    schedule();
+                }
+            }
+        }
+    }
+
 }
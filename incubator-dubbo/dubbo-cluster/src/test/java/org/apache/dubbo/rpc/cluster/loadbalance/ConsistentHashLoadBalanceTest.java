@@ -16,15 +16,25 @@
  */
 package org.apache.dubbo.rpc.cluster.loadbalance;
 
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.extension.ExtensionLoader;
 import org.apache.dubbo.rpc.Invoker;
+import org.apache.dubbo.rpc.RpcStatus;
+import org.apache.dubbo.rpc.cluster.LoadBalance;
 
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
 public class ConsistentHashLoadBalanceTest extends LoadBalanceBaseTest {
     @Ignore
     @Test
@@ -37,4 +47,66 @@ public class ConsistentHashLoadBalanceTest extends LoadBalanceBaseTest {
         }
     }
 
-}
+    @Test
+    public void testSameKeySameInvoker() {
+        LoadBalance lb = ExtensionLoader.getExtensionLoader(LoadBalance.class).getExtension(ConsistentHashLoadBalance.NAME);
+        given(invocation.getArguments()).willReturn(new Object[]{"key"});
+        Invoker selected = lb.select(invokers, invokers.get(0).getUrl(), invocation);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertSame(selected, lb.select(invokers, invokers.get(0).getUrl(), invocation));
+        }
+    }
+
+    @Test
+    public void testIncrementalRefresh() {
+        LoadBalance lb = ExtensionLoader.getExtensionLoader(LoadBalance.class).getExtension(ConsistentHashLoadBalance.NAME);
+        Map<String, Invoker> before = new HashMap<String, Invoker>();
+        for (int i = 0; i < 1000; i++) {
+            given(invocation.getArguments()).willReturn(new Object[]{"key" + i});
+            before.put("key" + i, lb.select(invokers, invokers.get(0).getUrl(), invocation));
+        }
+        List<Invoker<LoadBalanceBaseTest>> refreshed = new ArrayList<Invoker<LoadBalanceBaseTest>>(invokers);
+        refreshed.remove(invoker3);
+        for (int i = 0; i < 1000; i++) {
+            given(invocation.getArguments()).willReturn(new Object[]{"key" + i});
+            Invoker selected = lb.select(refreshed, refreshed.get(0).getUrl(), invocation);
+            Assert.assertNotSame(invoker3, selected);
+            if (before.get("key" + i) != invoker3) {
+                Assert.assertSame(before.get("key" + i), selected);
+            }
+        }
+        // joining again restores the original mapping
+        List<Invoker<LoadBalanceBaseTest>> rejoined = new ArrayList<Invoker<LoadBalanceBaseTest>>(invokers);
+        for (int i = 0; i < 1000; i++) {
+            given(invocation.getArguments()).willReturn(new Object[]{"key" + i});
+            Assert.assertSame(before.get("key" + i), lb.select(rejoined, rejoined.get(0).getUrl(), invocation));
+        }
+    }
+
+    @Test
+    public void testBoundedLoad() {
+        List<Invoker<LoadBalanceBaseTest>> bounded = new ArrayList<Invoker<LoadBalanceBaseTest>>();
+        for (int i = 1; i <= 3; i++) {
+            Invoker<LoadBalanceBaseTest> invoker = mock(Invoker.class);
+            given(invoker.isAvailable()).willReturn(true);
+            given(invoker.getInterface()).willReturn(LoadBalanceBaseTest.class);
+            given(invoker.getUrl()).willReturn(URL.valueOf("test://127.0.0.1:" + i + "/BoundedService?hash.load.factor=1.25"));
+            bounded.add(invoker);
+        }
+        LoadBalance lb = ExtensionLoader.getExtensionLoader(LoadBalance.class).getExtension(ConsistentHashLoadBalance.NAME);
+        given(invocation.getArguments()).willReturn(new Object[]{"hot"});
+        Invoker<LoadBalanceBaseTest> owner = lb.select(bounded, bounded.get(0).getUrl(), invocation);
+        URL ownerUrl = owner.getUrl();
+        try {
+            for (int i = 0; i < 10; i++) {
+                RpcStatus.beginCount(ownerUrl, invocation.getMethodName());
+            }
+            Assert.assertNotSame(owner, lb.select(bounded, bounded.get(0).getUrl(), invocation));
+        } finally {
+            RpcStatus.removeStatus(ownerUrl, invocation.getMethodName());
+            RpcStatus.removeStatus(ownerUrl);
+        }
+        Assert.assertSame(owner, lb.select(bounded, bounded.get(0).getUrl(), invocation));
+    }
+
+}
\ No newline at end of file
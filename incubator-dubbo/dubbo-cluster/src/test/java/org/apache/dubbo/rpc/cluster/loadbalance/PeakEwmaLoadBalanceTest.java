@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.cluster.loadbalance;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.rpc.Invoker;
+import org.apache.dubbo.rpc.RpcStatus;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PeakEwmaLoadBalanceTest extends LoadBalanceBaseTest {
+
+    @After
+    public void tearDown() {
+        for (Invoker<LoadBalanceBaseTest> invoker : invokers) {
+            RpcStatus.removeStatus(invoker.getUrl(), invocation.getMethodName());
+            RpcStatus.removeStatus(invoker.getUrl());
+        }
+    }
+
+    @Test
+    public void testSelectEvenlyWithoutStatistics() {
+        int runs = 10000;
+        Map<Invoker, AtomicLong> counter = getInvokeCounter(runs, PeakEwmaLoadBalance.NAME);
+        for (Invoker minvoker : counter.keySet()) {
+            Long count = counter.get(minvoker).get();
+            Assert.assertTrue("abs diff should < avg",
+                    Math.abs(count - runs / (0f + invokers.size())) < runs / (0f + invokers.size()));
+        }
+    }
+
+    @Test
+    public void testAvoidSlowInvoker() {
+        for (Invoker<LoadBalanceBaseTest> invoker : invokers) {
+            URL url = invoker.getUrl();
+            for (int i = 0; i < 10; i++) {
+                RpcStatus.beginCount(url, invocation.getMethodName());
+                RpcStatus.endCount(url, invocation.getMethodName(), invoker == invoker1 ? 1000 : 10, true);
+            }
+        }
+        int runs = 10000;
+        Map<Invoker, AtomicLong> counter = getInvokeCounter(runs, PeakEwmaLoadBalance.NAME);
+        Assert.assertTrue(counter.get(invoker1).get() < runs / (10f * invokers.size()));
+    }
+
+    @Test
+    public void testAvoidBusyInvoker() {
+        for (Invoker<LoadBalanceBaseTest> invoker : invokers) {
+            URL url = invoker.getUrl();
+            RpcStatus.beginCount(url, invocation.getMethodName());
+            RpcStatus.endCount(url, invocation.getMethodName(), 10, true);
+        }
+        for (int i = 0; i < 20; i++) {
+            RpcStatus.beginCount(invoker2.getUrl(), invocation.getMethodName());
+        }
+        int runs = 10000;
+        Map<Invoker, AtomicLong> counter = getInvokeCounter(runs, PeakEwmaLoadBalance.NAME);
+        Assert.assertTrue(counter.get(invoker2).get() < runs / (10f * invokers.size()));
+    }
+
+}
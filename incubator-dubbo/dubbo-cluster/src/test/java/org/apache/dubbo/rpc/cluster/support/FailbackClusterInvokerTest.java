@@ -16,6 +16,7 @@
  */
 package org.apache.dubbo.rpc.cluster.support;
 
+import org.apache.dubbo.common.Constants;
 import org.apache.dubbo.common.URL;
 import org.apache.dubbo.common.utils.LogUtil;
 import org.apache.dubbo.rpc.Invoker;
@@ -28,13 +29,18 @@ import org.apache.dubbo.rpc.cluster.Directory;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @SuppressWarnings("unchecked")
 public class FailbackClusterInvokerTest {
@@ -118,15 +124,120 @@ public class FailbackClusterInvokerTest {
     }
 
     @Test()
-    public void testRetryFailed() {
-
+    public void testRetryFailed() throws Exception {
+        url = url.addParameter(Constants.FAILBACK_PERIOD_KEY, 100).addParameter(Constants.FAILBACK_RETRIES_KEY, 2);
+        given(dic.getUrl()).willReturn(url);
         resetInvokerToException();
 
         FailbackClusterInvoker<FailbackClusterInvokerTest> invoker = new FailbackClusterInvoker<FailbackClusterInvokerTest>(
                 dic);
         invoker.invoke(invocation);
         Assert.assertNull(RpcContext.getContext().getInvoker());
-        invoker.retryFailed();// when retry the invoker which get from failed map already is not the mocked invoker,so
-        // it can be invoke successfully
+        assertEquals(1, invoker.getPendingCount());
+
+        waitForRetries(invoker);
+        // the first invocation and 2 retries
+        verify(this.invoker, times(3)).invoke(invocation);
+    }
+
+    @Test()
+    public void testNoRetry() throws Exception {
+        url = url.addParameter(Constants.FAILBACK_RETRIES_KEY, 0);
+        given(dic.getUrl()).willReturn(url);
+        resetInvokerToException();
+
+        FailbackClusterInvoker<FailbackClusterInvokerTest> invoker = new FailbackClusterInvoker<FailbackClusterInvokerTest>(
+                dic);
+        invoker.invoke(invocation);
+        assertEquals(0, invoker.getPendingCount());
+        verify(this.invoker, times(1)).invoke(invocation);
+    }
+
+    @Test()
+    public void testRetrySucceeded() throws Exception {
+        url = url.addParameter(Constants.FAILBACK_PERIOD_KEY, 100);
+        given(dic.getUrl()).willReturn(url);
+        given(invoker.invoke(invocation)).willThrow(new RuntimeException()).willReturn(result);
+        given(invoker.getUrl()).willReturn(url);
+        given(invoker.getInterface()).willReturn(FailbackClusterInvokerTest.class);
+
+        FailbackClusterInvoker<FailbackClusterInvokerTest> invoker = new FailbackClusterInvoker<FailbackClusterInvokerTest>(
+                dic);
+        invoker.invoke(invocation);
+        waitForRetries(invoker);
+        verify(this.invoker, times(2)).invoke(invocation);
+    }
+
+    @Test()
+    public void testRetryOffTimerThread() throws Exception {
+        url = url.addParameter(Constants.FAILBACK_PERIOD_KEY, 100);
+        given(dic.getUrl()).willReturn(url);
+        final AtomicReference<String> retryThread = new AtomicReference<String>();
+        given(invoker.invoke(invocation)).willThrow(new RuntimeException()).willAnswer(new Answer<Result>() {
+            @Override
+            public Result answer(InvocationOnMock mock) {
+                retryThread.set(Thread.currentThread().getName());
+                return result;
+            }
+        });
+        given(invoker.getUrl()).willReturn(url);
+        given(invoker.getInterface()).willReturn(FailbackClusterInvokerTest.class);
+
+        FailbackClusterInvoker<FailbackClusterInvokerTest> invoker = new FailbackClusterInvoker<FailbackClusterInvokerTest>(
+                dic);
+        invoker.invoke(invocation);
+        waitForRetries(invoker);
+        Assert.assertTrue(retryThread.get(), retryThread.get().startsWith("failback-cluster-retry"));
+    }
+
+    @Test()
+    public void testFailbackTasksOverflow() {
+        url = url.addParameter(Constants.FAILBACK_TASKS_KEY, 2);
+        given(dic.getUrl()).willReturn(url);
+        resetInvokerToException();
+
+        FailbackClusterInvoker<FailbackClusterInvokerTest> invoker = new FailbackClusterInvoker<FailbackClusterInvokerTest>(
+                dic);
+        for (int i = 0; i < 3; i++) {
+            invoker.invoke(invocation);
+        }
+        assertEquals(2, invoker.getPendingCount());
+
+        url = url.addParameter(Constants.FAILBACK_OVERFLOW_KEY, Constants.FAILBACK_OVERFLOW_DISCARD_OLDEST);
+        given(dic.getUrl()).willReturn(url);
+        FailbackClusterInvoker<FailbackClusterInvokerTest> discardOldest = new FailbackClusterInvoker<FailbackClusterInvokerTest>(
+                dic);
+        for (int i = 0; i < 3; i++) {
+            discardOldest.invoke(invocation);
+        }
+        assertEquals(2, discardOldest.getPendingCount());
+
+        invoker.destroy();
+        discardOldest.destroy();
+        assertEquals(0, invoker.getPendingCount());
+        assertEquals(0, discardOldest.getPendingCount());
+    }
+
+    @Test()
+    public void testNextDelay() {
+        url = url.addParameter(Constants.FAILBACK_PERIOD_KEY, 1000).addParameter(Constants.FAILBACK_MAX_PERIOD_KEY, 3000);
+        given(dic.getUrl()).willReturn(url);
+        FailbackClusterInvoker<FailbackClusterInvokerTest> invoker = new FailbackClusterInvoker<FailbackClusterInvokerTest>(
+                dic);
+        for (int i = 0; i < 100; i++) {
+            long first = invoker.nextDelay(0);
+            Assert.assertTrue(first >= 500 && first <= 1000);
+            long second = invoker.nextDelay(1);
+            Assert.assertTrue(second >= 1000 && second <= 2000);
+            long capped = invoker.nextDelay(10);
+            Assert.assertTrue(capped >= 1500 && capped <= 3000);
+        }
+    }
+
+    private static void waitForRetries(FailbackClusterInvoker<?> invoker) throws InterruptedException {
+        for (int i = 0; i < 100 && invoker.getPendingCount() > 0; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, invoker.getPendingCount());
     }
-}
\ No newline at end of file
+}
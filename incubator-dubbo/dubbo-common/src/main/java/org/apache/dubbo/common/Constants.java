@@ -220,6 +220,22 @@ public class Constants {
 
     public static final String ALIVE_KEY = "alive";
 
+    public static final String BACKPRESSURE_KEY = "backpressure";
+
+    public static final String BACKPRESSURE_HIGH_WATERMARK_KEY = "backpressure.high";
+
+    public static final String BACKPRESSURE_LOW_WATERMARK_KEY = "backpressure.low";
+
+    public static final String BATCH_KEY = "batch";
+
+    public static final String BATCH_WINDOW_KEY = "batch.window";
+
+    public static final String BATCH_SIZE_KEY = "batch.size";
+
+    public static final int DEFAULT_BATCH_WINDOW = 100; // microseconds
+
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
     public static final String EXECUTES_KEY = "executes";
 
     public static final String BUFFER_KEY = "buffer";
@@ -236,6 +252,10 @@ public class Constants {
 
     public static final String ACCESS_LOG_KEY = "accesslog";
 
+    public static final String ACCESS_LOG_MAX_SIZE_KEY = "accesslog.maxsize";
+
+    public static final int DEFAULT_ACCESS_LOG_MAX_SIZE = 0;
+
     public static final String ACTIVES_KEY = "actives";
 
     public static final String CONNECTIONS_KEY = "connections";
@@ -315,6 +335,39 @@ public class Constants {
 
     public static final int DEFAULT_WARMUP = 10 * 60 * 1000;
 
+    public static final String PEAK_EWMA_DECAY_KEY = "peakewma.decay";
+
+    public static final int DEFAULT_PEAK_EWMA_DECAY = 10 * 1000;
+
+    public static final String FAILBACK_TASKS_KEY = "failbacktasks";
+
+    public static final int DEFAULT_FAILBACK_TASKS = 100;
+
+    /**
+     * Retries of a failed invocation of the failback cluster, <code>0</code> to only log the failure.
+     */
+    public static final String FAILBACK_RETRIES_KEY = "failback.retries";
+
+    public static final int DEFAULT_FAILBACK_TIMES = 3;
+
+    public static final String FAILBACK_PERIOD_KEY = "failback.period";
+
+    public static final int DEFAULT_FAILBACK_PERIOD = 5 * 1000;
+
+    public static final String FAILBACK_MAX_PERIOD_KEY = "failback.maxperiod";
+
+    public static final int DEFAULT_FAILBACK_MAX_PERIOD = 60 * 1000;
+
+    /**
+     * What to do with a failed invocation when <code>failbacktasks</code> retries are already pending:
+     * <code>discard</code> it, or <code>discardoldest</code> to give up the oldest pending retry instead.
+     */
+    public static final String FAILBACK_OVERFLOW_KEY = "failback.overflow";
+
+    public static final String DEFAULT_FAILBACK_OVERFLOW = "discard";
+
+    public static final String FAILBACK_OVERFLOW_DISCARD_OLDEST = "discardoldest";
+
     public static final String CHECK_KEY = "check";
 
     public static final String REGISTER_KEY = "register";
@@ -349,6 +402,32 @@ public class Constants {
 
     public static final String DISPATCHER_KEY = "dispatcher";
 
+    public static final String ISOLATION_FAST_THRESHOLD_KEY = "isolation.fast";
+
+    public static final String ISOLATION_SLOW_THRESHOLD_KEY = "isolation.slow";
+
+    public static final String ISOLATION_FAST_LANE_KEY = "isolation.fast.lane";
+
+    public static final String ISOLATION_FAST_THREADS_KEY = "isolation.fast.threads";
+
+    public static final String ISOLATION_THREADS_KEY = "isolation.threads";
+
+    public static final String ISOLATION_QUEUES_KEY = "isolation.queues";
+
+    public static final String ISOLATION_WINDOW_KEY = "isolation.window";
+
+    public static final String ISOLATION_ASSIGN_KEY = "isolation.assign";
+
+    public static final int DEFAULT_ISOLATION_FAST_THRESHOLD = 1;
+
+    public static final int DEFAULT_ISOLATION_SLOW_THRESHOLD = 100;
+
+    public static final int DEFAULT_ISOLATION_THREADS = 20;
+
+    public static final int DEFAULT_ISOLATION_QUEUES = 0;
+
+    public static final int DEFAULT_ISOLATION_WINDOW = 500;
+
     public static final String CHANNEL_HANDLER_KEY = "channel.handler";
 
     public static final String DEFAULT_CHANNEL_HANDLER = "default";
@@ -595,6 +674,26 @@ public class Constants {
 
     public static final long DEFAULT_TPS_LIMIT_INTERVAL = 60 * 1000;
 
+    public static final String ADAPTIVE_LIMIT_KEY = "adaptivelimit";
+
+    public static final String ADAPTIVE_LIMIT_INITIAL_KEY = "adaptivelimit.initial";
+
+    public static final String ADAPTIVE_LIMIT_MIN_KEY = "adaptivelimit.min";
+
+    public static final String ADAPTIVE_LIMIT_MAX_KEY = "adaptivelimit.max";
+
+    public static final String ADAPTIVE_LIMIT_TOLERANCE_KEY = "adaptivelimit.tolerance";
+
+    public static final int DEFAULT_ADAPTIVE_LIMIT_INITIAL = 20;
+
+    public static final int DEFAULT_ADAPTIVE_LIMIT_MIN = 4;
+
+    public static final int DEFAULT_ADAPTIVE_LIMIT_MAX = 1000;
+
+    public static final double DEFAULT_ADAPTIVE_LIMIT_TOLERANCE = 1.5;
+
+    public static final String METRICS_KEY = "metrics";
+
     public static final String DECODE_IN_IO_THREAD_KEY = "decode.in.io";
 
     public static final boolean DEFAULT_DECODE_IN_IO_THREAD = true;
@@ -92,6 +92,11 @@ public /**final**/ class URL implements Serializable {
 
     private volatile transient Map<String, Number> numbers;
 
+    // method name -> (key -> value), indexed from the "method.key" parameters
+    private volatile transient Map<String, Map<String, String>> methodParameters;
+
+    private volatile transient Map<String, Map<String, Number>> methodNumbers;
+
     private volatile transient Map<String, URL> urls;
 
     private volatile transient String ip;
@@ -456,6 +461,45 @@ public /**final**/ class URL implements Serializable {
         return numbers;
     }
 
+    private Map<String, Map<String, String>> getMethodParameters() {
+        if (methodParameters == null) { // concurrent initialization is tolerant
+            Map<String, Map<String, String>> index = new HashMap<String, Map<String, String>>();
+            for (Map.Entry<String, String> entry : parameters.entrySet()) {
+                String fullKey = entry.getKey();
+                int i = fullKey.indexOf('.');
+                if (i <= 0 || i == fullKey.length() - 1) {
+                    continue;
+                }
+                String method = fullKey.substring(0, i);
+                Map<String, String> keys = index.get(method);
+                if (keys == null) {
+                    keys = new HashMap<String, String>();
+                    index.put(method, keys);
+                }
+                keys.put(fullKey.substring(i + 1), entry.getValue());
+            }
+            methodParameters = index;
+        }
+        return methodParameters;
+    }
+
+    private Map<String, Number> getMethodNumbers(String method) {
+        Map<String, Map<String, Number>> all = methodNumbers;
+        if (all == null) { // concurrent initialization is tolerant
+            all = new ConcurrentHashMap<String, Map<String, Number>>();
+            methodNumbers = all;
+        }
+        Map<String, Number> n = all.get(method);
+        if (n == null) {
+            n = new ConcurrentHashMap<String, Number>();
+            Map<String, Number> old = all.putIfAbsent(method, n);
+            if (old != null) {
+                n = old;
+            }
+        }
+        return n;
+    }
+
     private Map<String, URL> getUrls() {
         if (urls == null) { // concurrent initialization is tolerant
             urls = new ConcurrentHashMap<String, URL>();
@@ -657,7 +701,8 @@ public /**final**/ class URL implements Serializable {
     }
 
     public String getMethodParameter(String method, String key) {
-        String value = parameters.get(method + "." + key);
+        Map<String, String> keys = getMethodParameters().get(method);
+        String value = keys == null ? null : keys.get(key);
         if (value == null || value.length() == 0) {
             return getParameter(key);
         }
@@ -673,53 +718,65 @@ public /**final**/ class URL implements Serializable {
     }
 
     public double getMethodParameter(String method, String key, double defaultValue) {
-        String methodKey = method + "." + key;
-        Number n = getNumbers().get(methodKey);
+        if (method == null) {
+            return getParameter(key, defaultValue);
+        }
+        Map<String, Number> methodNumbers = getMethodNumbers(method);
+        Number n = methodNumbers.get(key);
         if (n != null) {
-            return n.intValue();
+            return n.doubleValue();
         }
         String value = getMethodParameter(method, key);
         if (value == null || value.length() == 0) {
             return defaultValue;
         }
         double d = Double.parseDouble(value);
-        getNumbers().put(methodKey, d);
+        methodNumbers.put(key, d);
         return d;
     }
 
     public float getMethodParameter(String method, String key, float defaultValue) {
-        String methodKey = method + "." + key;
-        Number n = getNumbers().get(methodKey);
+        if (method == null) {
+            return getParameter(key, defaultValue);
+        }
+        Map<String, Number> methodNumbers = getMethodNumbers(method);
+        Number n = methodNumbers.get(key);
         if (n != null) {
-            return n.intValue();
+            return n.floatValue();
         }
         String value = getMethodParameter(method, key);
         if (value == null || value.length() == 0) {
             return defaultValue;
         }
         float f = Float.parseFloat(value);
-        getNumbers().put(methodKey, f);
+        methodNumbers.put(key, f);
         return f;
     }
 
     public long getMethodParameter(String method, String key, long defaultValue) {
-        String methodKey = method + "." + key;
-        Number n = getNumbers().get(methodKey);
+        if (method == null) {
+            return getParameter(key, defaultValue);
+        }
+        Map<String, Number> methodNumbers = getMethodNumbers(method);
+        Number n = methodNumbers.get(key);
         if (n != null) {
-            return n.intValue();
+            return n.longValue();
         }
         String value = getMethodParameter(method, key);
         if (value == null || value.length() == 0) {
             return defaultValue;
         }
         long l = Long.parseLong(value);
-        getNumbers().put(methodKey, l);
+        methodNumbers.put(key, l);
         return l;
     }
 
     public int getMethodParameter(String method, String key, int defaultValue) {
-        String methodKey = method + "." + key;
-        Number n = getNumbers().get(methodKey);
+        if (method == null) {
+            return getParameter(key, defaultValue);
+        }
+        Map<String, Number> methodNumbers = getMethodNumbers(method);
+        Number n = methodNumbers.get(key);
         if (n != null) {
             return n.intValue();
         }
@@ -728,13 +785,16 @@ public /**final**/ class URL implements Serializable {
             return defaultValue;
         }
         int i = Integer.parseInt(value);
-        getNumbers().put(methodKey, i);
+        methodNumbers.put(key, i);
         return i;
     }
 
     public short getMethodParameter(String method, String key, short defaultValue) {
-        String methodKey = method + "." + key;
-        Number n = getNumbers().get(methodKey);
+        if (method == null) {
+            return getParameter(key, defaultValue);
+        }
+        Map<String, Number> methodNumbers = getMethodNumbers(method);
+        Number n = methodNumbers.get(key);
         if (n != null) {
             return n.shortValue();
         }
@@ -743,13 +803,16 @@ public /**final**/ class URL implements Serializable {
             return defaultValue;
         }
         short s = Short.parseShort(value);
-        getNumbers().put(methodKey, s);
+        methodNumbers.put(key, s);
         return s;
     }
 
     public byte getMethodParameter(String method, String key, byte defaultValue) {
-        String methodKey = method + "." + key;
-        Number n = getNumbers().get(methodKey);
+        if (method == null) {
+            return getParameter(key, defaultValue);
+        }
+        Map<String, Number> methodNumbers = getMethodNumbers(method);
+        Number n = methodNumbers.get(key);
         if (n != null) {
             return n.byteValue();
         }
@@ -758,7 +821,7 @@ public /**final**/ class URL implements Serializable {
             return defaultValue;
         }
         byte b = Byte.parseByte(value);
-        getNumbers().put(methodKey, b);
+        methodNumbers.put(key, b);
         return b;
     }
 
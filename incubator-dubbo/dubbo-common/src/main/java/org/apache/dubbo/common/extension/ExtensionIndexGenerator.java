@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.common.extension;
+
+import org.apache.dubbo.common.utils.IOUtils;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Build step indexing the extensions of a module and generating the adaptive classes of its extension interfaces
+ * ahead of time.
+ * <p>
+ * The lines of the extension files of the classes directory are listed in <code>META-INF/dubbo/extension.index</code>,
+ * which {@link ExtensionLoader} reads once per class loader instead of reading every file of the class path entry.
+ * <p>
+ * For every {@link SPI} interface with {@link Adaptive} methods found in the classes directory, the adaptive
+ * class code {@link ExtensionLoader} would generate at runtime is compiled into the classes directory, with the
+ * digest of the interface it was generated from in a static field, and listed in
+ * <code>META-INF/dubbo/adaptive.index</code>. At runtime {@link ExtensionLoader} loads the listed class instead
+ * of compiling it, as long as the digest of the interface still matches.
+ * <p>
+ * Usage: <code>java -classpath &lt;classpath&gt; org.apache.dubbo.common.extension.ExtensionIndexGenerator
+ * &lt;classes directory&gt;</code>, run by the <code>extension-index</code> maven profile when building with
+ * <code>-Ddubbo.extension.index</code>.
+ */
+public final class ExtensionIndexGenerator {
+
+    // the runtime adaptive class is named <type>$Adaptive, a pre-generated class must not be found in its place
+    // when its digest is out of date and the runtime code gets compiled
+    static final String INDEXED_ADAPTIVE_SUFFIX = "$AdaptiveIndexed";
+
+    private final File classesDir;
+
+    private final File sourcesDir;
+
+    private ExtensionIndexGenerator(File classesDir, File sourcesDir) {
+        this.classesDir = classesDir;
+        this.sourcesDir = sourcesDir;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ExtensionIndexGenerator <classes directory> [<sources directory>]");
+            System.exit(1);
+        }
+        File classesDir = new File(args[0]);
+        File sourcesDir = args.length > 1 ? new File(args[1])
+                : new File(classesDir.getParentFile(), "generated-sources/dubbo-adaptive");
+        new ExtensionIndexGenerator(classesDir, sourcesDir).generate();
+    }
+
+    private void generate() throws IOException {
+        generateExtensionIndex();
+        generateAdaptiveClasses();
+    }
+
+    private void generateExtensionIndex() throws IOException {
+        StringBuilder content = new StringBuilder("# Generated by ")
+                .append(ExtensionIndexGenerator.class.getName()).append(", do not edit.\n");
+        int count = 0;
+        for (String directory : ExtensionLoader.EXTENSION_DIRECTORIES) {
+            File[] files = new File(classesDir, directory).listFiles();
+            if (files == null) {
+                continue;
+            }
+            Arrays.sort(files);
+            for (File file : files) {
+                if (!file.isFile()) {
+                    continue;
+                }
+                for (String line : IOUtils.readLines(file)) {
+                    line = ExtensionLoader.stripComment(line);
+                    if (line.length() > 0) {
+                        content.append(directory).append(file.getName()).append(':').append(line).append('\n');
+                    }
+                }
+                count++;
+            }
+        }
+        if (count > 0) {
+            write(new File(classesDir, ExtensionLoader.EXTENSION_INDEX_FILE), content.toString());
+            System.out.println("Indexed " + count + " extension files in " + classesDir);
+        }
+    }
+
+    private void generateAdaptiveClasses() throws IOException {
+        List<String> classNames = new ArrayList<String>();
+        findClasses(classesDir, "", classNames);
+        // extension type -> adaptive class code
+        Map<String, String> codes = new TreeMap<String, String>();
+        // extension type -> digest of the interface
+        Map<String, String> digests = new TreeMap<String, String>();
+        for (String className : classNames) {
+            Class<?> type = loadExtensionType(className);
+            if (type == null) {
+                continue;
+            }
+            try {
+                ExtensionLoader<?> loader = ExtensionLoader.getExtensionLoader(type);
+                String code = loader.getAdaptiveExtensionClassCode();
+                if (code != null) {
+                    codes.put(type.getName(), code);
+                    digests.put(type.getName(), loader.getAdaptiveDigest());
+                }
+            } catch (Throwable t) {
+                System.err.println("[WARN] Skip adaptive class of " + className + ", cause: " + t);
+            }
+        }
+        if (codes.isEmpty()) {
+            return;
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            System.err.println("[WARN] No java compiler available, adaptive classes are not generated.");
+            return;
+        }
+
+        List<String> arguments = new ArrayList<String>();
+        arguments.add("-nowarn");
+        arguments.add("-d");
+        arguments.add(classesDir.getPath());
+        arguments.add("-classpath");
+        arguments.add(classesDir.getPath() + File.pathSeparator + System.getProperty("java.class.path"));
+        Map<String, String> index = new TreeMap<String, String>();
+        for (Map.Entry<String, String> entry : codes.entrySet()) {
+            Class<?> type = loadExtensionType(entry.getKey());
+            String adaptiveName = type.getPackage().getName() + "." + type.getSimpleName() + INDEXED_ADAPTIVE_SUFFIX;
+            File source = new File(sourcesDir, adaptiveName.replace('.', File.separatorChar) + ".java");
+            String declaration = "public class " + type.getSimpleName() + "$Adaptive implements "
+                    + type.getCanonicalName() + " {";
+            write(source, entry.getValue().replace(declaration, "public class " + type.getSimpleName()
+                    + INDEXED_ADAPTIVE_SUFFIX + " implements " + type.getCanonicalName() + " {"
+                    + "\npublic static final String " + ExtensionLoader.ADAPTIVE_DIGEST_FIELD + " = \""
+                    + digests.get(entry.getKey()) + "\";"));
+            arguments.add(source.getPath());
+            index.put(entry.getKey(), adaptiveName);
+        }
+        if (compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+            throw new IllegalStateException("Failed to compile adaptive classes in " + sourcesDir);
+        }
+
+        StringBuilder content = new StringBuilder("# Generated by ")
+                .append(ExtensionIndexGenerator.class.getName()).append(", do not edit.\n");
+        for (Map.Entry<String, String> entry : index.entrySet()) {
+            content.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        write(new File(classesDir, ExtensionLoader.ADAPTIVE_INDEX_FILE), content.toString());
+        System.out.println("Generated " + index.size() + " adaptive classes in " + classesDir);
+    }
+
+    private static Class<?> loadExtensionType(String className) {
+        try {
+            Class<?> type = Class.forName(className, false, Thread.currentThread().getContextClassLoader());
+            if (!type.isInterface() || !type.isAnnotationPresent(SPI.class)) {
+                return null;
+            }
+            for (Method method : type.getMethods()) {
+                if (method.isAnnotationPresent(Adaptive.class)) {
+                    return type;
+                }
+            }
+        } catch (Throwable t) {
+            // not loadable without optional dependencies
+        }
+        return null;
+    }
+
+    private static void findClasses(File dir, String packageName, List<String> classNames) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                findClasses(file, packageName + name + ".", classNames);
+            } else if (name.endsWith(".class") && !name.endsWith(INDEXED_ADAPTIVE_SUFFIX + ".class")) {
+                classNames.add(packageName + name.substring(0, name.length() - ".class".length()));
+            }
+        }
+    }
+
+    private static void write(File file, String content) throws IOException {
+        File parent = file.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Failed to create directory " + parent);
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "utf-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+}
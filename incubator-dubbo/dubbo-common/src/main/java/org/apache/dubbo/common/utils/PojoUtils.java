@@ -37,6 +37,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
@@ -57,8 +58,7 @@ import java.util.concurrent.ConcurrentSkipListMap;
  */
 public class PojoUtils {
 
-    private static final ConcurrentMap<String, Method> NAME_METHODS_CACHE = new ConcurrentHashMap<String, Method>();
-    private static final ConcurrentMap<Class<?>, ConcurrentMap<String, Field>> CLASS_FIELD_CACHE = new ConcurrentHashMap<Class<?>, ConcurrentMap<String, Field>>();
+    private static final ConcurrentMap<Class<?>, PojoPlan> POJO_PLANS = new ConcurrentHashMap<Class<?>, PojoPlan>();
 
     public static Object[] generalize(Object[] objs) {
         Object[] dests = new Object[objs.length];
@@ -101,6 +101,10 @@ public class PojoUtils {
             return null;
         }
 
+        if (isCommonType(pojo.getClass())) {
+            return pojo;
+        }
+
         if (pojo instanceof Enum<?>) {
             return ((Enum<?>) pojo).name();
         }
@@ -159,33 +163,27 @@ public class PojoUtils {
         Map<String, Object> map = new HashMap<String, Object>();
         history.put(pojo, map);
         map.put("class", pojo.getClass().getName());
-        for (Method method : pojo.getClass().getMethods()) {
-            if (ReflectUtils.isBeanPropertyReadMethod(method)) {
-                try {
-                    map.put(ReflectUtils.getPropertyNameFromBeanReadMethod(method), generalize(method.invoke(pojo), history));
-                } catch (Exception e) {
-                    throw new RuntimeException(e.getMessage(), e);
-                }
+        PojoPlan plan = getPojoPlan(pojo.getClass());
+        for (int i = 0; i < plan.readMethods.length; i++) {
+            try {
+                map.put(plan.readNames[i], generalize(plan.readMethods[i].invoke(pojo), history));
+            } catch (Exception e) {
+                throw new RuntimeException(e.getMessage(), e);
             }
         }
         // public field
-        for (Field field : pojo.getClass().getFields()) {
-            if (ReflectUtils.isPublicInstanceField(field)) {
-                try {
-                    Object fieldValue = field.get(pojo);
-                    if (history.containsKey(pojo)) {
-                        Object pojoGenerilizedValue = history.get(pojo);
-                        if (pojoGenerilizedValue instanceof Map
-                                && ((Map) pojoGenerilizedValue).containsKey(field.getName())) {
-                            continue;
-                        }
-                    }
-                    if (fieldValue != null) {
-                        map.put(field.getName(), generalize(fieldValue, history));
-                    }
-                } catch (Exception e) {
-                    throw new RuntimeException(e.getMessage(), e);
+        for (Field field : plan.publicFields) {
+            try {
+                Object fieldValue = field.get(pojo);
+                // the read method of the same property wins
+                if (map.containsKey(field.getName())) {
+                    continue;
+                }
+                if (fieldValue != null) {
+                    map.put(field.getName(), generalize(fieldValue, history));
                 }
+            } catch (Exception e) {
+                throw new RuntimeException(e.getMessage(), e);
             }
         }
         return map;
@@ -294,6 +292,10 @@ public class PojoUtils {
             return null;
         }
 
+        if (pojo.getClass() == type && isCommonType(type)) {
+            return pojo;
+        }
+
         if (type != null && type.isEnum() && pojo.getClass() == String.class) {
             return Enum.valueOf((Class<Enum>) type, (String) pojo);
         }
@@ -445,13 +447,16 @@ public class PojoUtils {
                         String name = (String) key;
                         Object value = entry.getValue();
                         if (value != null) {
-                            Method method = getSetterMethod(dest.getClass(), name, value.getClass());
-                            Field field = getField(dest.getClass(), name);
-                            if (method != null) {
-                                if (!method.isAccessible())
-                                    method.setAccessible(true);
-                                Type ptype = method.getGenericParameterTypes()[0];
-                                value = realize0(value, method.getParameterTypes()[0], ptype, history);
+                            PropertyPlan property = getPojoPlan(dest.getClass()).getProperty(name);
+                            if (property == null) {
+                                // neither a setter nor a field of that name
+                                continue;
+                            }
+                            Setter setter = property.getSetter(value.getClass());
+                            Field field = property.field;
+                            if (setter != null) {
+                                Method method = setter.method;
+                                value = realize0(value, setter.type, setter.genericType, history);
                                 try {
                                     method.invoke(dest, value);
                                 } catch (Exception e) {
@@ -460,7 +465,7 @@ public class PojoUtils {
                                             + " value " + value + "(" + value.getClass() + "), cause: " + e.getMessage(), e);
                                 }
                             } else if (field != null) {
-                                value = realize0(value, field.getType(), field.getGenericType(), history);
+                                value = realize0(value, field.getType(), property.fieldGenericType, history);
                                 try {
                                     field.set(dest, value);
                                 } catch (IllegalAccessException e) {
@@ -541,29 +546,21 @@ public class PojoUtils {
 
     private static Method getSetterMethod(Class<?> cls, String property, Class<?> valueCls) {
         String name = "set" + property.substring(0, 1).toUpperCase() + property.substring(1);
-        Method method = NAME_METHODS_CACHE.get(cls.getName() + "." + name + "(" + valueCls.getName() + ")");
-        if (method == null) {
-            try {
-                method = cls.getMethod(name, valueCls);
-            } catch (NoSuchMethodException e) {
-                for (Method m : cls.getMethods()) {
-                    if (ReflectUtils.isBeanPropertyWriteMethod(m) && m.getName().equals(name)) {
-                        method = m;
-                    }
+        Method method = null;
+        try {
+            method = cls.getMethod(name, valueCls);
+        } catch (NoSuchMethodException e) {
+            for (Method m : cls.getMethods()) {
+                if (ReflectUtils.isBeanPropertyWriteMethod(m) && m.getName().equals(name)) {
+                    method = m;
                 }
             }
-            if (method != null) {
-                NAME_METHODS_CACHE.put(cls.getName() + "." + name + "(" + valueCls.getName() + ")", method);
-            }
         }
         return method;
     }
 
     private static Field getField(Class<?> cls, String fieldName) {
         Field result = null;
-        if (CLASS_FIELD_CACHE.containsKey(cls) && CLASS_FIELD_CACHE.get(cls).containsKey(fieldName)) {
-            return CLASS_FIELD_CACHE.get(cls).get(fieldName);
-        }
         try {
             result = cls.getDeclaredField(fieldName);
             result.setAccessible(true);
@@ -575,22 +572,155 @@ public class PojoUtils {
                 }
             }
         }
-        if (result != null) {
-            ConcurrentMap<String, Field> fields = CLASS_FIELD_CACHE.get(cls);
-            if (fields == null) {
-                fields = new ConcurrentHashMap<String, Field>();
-                CLASS_FIELD_CACHE.putIfAbsent(cls, fields);
-            }
-            fields = CLASS_FIELD_CACHE.get(cls);
-            fields.putIfAbsent(fieldName, result);
-        }
         return result;
     }
 
+    private static PojoPlan getPojoPlan(Class<?> cls) {
+        PojoPlan plan = POJO_PLANS.get(cls);
+        if (plan == null) {
+            POJO_PLANS.putIfAbsent(cls, new PojoPlan(cls));
+            plan = POJO_PLANS.get(cls);
+        }
+        return plan;
+    }
+
+    /**
+     * Types kept as is by both generalize and realize, checked before anything else.
+     */
+    private static boolean isCommonType(Class<?> cls) {
+        return cls == String.class || cls == Integer.class || cls == Long.class || cls == Boolean.class
+                || cls == Double.class;
+    }
+
     public static boolean isPojo(Class<?> cls) {
         return !ReflectUtils.isPrimitives(cls)
                 && !Collection.class.isAssignableFrom(cls)
                 && !Map.class.isAssignableFrom(cls);
     }
 
+    /**
+     * How a class is generalized and realized, looked up once per class instead of on every conversion.
+     */
+    private static final class PojoPlan {
+
+        private final Class<?> cls;
+
+        // bean read methods and their property names, in getMethods() order
+        final Method[] readMethods;
+
+        final String[] readNames;
+
+        final Field[] publicFields;
+
+        // every name a map key can set, resolved once: the keys come from the remote caller
+        private final Set<String> propertyNames;
+
+        private final ConcurrentMap<String, PropertyPlan> properties = new ConcurrentHashMap<String, PropertyPlan>();
+
+        PojoPlan(Class<?> cls) {
+            this.cls = cls;
+            List<Method> methods = new ArrayList<Method>();
+            for (Method method : cls.getMethods()) {
+                if (ReflectUtils.isBeanPropertyReadMethod(method)) {
+                    methods.add(method);
+                }
+            }
+            this.readMethods = methods.toArray(new Method[0]);
+            this.readNames = new String[readMethods.length];
+            for (int i = 0; i < readMethods.length; i++) {
+                readNames[i] = ReflectUtils.getPropertyNameFromBeanReadMethod(readMethods[i]);
+            }
+            List<Field> fields = new ArrayList<Field>();
+            for (Field field : cls.getFields()) {
+                if (ReflectUtils.isPublicInstanceField(field)) {
+                    fields.add(field);
+                }
+            }
+            this.publicFields = fields.toArray(new Field[0]);
+
+            // the names getSetterMethod and getField resolve, "xyz" and "Xyz" both set through setXyz
+            Set<String> names = new HashSet<String>();
+            for (Method method : cls.getMethods()) {
+                if (ReflectUtils.isBeanPropertyWriteMethod(method)) {
+                    String suffix = method.getName().substring(3);
+                    names.add(suffix);
+                    names.add(suffix.substring(0, 1).toLowerCase() + suffix.substring(1));
+                }
+            }
+            for (Field field : cls.getDeclaredFields()) {
+                names.add(field.getName());
+            }
+            for (Field field : publicFields) {
+                names.add(field.getName());
+            }
+            this.propertyNames = names;
+        }
+
+        /**
+         * @return the plan of the property, or null if no setter or field has that name
+         */
+        PropertyPlan getProperty(String name) {
+            PropertyPlan property = properties.get(name);
+            if (property == null) {
+                if (!propertyNames.contains(name)) {
+                    return null;
+                }
+                properties.putIfAbsent(name, new PropertyPlan(cls, name));
+                property = properties.get(name);
+            }
+            return property;
+        }
+    }
+
+    private static final class PropertyPlan {
+
+        private static final Object NO_SETTER = new Object();
+
+        private final Class<?> cls;
+
+        private final String name;
+
+        final Field field;
+
+        final Type fieldGenericType;
+
+        // value class -> Setter or NO_SETTER
+        private final ConcurrentMap<Class<?>, Object> setters = new ConcurrentHashMap<Class<?>, Object>();
+
+        PropertyPlan(Class<?> cls, String name) {
+            this.cls = cls;
+            this.name = name;
+            this.field = getField(cls, name);
+            this.fieldGenericType = field == null ? null : field.getGenericType();
+        }
+
+        Setter getSetter(Class<?> valueCls) {
+            Object setter = setters.get(valueCls);
+            if (setter == null) {
+                Method method = getSetterMethod(cls, name, valueCls);
+                if (method != null && !method.isAccessible()) {
+                    method.setAccessible(true);
+                }
+                setter = method == null ? NO_SETTER : new Setter(method);
+                setters.putIfAbsent(valueCls, setter);
+            }
+            return setter == NO_SETTER ? null : (Setter) setter;
+        }
+    }
+
+    private static final class Setter {
+
+        final Method method;
+
+        final Class<?> type;
+
+        final Type genericType;
+
+        Setter(Method method) {
+            this.method = method;
+            this.type = method.getParameterTypes()[0];
+            this.genericType = method.getGenericParameterTypes()[0];
+        }
+    }
+
 }
@@ -680,4 +680,21 @@ public class URLTest {
         assertEquals("1.0.0", url.getParameter("version"));
         assertEquals("morgan", url.getParameter("application"));
     }
+
+    @Test
+    public void testGetMethodParameter() {
+        URL url = URL.valueOf("dubbo://10.20.130.230:20880/context/path?timeout=1000&sayHello.timeout=3000&sayHello.weight=0.5&sayHello.retries=&a.b.c=d");
+        assertEquals("3000", url.getMethodParameter("sayHello", "timeout"));
+        assertEquals("1000", url.getMethodParameter("sayBye", "timeout"));
+        assertEquals("d", url.getMethodParameter("a", "b.c"));
+        assertNull(url.getMethodParameter("sayHello", "retries"));
+        assertEquals(3000, url.getMethodParameter("sayHello", "timeout", 0));
+        assertEquals(3000, url.getMethodParameter("sayHello", "timeout", 0));
+        assertEquals(1000L, url.getMethodParameter("sayBye", "timeout", 0L));
+        assertEquals(0.5d, url.getMethodParameter("sayHello", "weight", 1d), 0.0001);
+        assertEquals(0.5d, url.getMethodParameter("sayHello", "weight", 1d), 0.0001);
+        assertEquals(0.5f, url.getMethodParameter("sayHello", "weight", 1f), 0.0001);
+        assertEquals(2, url.getMethodParameter("sayHello", "retries", 2));
+        assertEquals(1000, url.getMethodParameter(null, "timeout", 0));
+    }
 }
\ No newline at end of file
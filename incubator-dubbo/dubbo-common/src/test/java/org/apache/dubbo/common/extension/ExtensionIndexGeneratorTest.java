@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.common.extension;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.extension.ext1.SimpleExt;
+import org.apache.dubbo.common.utils.IOUtils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class ExtensionIndexGeneratorTest {
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    @Test
+    public void testGenerateAdaptiveClass() throws Exception {
+        assumeTrue(ToolProvider.getSystemJavaCompiler() != null);
+        File classesDir = tmpDir.newFolder("classes");
+        String classFile = SimpleExt.class.getName().replace('.', '/') + ".class";
+        copy(SimpleExt.class.getClassLoader().getResourceAsStream(classFile), new File(classesDir, classFile));
+
+        ExtensionIndexGenerator.main(new String[]{classesDir.getPath(), tmpDir.newFolder("sources").getPath()});
+
+        String adaptiveName = SimpleExt.class.getName() + ExtensionIndexGenerator.INDEXED_ADAPTIVE_SUFFIX;
+        assertTrue(new File(classesDir, adaptiveName.replace('.', '/') + ".class").isFile());
+        // the class compiled at runtime when the digest does not match must not be shadowed
+        assertFalse(new File(classesDir, SimpleExt.class.getName().replace('.', '/') + "$Adaptive.class").exists());
+        String[] lines = IOUtils.readLines(new File(classesDir, ExtensionLoader.ADAPTIVE_INDEX_FILE));
+        assertThat(Arrays.asList(lines).contains(SimpleExt.class.getName() + "=" + adaptiveName), is(true));
+
+        URLClassLoader classLoader = new URLClassLoader(new java.net.URL[]{classesDir.toURI().toURL()},
+                SimpleExt.class.getClassLoader());
+        try {
+            Class<?> adaptiveClass = classLoader.loadClass(adaptiveName);
+            assertThat(adaptiveClass.getField(ExtensionLoader.ADAPTIVE_DIGEST_FIELD).get(null),
+                    is((Object) ExtensionLoader.getExtensionLoader(SimpleExt.class).getAdaptiveDigest()));
+            SimpleExt adaptive = (SimpleExt) adaptiveClass.newInstance();
+            URL url = URL.valueOf("p1://1.2.3.4:1010/path1");
+            assertThat(adaptive.echo(url, "haha"), is("Ext1Impl1-echo"));
+        } finally {
+            classLoader.close();
+        }
+    }
+
+    @Test
+    public void testGenerateExtensionIndex() throws Exception {
+        File classesDir = tmpDir.newFolder("classes");
+        String extensionFile = "META-INF/dubbo/internal/" + SimpleExt.class.getName();
+        copy(SimpleExt.class.getClassLoader().getResourceAsStream(extensionFile), new File(classesDir, extensionFile));
+
+        ExtensionIndexGenerator.main(new String[]{classesDir.getPath(), tmpDir.newFolder("sources").getPath()});
+
+        String[] lines = IOUtils.readLines(new File(classesDir, ExtensionLoader.EXTENSION_INDEX_FILE));
+        assertThat(Arrays.asList(lines).subList(1, lines.length), is(Arrays.asList(
+                extensionFile + ":impl1=org.apache.dubbo.common.extension.ext1.impl.SimpleExtImpl1",
+                extensionFile + ":impl2=org.apache.dubbo.common.extension.ext1.impl.SimpleExtImpl2",
+                extensionFile + ":impl3=org.apache.dubbo.common.extension.ext1.impl.SimpleExtImpl3")));
+    }
+
+    private static void copy(InputStream in, File file) throws Exception {
+        assertTrue(file.getParentFile().mkdirs());
+        OutputStream out = new FileOutputStream(file);
+        try {
+            IOUtils.write(in, out);
+        } finally {
+            out.close();
+            in.close();
+        }
+    }
+
+}
@@ -646,6 +646,28 @@ public class PojoUtilsTest {
         Assert.assertEquals(parent.getAge(), realizeParent.getAge());
     }
 
+    @Test
+    public void testRealizeOverloadedSetter() throws Exception {
+        Map<String, Object> map = new HashMap<String, Object>();
+        for (int i = 0; i < 2; i++) {
+            map.put("value", "1");
+            assertEquals("string:1", ((OverloadedSetter) PojoUtils.realize(map, OverloadedSetter.class)).getValue());
+            map.put("value", 2);
+            assertEquals("integer:2", ((OverloadedSetter) PojoUtils.realize(map, OverloadedSetter.class)).getValue());
+        }
+    }
+
+    @Test
+    public void testRealizeIgnoresUnknownKeys() throws Exception {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("Name", "mike");
+        map.put("toy", "ball");
+        map.put("noSuchProperty", "ignored");
+        Child child = (Child) PojoUtils.realize(map, Child.class);
+        assertEquals("mike", child.getName());
+        assertEquals("ball", child.toy);
+    }
+
     public enum Day {
         SUNDAY, MONDAY, TUESDAY, WEDNESDAY, THURSDAY, FRIDAY, SATURDAY
     }
@@ -764,6 +786,22 @@ public class PojoUtilsTest {
         }
     }
 
+    public static class OverloadedSetter {
+        private String value;
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = "string:" + value;
+        }
+
+        public void setValue(Integer value) {
+            this.value = "integer:" + value;
+        }
+    }
+
     public static class InnerPojo<T> {
         private List<T> list;
 
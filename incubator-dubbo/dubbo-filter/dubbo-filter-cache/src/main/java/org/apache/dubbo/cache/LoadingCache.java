@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.cache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Cache which collapses concurrent misses of the same key into one load.
+ */
+public interface LoadingCache extends Cache {
+
+    /**
+     * Get the cached value, or call the loader. While a loader is running for a key, other callers
+     * asking for the same key wait for it and share its return value instead of calling their own.
+     * The loader is responsible for putting whatever should be cached.
+     *
+     * @param key    cache key
+     * @param loader called on a miss
+     * @return the cached value, or the return value of the loader
+     */
+    Object get(Object key, Callable<Object> loader);
+
+}
@@ -18,6 +18,7 @@ package org.apache.dubbo.cache.filter;
 
 import org.apache.dubbo.cache.Cache;
 import org.apache.dubbo.cache.CacheFactory;
+import org.apache.dubbo.cache.LoadingCache;
 import org.apache.dubbo.common.Constants;
 import org.apache.dubbo.common.extension.Activate;
 import org.apache.dubbo.common.utils.ConfigUtils;
@@ -29,6 +30,8 @@ import org.apache.dubbo.rpc.Result;
 import org.apache.dubbo.rpc.RpcException;
 import org.apache.dubbo.rpc.RpcResult;
 
+import java.util.concurrent.Callable;
+
 /**
  * CacheFilter
  */
@@ -42,9 +45,24 @@ public class CacheFilter implements Filter {
     }
 
     @Override
-    public Result invoke(Invoker<?> invoker, Invocation invocation) throws RpcException {
+    public Result invoke(final Invoker<?> invoker, final Invocation invocation) throws RpcException {
         if (cacheFactory != null && ConfigUtils.isNotEmpty(invoker.getUrl().getMethodParameter(invocation.getMethodName(), Constants.CACHE_KEY))) {
-            Cache cache = cacheFactory.getCache(invoker.getUrl(), invocation);
+            final Cache cache = cacheFactory.getCache(invoker.getUrl(), invocation);
+            if (cache instanceof LoadingCache) {
+                final String key = StringUtils.toArgumentString(invocation.getArguments());
+                // concurrent misses of the same key share one invocation
+                Object value = ((LoadingCache) cache).get(key, new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        Result result = invoker.invoke(invocation);
+                        if (!result.hasException() && result.getValue() != null) {
+                            cache.put(key, result.getValue());
+                        }
+                        return result;
+                    }
+                });
+                return value instanceof Result ? (Result) value : new RpcResult(value);
+            }
             if (cache != null) {
                 String key = StringUtils.toArgumentString(invocation.getArguments());
                 Object value = cache.get(key);
@@ -0,0 +1,421 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.cache.support.tinylfu;
+
+import org.apache.dubbo.cache.LoadingCache;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.timer.HashedWheelTimer;
+import org.apache.dubbo.common.timer.Timeout;
+import org.apache.dubbo.common.timer.Timer;
+import org.apache.dubbo.common.timer.TimerTask;
+import org.apache.dubbo.common.utils.NamedThreadFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * TinyLfuCache - bounded cache with W-TinyLFU eviction, per entry time to live and single flight loading.
+ * <p>
+ * New entries enter a small LRU window. An entry leaving the window only replaces the LRU victim of the
+ * main space if the frequency sketch has seen its key more often, so one-off keys cannot flush hot ones.
+ * Reads are lock free: the policy is only updated when the eviction lock is free, otherwise the access is
+ * just not recorded. Expired entries are purged by a timer shared by all caches.
+ * <p>
+ * Parameters: <code>cache.size</code> (default 1000), <code>cache.seconds</code> time to live after write
+ * (default 0, never expire).
+ */
+public class TinyLfuCache implements LoadingCache {
+
+    private static final Timer EXPIRE_TIMER = new HashedWheelTimer(
+            new NamedThreadFactory("dubbo-cache-expire", true),
+            1,
+            TimeUnit.SECONDS);
+
+    private static final int WINDOW = 0;
+
+    private static final int PROBATION = 1;
+
+    private static final int PROTECTED = 2;
+
+    private static final int REMOVED = 3;
+
+    private final ConcurrentMap<Object, Node> store = new ConcurrentHashMap<Object, Node>();
+
+    private final ConcurrentMap<Object, FutureTask<Object>> loading = new ConcurrentHashMap<Object, FutureTask<Object>>();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final long timeToLiveMillis;
+
+    // ==== guarded by evictionLock ====
+
+    private final FrequencySketch sketch;
+
+    private final LinkedDeque window = new LinkedDeque();
+
+    private final LinkedDeque probation = new LinkedDeque();
+
+    private final LinkedDeque protect = new LinkedDeque();
+
+    private final int maximumSize;
+
+    private final int maximumWindowSize;
+
+    private final int maximumProtectedSize;
+
+    // ==== statistics ====
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong loadCount = new AtomicLong();
+
+    private final AtomicLong loadFailureCount = new AtomicLong();
+
+    private final AtomicLong coalescedLoadCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public TinyLfuCache(URL url) {
+        this(url.getParameter("cache.size", 1000), url.getParameter("cache.seconds", 0) * 1000L);
+    }
+
+    public TinyLfuCache(int maximumSize, long timeToLiveMillis) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("cache.size <= 0");
+        }
+        this.maximumSize = maximumSize;
+        this.maximumWindowSize = Math.max(1, maximumSize / 100);
+        this.maximumProtectedSize = (int) ((maximumSize - maximumWindowSize) * 0.8);
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (key == null || value == null) {
+            return;
+        }
+        Node node = new Node(key, value, timeToLiveMillis > 0 ? System.currentTimeMillis() + timeToLiveMillis : 0);
+        evictionLock.lock();
+        try {
+            Node old = store.put(key, node);
+            if (old != null) {
+                unlink(old);
+            }
+            sketch.increment(key);
+            window.addLast(node, WINDOW);
+            evict();
+            if (timeToLiveMillis > 0 && node.queue != REMOVED) {
+                node.timeout = EXPIRE_TIMER.newTimeout(new ExpireTask(node), timeToLiveMillis, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        Node node = store.get(key);
+        if (node != null && node.isExpired(System.currentTimeMillis())) {
+            remove(node);
+            node = null;
+        }
+        if (node == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        if (evictionLock.tryLock()) {
+            try {
+                sketch.increment(key);
+                if (node != null) {
+                    onAccess(node);
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public Object get(final Object key, final Callable<Object> loader) {
+        Object value = get(key);
+        if (value != null) {
+            return value;
+        }
+        FutureTask<Object> task = new FutureTask<Object>(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                // another load of the key may have completed since the miss
+                Node node = store.get(key);
+                if (node != null && !node.isExpired(System.currentTimeMillis())) {
+                    return node.value;
+                }
+                return loader.call();
+            }
+        });
+        FutureTask<Object> inFlight = loading.putIfAbsent(key, task);
+        if (inFlight == null) {
+            inFlight = task;
+            try {
+                task.run();
+            } finally {
+                loading.remove(key, task);
+            }
+        } else {
+            coalescedLoadCount.incrementAndGet();
+        }
+        try {
+            value = inFlight.get();
+            if (inFlight == task) {
+                loadCount.incrementAndGet();
+            }
+            return value;
+        } catch (ExecutionException e) {
+            if (inFlight == task) {
+                loadFailureCount.incrementAndGet();
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the load of " + key, e);
+        }
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount.get();
+    }
+
+    public long getCoalescedLoadCount() {
+        return coalescedLoadCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public double getHitRate() {
+        long hit = hitCount.get();
+        long total = hit + missCount.get();
+        return total == 0 ? 1.0 : (double) hit / total;
+    }
+
+    private void remove(Node node) {
+        evictionLock.lock();
+        try {
+            if (store.remove(node.key, node)) {
+                unlink(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void onAccess(Node node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToLast(node);
+                break;
+            case PROBATION:
+                probation.unlink(node);
+                protect.addLast(node, PROTECTED);
+                if (protect.size > maximumProtectedSize) {
+                    Node demoted = protect.first;
+                    protect.unlink(demoted);
+                    probation.addLast(demoted, PROBATION);
+                }
+                break;
+            case PROTECTED:
+                protect.moveToLast(node);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void evict() {
+        while (window.size > maximumWindowSize) {
+            Node candidate = window.first;
+            window.unlink(candidate);
+            probation.addLast(candidate, PROBATION);
+            if (window.size + probation.size + protect.size > maximumSize) {
+                Node victim = probation.first != candidate ? probation.first : protect.first;
+                if (victim == null || sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                    evict(victim == null ? candidate : victim);
+                } else {
+                    evict(candidate);
+                }
+            }
+        }
+        while (window.size + probation.size + protect.size > maximumSize) {
+            evict(probation.first != null ? probation.first : protect.first != null ? protect.first : window.first);
+        }
+    }
+
+    private void evict(Node node) {
+        if (store.remove(node.key, node)) {
+            evictionCount.incrementAndGet();
+        }
+        unlink(node);
+    }
+
+    private void unlink(Node node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.unlink(node);
+                break;
+            case PROBATION:
+                probation.unlink(node);
+                break;
+            case PROTECTED:
+                protect.unlink(node);
+                break;
+            default:
+                break;
+        }
+        node.queue = REMOVED;
+        Timeout timeout = node.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private static final class Node {
+
+        final Object key;
+
+        final Object value;
+
+        final long expireTime;
+
+        volatile Timeout timeout;
+
+        // ==== guarded by evictionLock ====
+
+        int queue = REMOVED;
+
+        Node prev;
+
+        Node next;
+
+        Node(Object key, Object value, long expireTime) {
+            this.key = key;
+            this.value = value;
+            this.expireTime = expireTime;
+        }
+
+        boolean isExpired(long now) {
+            return expireTime > 0 && now >= expireTime;
+        }
+    }
+
+    /**
+     * Intrusive doubly linked list, the first node is the least recently used one.
+     */
+    private static final class LinkedDeque {
+
+        Node first;
+
+        Node last;
+
+        int size;
+
+        void addLast(Node node, int queue) {
+            node.queue = queue;
+            node.prev = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            size++;
+        }
+
+        void unlink(Node node) {
+            if (node.prev == null) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToLast(Node node) {
+            if (node != last) {
+                int queue = node.queue;
+                unlink(node);
+                addLast(node, queue);
+            }
+        }
+    }
+
+    private class ExpireTask implements TimerTask {
+
+        private final Node node;
+
+        ExpireTask(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            remove(node);
+        }
+    }
+
+}
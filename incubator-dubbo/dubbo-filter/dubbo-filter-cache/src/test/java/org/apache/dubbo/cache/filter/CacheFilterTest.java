@@ -21,6 +21,7 @@ import org.apache.dubbo.cache.support.expiring.ExpiringCacheFactory;
 import org.apache.dubbo.cache.support.jcache.JCacheFactory;
 import org.apache.dubbo.cache.support.lru.LruCacheFactory;
 import org.apache.dubbo.cache.support.threadlocal.ThreadLocalCacheFactory;
+import org.apache.dubbo.cache.support.tinylfu.TinyLfuCacheFactory;
 import org.apache.dubbo.common.URL;
 import org.apache.dubbo.rpc.Invoker;
 import org.apache.dubbo.rpc.RpcInvocation;
@@ -61,7 +62,8 @@ public class CacheFilterTest {
                 {"lru", new LruCacheFactory()},
                 {"jcache", new JCacheFactory()},
                 {"threadlocal", new ThreadLocalCacheFactory()},
-                {"expiring", new ExpiringCacheFactory()}
+                {"expiring", new ExpiringCacheFactory()},
+                {"tinylfu", new TinyLfuCacheFactory()}
         });
     }
 
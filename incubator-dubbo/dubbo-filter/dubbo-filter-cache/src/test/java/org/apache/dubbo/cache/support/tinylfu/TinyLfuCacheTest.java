@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.cache.support.tinylfu;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TinyLfuCacheTest {
+
+    @Test
+    public void testPutAndGet() {
+        TinyLfuCache cache = new TinyLfuCache(10, 0);
+        cache.put("key", "value");
+        assertEquals("value", cache.get("key"));
+        assertNull(cache.get("absent"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testBoundedSize() {
+        TinyLfuCache cache = new TinyLfuCache(100, 0);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, i);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(900, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testFrequentKeysSurviveScan() {
+        TinyLfuCache cache = new TinyLfuCache(100, 0);
+        for (int i = 0; i < 50; i++) {
+            cache.put("hot" + i, i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.get("hot" + i);
+            }
+        }
+        for (int i = 0; i < 1000; i++) {
+            cache.put("scan" + i, i);
+        }
+        int hot = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get("hot" + i) != null) {
+                hot++;
+            }
+        }
+        assertTrue(hot > 40);
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        TinyLfuCache cache = new TinyLfuCache(10, 100);
+        cache.put("key", "value");
+        assertEquals("value", cache.get("key"));
+        Thread.sleep(200);
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void testConcurrentMissesLoadOnce() throws Exception {
+        final TinyLfuCache cache = new TinyLfuCache(10, 0);
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<Object> loader = new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                loads.incrementAndGet();
+                started.countDown();
+                release.await();
+                cache.put("key", "value");
+                return "value";
+            }
+        };
+        Thread[] threads = new Thread[8];
+        final Object[] results = new Object[threads.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    results[index] = cache.get("key", loader);
+                }
+            });
+            threads[i].start();
+            if (i == 0) {
+                started.await();
+            }
+        }
+        while (cache.getCoalescedLoadCount() + cache.getHitCount() < threads.length - 1) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getLoadCount());
+        for (Object result : results) {
+            assertEquals("value", result);
+        }
+    }
+
+}
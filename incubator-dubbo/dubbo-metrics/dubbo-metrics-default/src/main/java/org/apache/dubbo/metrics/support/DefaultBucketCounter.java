@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.metrics.support;
+
+import org.apache.dubbo.metrics.BucketCounter;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link BucketCounter} keeping a striped count per interval for the last <code>numberOfBuckets</code> intervals.
+ */
+public class DefaultBucketCounter implements BucketCounter {
+
+    private final int interval;
+
+    private final TimeBuckets<LongAdder> buckets;
+
+    private volatile long lastUpdateTime;
+
+    /**
+     * @param interval        the bucket interval in seconds
+     * @param numberOfBuckets the number of intervals kept
+     */
+    public DefaultBucketCounter(int interval, int numberOfBuckets) {
+        this.interval = interval;
+        this.buckets = new TimeBuckets<LongAdder>(interval * 1000L, numberOfBuckets) {
+            @Override
+            protected LongAdder newValue() {
+                return new LongAdder();
+            }
+        };
+    }
+
+    @Override
+    public void update() {
+        update(1);
+    }
+
+    @Override
+    public void update(long n) {
+        long now = currentTimeMillis();
+        buckets.current(now).add(n);
+        if (lastUpdateTime != now) {
+            lastUpdateTime = now;
+        }
+    }
+
+    @Override
+    public Map<Long, Long> getBucketCounts() {
+        return getBucketCounts(0);
+    }
+
+    @Override
+    public Map<Long, Long> getBucketCounts(long startTime) {
+        final Map<Long, Long> counts = new TreeMap<Long, Long>();
+        buckets.visit(startTime, currentTimeMillis(), new TimeBuckets.Visitor<LongAdder>() {
+            @Override
+            public void visit(long timestamp, LongAdder value) {
+                counts.put(timestamp, value.sum());
+            }
+        });
+        return counts;
+    }
+
+    @Override
+    public int getBucketInterval() {
+        return interval;
+    }
+
+    @Override
+    public long lastUpdateTime() {
+        return lastUpdateTime;
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.metrics.support;
+
+import org.apache.dubbo.metrics.Compass;
+import org.apache.dubbo.metrics.Sampling;
+import org.apache.dubbo.metrics.Snapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link Compass} recording invocation count and response time per sub-category in time buckets,
+ * plus a latency histogram of the last minute for percentiles.
+ * <p>
+ * Count and response time of a bucket share a single striped adder: each record adds
+ * <code>(1 &lt;&lt; COUNT_OFFSET) + duration</code>, so one record is one uncontended add. A bucket holds up
+ * to 2^25 invocations and 2^38 milliseconds of summed response time per category.
+ */
+public class DefaultCompass implements Compass, Sampling {
+
+    /**
+     * Bit offset of the count in the values returned by {@link #getCountAndRtPerCategory()}
+     */
+    public static final int COUNT_OFFSET = 38;
+
+    /**
+     * Mask of the response time in the values returned by {@link #getCountAndRtPerCategory()}
+     */
+    public static final long RT_MASK = (1L << COUNT_OFFSET) - 1;
+
+    private static final long HISTOGRAM_INTERVAL = 15 * 1000L;
+
+    private static final int HISTOGRAM_SLICES = 4;
+
+    private final int interval;
+
+    private final int numberOfBuckets;
+
+    private final ConcurrentMap<String, TimeBuckets<LongAdder>> categories = new ConcurrentHashMap<String, TimeBuckets<LongAdder>>();
+
+    private final TimeBuckets<LatencyHistogram> histograms = new TimeBuckets<LatencyHistogram>(HISTOGRAM_INTERVAL, HISTOGRAM_SLICES) {
+        @Override
+        protected LatencyHistogram newValue() {
+            return new LatencyHistogram();
+        }
+    };
+
+    private volatile long lastUpdateTime;
+
+    /**
+     * @param interval        the bucket interval in seconds
+     * @param numberOfBuckets the number of intervals kept
+     */
+    public DefaultCompass(int interval, int numberOfBuckets) {
+        this.interval = interval;
+        this.numberOfBuckets = numberOfBuckets;
+    }
+
+    @Override
+    public void record(long duration, String subCategory) {
+        if (duration < 0) {
+            duration = 0;
+        }
+        long now = currentTimeMillis();
+        getCategory(subCategory).current(now).add((1L << COUNT_OFFSET) + Math.min(duration, RT_MASK));
+        histograms.current(now).record(duration);
+        if (lastUpdateTime != now) {
+            lastUpdateTime = now;
+        }
+    }
+
+    @Override
+    public Map<String, Map<Long, Long>> getMethodCountPerCategory() {
+        return getMethodCountPerCategory(0);
+    }
+
+    @Override
+    public Map<String, Map<Long, Long>> getMethodCountPerCategory(long startTime) {
+        return collect(startTime, COUNT_OFFSET, -1L);
+    }
+
+    @Override
+    public Map<String, Map<Long, Long>> getMethodRtPerCategory() {
+        return getMethodRtPerCategory(0);
+    }
+
+    @Override
+    public Map<String, Map<Long, Long>> getMethodRtPerCategory(long startTime) {
+        return collect(startTime, 0, RT_MASK);
+    }
+
+    @Override
+    public Map<String, Map<Long, Long>> getCountAndRtPerCategory() {
+        return getCountAndRtPerCategory(0);
+    }
+
+    @Override
+    public Map<String, Map<Long, Long>> getCountAndRtPerCategory(long startTime) {
+        return collect(startTime, 0, -1L);
+    }
+
+    @Override
+    public int getBucketInterval() {
+        return interval;
+    }
+
+    /**
+     * @return the response time distribution of the last minute, over all sub-categories
+     */
+    @Override
+    public Snapshot getSnapshot() {
+        final long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+        final long[] sumAndMax = new long[2];
+        histograms.visit(0, currentTimeMillis(), new TimeBuckets.Visitor<LatencyHistogram>() {
+            @Override
+            public void visit(long timestamp, LatencyHistogram histogram) {
+                sumAndMax[0] += histogram.addTo(counts);
+                sumAndMax[1] = Math.max(sumAndMax[1], histogram.getMax());
+            }
+        });
+        return new HistogramSnapshot(counts, sumAndMax[0], sumAndMax[1]);
+    }
+
+    @Override
+    public long lastUpdateTime() {
+        return lastUpdateTime;
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private TimeBuckets<LongAdder> getCategory(String subCategory) {
+        TimeBuckets<LongAdder> buckets = categories.get(subCategory);
+        if (buckets == null) {
+            categories.putIfAbsent(subCategory, new TimeBuckets<LongAdder>(interval * 1000L, numberOfBuckets) {
+                @Override
+                protected LongAdder newValue() {
+                    return new LongAdder();
+                }
+            });
+            buckets = categories.get(subCategory);
+        }
+        return buckets;
+    }
+
+    private Map<String, Map<Long, Long>> collect(long startTime, final int shift, final long mask) {
+        long now = currentTimeMillis();
+        Map<String, Map<Long, Long>> result = new HashMap<String, Map<Long, Long>>();
+        for (Map.Entry<String, TimeBuckets<LongAdder>> entry : categories.entrySet()) {
+            final Map<Long, Long> values = new TreeMap<Long, Long>();
+            entry.getValue().visit(startTime, now, new TimeBuckets.Visitor<LongAdder>() {
+                @Override
+                public void visit(long timestamp, LongAdder value) {
+                    values.put(timestamp, (value.sum() >>> shift) & mask);
+                }
+            });
+            result.put(entry.getKey(), values);
+        }
+        return result;
+    }
+
+}
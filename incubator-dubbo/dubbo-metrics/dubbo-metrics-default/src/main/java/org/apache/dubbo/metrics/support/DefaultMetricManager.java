@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.metrics.support;
+
+import org.apache.dubbo.metrics.BucketCounter;
+import org.apache.dubbo.metrics.Compass;
+import org.apache.dubbo.metrics.Counter;
+import org.apache.dubbo.metrics.IMetricManager;
+import org.apache.dubbo.metrics.Metric;
+import org.apache.dubbo.metrics.MetricFilter;
+import org.apache.dubbo.metrics.MetricName;
+import org.apache.dubbo.metrics.MetricRegistry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link IMetricManager} keeping one {@link DefaultMetricRegistry} per group.
+ * <p>
+ * Metrics are only collected, never pushed anywhere: readers pull them through the query methods,
+ * e.g. the <code>metrics</code> QoS command. A metric passed to {@link #register(String, MetricName, Metric)}
+ * replaces any metric previously registered under the same name, so components re-created with the same
+ * identity do not leave stale gauges behind.
+ */
+public class DefaultMetricManager implements IMetricManager {
+
+    private final ConcurrentMap<String, DefaultMetricRegistry> registries = new ConcurrentHashMap<String, DefaultMetricRegistry>();
+
+    @Override
+    public Counter getCounter(String group, MetricName name) {
+        return getRegistry(group).counter(name);
+    }
+
+    @Override
+    public BucketCounter getBucketCounter(String group, MetricName name) {
+        return getRegistry(group).bucketCounter(name);
+    }
+
+    @Override
+    public Compass getCompass(String group, MetricName name) {
+        return getRegistry(group).compass(name);
+    }
+
+    @Override
+    public void register(String group, MetricName name, Metric metric) {
+        getRegistry(group).replace(name, metric);
+    }
+
+    @Override
+    public List<String> listMetricGroups() {
+        List<String> groups = new ArrayList<String>(registries.keySet());
+        Collections.sort(groups);
+        return groups;
+    }
+
+    @Override
+    public Map<String, Set<MetricName>> listMetricNamesByGroup() {
+        Map<String, Set<MetricName>> names = new HashMap<String, Set<MetricName>>();
+        for (Map.Entry<String, DefaultMetricRegistry> entry : registries.entrySet()) {
+            names.put(entry.getKey(), entry.getValue().getNames());
+        }
+        return names;
+    }
+
+    @Override
+    public MetricRegistry getMetricRegistryByGroup(String group) {
+        return registries.get(group);
+    }
+
+    @Override
+    public Map<MetricName, Counter> getCounters(String group, MetricFilter filter) {
+        DefaultMetricRegistry registry = registries.get(group);
+        if (registry == null) {
+            return Collections.emptyMap();
+        }
+        return registry.getCounters(filter);
+    }
+
+    @Override
+    public Map<MetricName, Compass> getCompasses(String group, MetricFilter filter) {
+        DefaultMetricRegistry registry = registries.get(group);
+        if (registry == null) {
+            return Collections.emptyMap();
+        }
+        return registry.getCompasses(filter);
+    }
+
+    @Override
+    public Map<MetricName, Metric> getMetrics(String group) {
+        DefaultMetricRegistry registry = registries.get(group);
+        if (registry == null) {
+            return Collections.emptyMap();
+        }
+        return registry.getMetrics();
+    }
+
+    private DefaultMetricRegistry getRegistry(String group) {
+        DefaultMetricRegistry registry = registries.get(group);
+        if (registry == null) {
+            registries.putIfAbsent(group, new DefaultMetricRegistry());
+            registry = registries.get(group);
+        }
+        return registry;
+    }
+
+}
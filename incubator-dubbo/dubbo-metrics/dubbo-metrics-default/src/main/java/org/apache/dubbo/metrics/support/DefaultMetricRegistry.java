@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.metrics.support;
+
+import org.apache.dubbo.metrics.BucketCounter;
+import org.apache.dubbo.metrics.Compass;
+import org.apache.dubbo.metrics.Counter;
+import org.apache.dubbo.metrics.Gauge;
+import org.apache.dubbo.metrics.Metric;
+import org.apache.dubbo.metrics.MetricFilter;
+import org.apache.dubbo.metrics.MetricName;
+import org.apache.dubbo.metrics.MetricRegistry;
+import org.apache.dubbo.metrics.MetricSet;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link MetricRegistry} backed by a concurrent map, creating the default metric implementations on demand.
+ */
+public class DefaultMetricRegistry extends MetricRegistry {
+
+    /**
+     * Bucket interval in seconds of the bucket counters and compasses created by the registry
+     */
+    public static final int DEFAULT_BUCKET_INTERVAL = 5;
+
+    public static final int DEFAULT_NUMBER_OF_BUCKETS = 12;
+
+    private final ConcurrentMap<MetricName, Metric> metrics = new ConcurrentHashMap<MetricName, Metric>();
+
+    @Override
+    public <T extends Metric> T register(String name, T metric) throws IllegalArgumentException {
+        return register(MetricName.build(name), metric);
+    }
+
+    @Override
+    public <T extends Metric> T register(MetricName name, T metric) throws IllegalArgumentException {
+        if (metric == null) {
+            throw new IllegalArgumentException("metric == null");
+        }
+        if (metric instanceof MetricSet) {
+            registerAll(name, (MetricSet) metric);
+        } else if (metrics.putIfAbsent(name, metric) != null) {
+            throw new IllegalArgumentException("A metric named " + name + " already exists");
+        }
+        return metric;
+    }
+
+    @Override
+    public void registerAll(MetricSet metrics) throws IllegalArgumentException {
+        registerAll(MetricName.EMPTY, metrics);
+    }
+
+    /**
+     * Register the metric, replacing any metric registered under the same name.
+     *
+     * @param name   the name of the metric
+     * @param metric the metric
+     */
+    public void replace(MetricName name, Metric metric) {
+        if (metric instanceof MetricSet) {
+            for (Map.Entry<MetricName, Metric> entry : ((MetricSet) metric).getMetrics().entrySet()) {
+                replace(MetricName.join(name, entry.getKey()), entry.getValue());
+            }
+        } else if (metric != null) {
+            metrics.put(name, metric);
+        }
+    }
+
+    @Override
+    public Counter counter(String name) {
+        return counter(MetricName.build(name));
+    }
+
+    @Override
+    public Counter counter(MetricName name) {
+        Metric metric = metrics.get(name);
+        if (metric == null) {
+            metric = putIfAbsent(name, new StripedCounter());
+        }
+        return checkType(name, metric, Counter.class);
+    }
+
+    /**
+     * Return the {@link BucketCounter} registered under this name; or create and register
+     * a new {@link BucketCounter} if none is registered.
+     *
+     * @param name the name of the metric
+     * @return a new or pre-existing {@link BucketCounter}
+     */
+    public BucketCounter bucketCounter(MetricName name) {
+        Metric metric = metrics.get(name);
+        if (metric == null) {
+            metric = putIfAbsent(name, new DefaultBucketCounter(DEFAULT_BUCKET_INTERVAL, DEFAULT_NUMBER_OF_BUCKETS));
+        }
+        return checkType(name, metric, BucketCounter.class);
+    }
+
+    @Override
+    public Compass compass(MetricName name) {
+        Metric metric = metrics.get(name);
+        if (metric == null) {
+            metric = putIfAbsent(name, new DefaultCompass(DEFAULT_BUCKET_INTERVAL, DEFAULT_NUMBER_OF_BUCKETS));
+        }
+        return checkType(name, metric, Compass.class);
+    }
+
+    @Override
+    public boolean remove(MetricName name) {
+        return metrics.remove(name) != null;
+    }
+
+    @Override
+    public void removeMatching(MetricFilter filter) {
+        for (Map.Entry<MetricName, Metric> entry : metrics.entrySet()) {
+            if (filter.matches(entry.getKey(), entry.getValue())) {
+                metrics.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public Set<MetricName> getNames() {
+        return Collections.unmodifiableSet(new TreeSet<MetricName>(metrics.keySet()));
+    }
+
+    @Override
+    public Map<MetricName, Gauge> getGauges() {
+        return getGauges(MetricFilter.ALL);
+    }
+
+    @Override
+    public Map<MetricName, Gauge> getGauges(MetricFilter filter) {
+        return getMetrics(Gauge.class, filter);
+    }
+
+    @Override
+    public Map<MetricName, Counter> getCounters() {
+        return getCounters(MetricFilter.ALL);
+    }
+
+    @Override
+    public Map<MetricName, Counter> getCounters(MetricFilter filter) {
+        return getMetrics(Counter.class, filter);
+    }
+
+    @Override
+    public Map<MetricName, Compass> getCompasses() {
+        return getCompasses(MetricFilter.ALL);
+    }
+
+    @Override
+    public Map<MetricName, Compass> getCompasses(MetricFilter filter) {
+        return getMetrics(Compass.class, filter);
+    }
+
+    /**
+     * Returns a map of all the bucket counters in the registry and their names which match the given filter.
+     *
+     * @param filter the metric filter to match
+     * @return all the bucket counters in the registry
+     */
+    public Map<MetricName, BucketCounter> getBucketCounters(MetricFilter filter) {
+        return getMetrics(BucketCounter.class, filter);
+    }
+
+    @Override
+    public Map<MetricName, Metric> getMetrics(MetricFilter filter) {
+        return getMetrics(Metric.class, filter);
+    }
+
+    @Override
+    public Map<MetricName, Metric> getMetrics() {
+        return getMetrics(MetricFilter.ALL);
+    }
+
+    @Override
+    public long lastUpdateTime() {
+        long lastUpdateTime = 0;
+        for (Metric metric : metrics.values()) {
+            lastUpdateTime = Math.max(lastUpdateTime, metric.lastUpdateTime());
+        }
+        return lastUpdateTime;
+    }
+
+    private void registerAll(MetricName prefix, MetricSet metrics) {
+        for (Map.Entry<MetricName, Metric> entry : metrics.getMetrics().entrySet()) {
+            register(MetricName.join(prefix, entry.getKey()), entry.getValue());
+        }
+    }
+
+    private Metric putIfAbsent(MetricName name, Metric created) {
+        Metric metric = metrics.putIfAbsent(name, created);
+        return metric == null ? created : metric;
+    }
+
+    private static <T extends Metric> T checkType(MetricName name, Metric metric, Class<T> type) {
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException(name + " is already used for a different type of metric");
+        }
+        return type.cast(metric);
+    }
+
+    private <T extends Metric> Map<MetricName, T> getMetrics(Class<T> type, MetricFilter filter) {
+        Map<MetricName, T> result = new TreeMap<MetricName, T>();
+        for (Map.Entry<MetricName, Metric> entry : metrics.entrySet()) {
+            if (type.isInstance(entry.getValue()) && filter.matches(entry.getKey(), entry.getValue())) {
+                result.put(entry.getKey(), type.cast(entry.getValue()));
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.metrics.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free log-linear histogram of non negative values.
+ * <p>
+ * Values below 16 are counted exactly, larger values fall into one of 8 buckets per power of two,
+ * so a reported value is at most 12.5% above the recorded one. Every bucket is a {@link LongAdder}, created on
+ * its first value, so that threads recording similar latencies do not contend on the same counter.
+ */
+final class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 16;
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int MIN_EXPONENT = 4;
+
+    // ~2 years in milliseconds, larger values are clamped
+    private static final long MAX_VALUE = (1L << 36) - 1;
+
+    static final int BUCKET_COUNT = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicReferenceArray<LongAdder> counts = new AtomicReferenceArray<LongAdder>(BUCKET_COUNT);
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        int index = indexOf(value);
+        LongAdder count = counts.get(index);
+        if (count == null) {
+            count = new LongAdder();
+            if (!counts.compareAndSet(index, null, count)) {
+                count = counts.get(index);
+            }
+        }
+        count.increment();
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Add the recorded values into the given accumulators.
+     *
+     * @param target counts per bucket, of length {@link #BUCKET_COUNT}
+     * @return the sum of the recorded values
+     */
+    long addTo(long[] target) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            LongAdder count = counts.get(i);
+            if (count != null) {
+                target[i] += count.sum();
+            }
+        }
+        return sum.sum();
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @param index the bucket index
+     * @return the highest value counted in the bucket
+     */
+    static long highestValueOf(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int exponent = MIN_EXPONENT + (index - LINEAR_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+
+}
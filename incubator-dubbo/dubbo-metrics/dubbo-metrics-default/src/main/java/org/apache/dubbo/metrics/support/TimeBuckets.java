@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.metrics.support;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed ring of time slots, each holding the value collected during one interval.
+ * <p>
+ * A slot is reused once its interval has been left behind by the whole ring: the first writer of the new
+ * interval swaps in a fresh value with a CAS, so recording never blocks. Writers still holding the replaced
+ * value at the boundary may lose their update, which is accepted for metrics.
+ *
+ * @param <T> the value kept per slot
+ */
+abstract class TimeBuckets<T> {
+
+    private final long intervalMillis;
+
+    private final AtomicReferenceArray<Slot<T>> slots;
+
+    TimeBuckets(long intervalMillis, int numberOfSlots) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("interval <= 0");
+        }
+        if (numberOfSlots <= 0) {
+            throw new IllegalArgumentException("number of buckets <= 0");
+        }
+        this.intervalMillis = intervalMillis;
+        this.slots = new AtomicReferenceArray<Slot<T>>(numberOfSlots);
+    }
+
+    /**
+     * @return a new empty value for a slot
+     */
+    protected abstract T newValue();
+
+    long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * @param now the current time in milliseconds
+     * @return the value of the slot covering <code>now</code>
+     */
+    T current(long now) {
+        long timestamp = now - now % intervalMillis;
+        int index = (int) ((timestamp / intervalMillis) % slots.length());
+        for (; ; ) {
+            Slot<T> slot = slots.get(index);
+            if (slot != null && slot.timestamp >= timestamp) {
+                // a slot from the future only shows up if the clock went backwards, keep using it
+                return slot.value;
+            }
+            Slot<T> fresh = new Slot<T>(timestamp, newValue());
+            if (slots.compareAndSet(index, slot, fresh)) {
+                return fresh.value;
+            }
+        }
+    }
+
+    /**
+     * Visit the slots still inside the ring at <code>now</code>, oldest first.
+     *
+     * @param startTime the earliest slot timestamp to visit, inclusive
+     * @param now       the current time in milliseconds
+     * @param visitor   called with the slot timestamp and value
+     */
+    void visit(long startTime, long now, Visitor<T> visitor) {
+        long current = now - now % intervalMillis;
+        long oldest = current - (slots.length() - 1) * intervalMillis;
+        long from = Math.max(oldest, startTime - startTime % intervalMillis);
+        if (from < startTime) {
+            from += intervalMillis;
+        }
+        for (long timestamp = from; timestamp <= current; timestamp += intervalMillis) {
+            Slot<T> slot = slots.get((int) ((timestamp / intervalMillis) % slots.length()));
+            if (slot != null && slot.timestamp == timestamp) {
+                visitor.visit(timestamp, slot.value);
+            }
+        }
+    }
+
+    interface Visitor<T> {
+
+        void visit(long timestamp, T value);
+    }
+
+    private static final class Slot<T> {
+
+        final long timestamp;
+
+        final T value;
+
+        Slot(long timestamp, T value) {
+            this.timestamp = timestamp;
+            this.value = value;
+        }
+    }
+
+}
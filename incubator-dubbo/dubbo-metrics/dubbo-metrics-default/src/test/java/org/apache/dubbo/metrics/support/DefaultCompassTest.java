@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.metrics.support;
+
+import org.apache.dubbo.metrics.Snapshot;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+public class DefaultCompassTest {
+
+    @Test
+    public void testCountAndRtPerCategory() {
+        TestCompass compass = new TestCompass(10000);
+        compass.record(10, "success");
+        compass.record(30, "success");
+        compass.record(100, "error");
+        compass.now = 15000;
+        compass.record(20, "success");
+
+        Map<String, Map<Long, Long>> counts = compass.getMethodCountPerCategory();
+        Assert.assertEquals(Long.valueOf(2), counts.get("success").get(10000L));
+        Assert.assertEquals(Long.valueOf(1), counts.get("success").get(15000L));
+        Assert.assertEquals(Long.valueOf(1), counts.get("error").get(10000L));
+
+        Map<String, Map<Long, Long>> rts = compass.getMethodRtPerCategory();
+        Assert.assertEquals(Long.valueOf(40), rts.get("success").get(10000L));
+        Assert.assertEquals(Long.valueOf(20), rts.get("success").get(15000L));
+        Assert.assertEquals(Long.valueOf(100), rts.get("error").get(10000L));
+
+        long countAndRt = compass.getCountAndRtPerCategory().get("success").get(10000L);
+        Assert.assertEquals(2, countAndRt >>> DefaultCompass.COUNT_OFFSET);
+        Assert.assertEquals(40, countAndRt & DefaultCompass.RT_MASK);
+
+        Assert.assertEquals(1, compass.getMethodCountPerCategory(15000).get("success").size());
+    }
+
+    @Test
+    public void testOldBucketsExpire() {
+        TestCompass compass = new TestCompass(10000);
+        compass.record(10, "success");
+        compass.now = 10000 + 5000 * 3;
+        compass.record(10, "success");
+        // 3 buckets of 5 seconds, the first one is gone
+        Map<Long, Long> counts = compass.getMethodCountPerCategory().get("success");
+        Assert.assertEquals(1, counts.size());
+        Assert.assertEquals(Long.valueOf(1), counts.get(25000L));
+    }
+
+    @Test
+    public void testSnapshot() {
+        TestCompass compass = new TestCompass(10000);
+        for (int i = 1; i <= 100; i++) {
+            compass.record(i, "success");
+        }
+        Snapshot snapshot = compass.getSnapshot();
+        Assert.assertEquals(100, snapshot.getCount());
+        Assert.assertEquals(50.5, snapshot.getMean(), 0.001);
+        Assert.assertEquals(100, snapshot.getMax());
+        assertClose(50, snapshot.getMedian());
+        assertClose(95, snapshot.get95thPercentile());
+        assertClose(99, snapshot.get99thPercentile());
+        Assert.assertEquals(1, snapshot.getValue(0));
+
+        // the histogram covers the last minute only
+        compass.now += 60000;
+        Assert.assertEquals(0, compass.getSnapshot().getCount());
+    }
+
+    @Test
+    public void testConcurrentRecord() throws Exception {
+        final DefaultCompass compass = new DefaultCompass(60, 2);
+        int threads = 8;
+        final int records = 10000;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < records; j++) {
+                        compass.record(2, "success");
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+        long count = 0;
+        long rt = 0;
+        for (Long value : compass.getMethodCountPerCategory().get("success").values()) {
+            count += value;
+        }
+        for (Long value : compass.getMethodRtPerCategory().get("success").values()) {
+            rt += value;
+        }
+        // a record can only be lost when it races with the rotation of a bucket
+        Assert.assertTrue(count > threads * records * 0.99);
+        Assert.assertEquals(count * 2, rt);
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        for (long value = 0; value < 100000; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            Assert.assertTrue(value <= LatencyHistogram.highestValueOf(index));
+            Assert.assertTrue(index == 0 || value > LatencyHistogram.highestValueOf(index - 1));
+        }
+    }
+
+    private static void assertClose(long expected, long actual) {
+        Assert.assertTrue(actual + " is not close to " + expected, actual >= expected && actual <= expected * 1.125);
+    }
+
+    private static class TestCompass extends DefaultCompass {
+
+        long now;
+
+        TestCompass(long now) {
+            super(5, 3);
+            this.now = now;
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return now;
+        }
+    }
+}
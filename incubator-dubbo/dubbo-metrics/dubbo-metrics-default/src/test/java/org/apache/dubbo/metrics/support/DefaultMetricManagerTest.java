@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.metrics.support;
+
+import org.apache.dubbo.metrics.Counter;
+import org.apache.dubbo.metrics.Gauge;
+import org.apache.dubbo.metrics.MetricFilter;
+import org.apache.dubbo.metrics.MetricManager;
+import org.apache.dubbo.metrics.MetricName;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+public class DefaultMetricManagerTest {
+
+    @Test
+    public void testBinder() {
+        Assert.assertTrue(MetricManager.getIMetricManager() instanceof DefaultMetricManager);
+    }
+
+    @Test
+    public void testCounter() {
+        DefaultMetricManager manager = new DefaultMetricManager();
+        Counter counter = manager.getCounter("test", MetricName.build("counter"));
+        Assert.assertSame(counter, manager.getCounter("test", MetricName.build("counter")));
+        counter.inc();
+        counter.inc(5);
+        counter.dec(2);
+        Assert.assertEquals(4, counter.getCount());
+        Assert.assertEquals(1, manager.getCounters("test", MetricFilter.ALL).size());
+        Assert.assertEquals(0, manager.getCounters("other", MetricFilter.ALL).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypeConflict() {
+        DefaultMetricManager manager = new DefaultMetricManager();
+        manager.getCounter("test", MetricName.build("metric"));
+        manager.getCompass("test", MetricName.build("metric"));
+    }
+
+    @Test
+    public void testRegisterReplaces() {
+        DefaultMetricManager manager = new DefaultMetricManager();
+        MetricName name = new MetricName("gauge").tag("method", "sayHello");
+        manager.register("test", name, new ConstantGauge(1));
+        manager.register("test", name, new ConstantGauge(2));
+        Map<MetricName, Gauge> gauges = manager.getMetricRegistryByGroup("test").getGauges();
+        Assert.assertEquals(1, gauges.size());
+        Assert.assertEquals(2, gauges.get(name).getValue());
+        Assert.assertEquals(1, manager.listMetricNamesByGroup().get("test").size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRegistryRejectsDuplicate() {
+        DefaultMetricRegistry registry = new DefaultMetricRegistry();
+        registry.register("gauge", new ConstantGauge(1));
+        registry.register("gauge", new ConstantGauge(2));
+    }
+
+    private static class ConstantGauge implements Gauge<Integer> {
+
+        private final int value;
+
+        ConstantGauge(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public Integer getValue() {
+            return value;
+        }
+
+        @Override
+        public long lastUpdateTime() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.qos.command.impl;
+
+import org.apache.dubbo.qos.command.BaseCommand;
+import org.apache.dubbo.qos.command.CommandContext;
+import org.apache.dubbo.qos.command.annotation.Cmd;
+import org.apache.dubbo.qos.textui.TTable;
+import org.apache.dubbo.rpc.protocol.isolation.Bulkheads;
+import org.apache.dubbo.rpc.protocol.isolation.Lane;
+import org.apache.dubbo.rpc.protocol.isolation.MethodBulkhead;
+
+import java.util.List;
+
+@Cmd(name = "bulkhead", summary = "show or assign the executor lanes of provider methods", example = {
+        "bulkhead",
+        "bulkhead xx.xx.xxx.service isolated",
+        "bulkhead xx.xx.xxx.service.method fast",
+        "bulkhead xx.xx.xxx.service auto"
+})
+public class Bulkhead implements BaseCommand {
+
+    private static final String AUTO = "auto";
+
+    @Override
+    public String execute(CommandContext commandContext, String[] args) {
+        List<Bulkheads> all = Bulkheads.getAll();
+        if (args == null || args.length == 0) {
+            return list(all);
+        }
+        if (args.length != 2) {
+            return "Usage: bulkhead [<service>[.<method>] <direct|fast|shared|isolated|auto>]";
+        }
+        Lane lane = null;
+        if (!AUTO.equalsIgnoreCase(args[1])) {
+            lane = Lane.parse(args[1]);
+            if (lane == null) {
+                return "Unknown lane " + args[1] + ", use one of direct, fast, shared, isolated or auto";
+            }
+        }
+        if (all.isEmpty()) {
+            return "No server uses the isolation dispatcher.";
+        }
+        int count = 0;
+        for (Bulkheads bulkheads : all) {
+            count += bulkheads.assign(args[0], lane);
+        }
+        return "OK, " + count + " method(s) reassigned";
+    }
+
+    private String list(List<Bulkheads> all) {
+        TTable tTable = new TTable(new TTable.ColumnDefine[]{
+                new TTable.ColumnDefine(TTable.Align.RIGHT),
+                new TTable.ColumnDefine(TTable.Align.LEFT),
+                new TTable.ColumnDefine(TTable.Align.MIDDLE),
+                new TTable.ColumnDefine(TTable.Align.MIDDLE),
+                new TTable.ColumnDefine(TTable.Align.RIGHT),
+                new TTable.ColumnDefine(TTable.Align.RIGHT)
+        });
+
+        //Header
+        tTable.addRow("PORT", "METHOD", "LANE", "ASSIGNED", "P99(us)", "PENDING");
+
+        //Content
+        for (Bulkheads bulkheads : all) {
+            for (MethodBulkhead bulkhead : bulkheads.getBulkheads()) {
+                tTable.addRow(bulkheads.getUrl().getPort(), bulkhead.getKey(), bulkhead.getLane(),
+                        bulkhead.getAssigned() != null ? "Y" : "N",
+                        bulkhead.getP99Micros() < 0 ? "-" : bulkhead.getP99Micros(),
+                        bulkhead.getPending());
+            }
+        }
+        return tTable.rendering();
+    }
+}
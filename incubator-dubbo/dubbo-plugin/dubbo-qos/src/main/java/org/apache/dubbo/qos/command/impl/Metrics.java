@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.qos.command.impl;
+
+import org.apache.dubbo.metrics.Compass;
+import org.apache.dubbo.metrics.Counter;
+import org.apache.dubbo.metrics.Gauge;
+import org.apache.dubbo.metrics.IMetricManager;
+import org.apache.dubbo.metrics.Metric;
+import org.apache.dubbo.metrics.MetricFilter;
+import org.apache.dubbo.metrics.MetricManager;
+import org.apache.dubbo.metrics.MetricName;
+import org.apache.dubbo.metrics.MetricRegistry;
+import org.apache.dubbo.metrics.Sampling;
+import org.apache.dubbo.metrics.Snapshot;
+import org.apache.dubbo.qos.command.BaseCommand;
+import org.apache.dubbo.qos.command.CommandContext;
+import org.apache.dubbo.qos.command.annotation.Cmd;
+import org.apache.dubbo.qos.textui.TTable;
+
+import java.util.Map;
+
+@Cmd(name = "metrics", summary = "show metrics snapshot", example = {
+        "metrics",
+        "metrics dubbo.provider.rt"
+})
+public class Metrics implements BaseCommand {
+
+    @Override
+    public String execute(CommandContext commandContext, String[] args) {
+        final String prefix = args != null && args.length > 0 ? args[0] : "";
+        MetricFilter filter = new MetricFilter() {
+            @Override
+            public boolean matches(MetricName name, Metric metric) {
+                return name.getKey() != null && name.getKey().startsWith(prefix);
+            }
+        };
+
+        StringBuilder result = new StringBuilder();
+        IMetricManager manager = MetricManager.getIMetricManager();
+        for (String group : manager.listMetricGroups()) {
+            MetricRegistry registry = manager.getMetricRegistryByGroup(group);
+            if (registry != null) {
+                result.append(listMetrics(group, registry, filter));
+            }
+        }
+        if (result.length() == 0) {
+            return "No metrics found.";
+        }
+        return result.toString();
+    }
+
+    private String listMetrics(String group, MetricRegistry registry, MetricFilter filter) {
+        Map<MetricName, Compass> compasses = registry.getCompasses(filter);
+        Map<MetricName, Counter> counters = registry.getCounters(filter);
+        Map<MetricName, Gauge> gauges = registry.getGauges(filter);
+        if (compasses.isEmpty() && counters.isEmpty() && gauges.isEmpty()) {
+            return "";
+        }
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append("Group ").append(group).append(":\n");
+
+        if (!compasses.isEmpty()) {
+            TTable tTable = new TTable(new TTable.ColumnDefine[]{
+                    new TTable.ColumnDefine(TTable.Align.LEFT),
+                    new TTable.ColumnDefine(TTable.Align.RIGHT),
+                    new TTable.ColumnDefine(TTable.Align.RIGHT),
+                    new TTable.ColumnDefine(TTable.Align.RIGHT),
+                    new TTable.ColumnDefine(TTable.Align.RIGHT),
+                    new TTable.ColumnDefine(TTable.Align.RIGHT),
+                    new TTable.ColumnDefine(TTable.Align.RIGHT),
+                    new TTable.ColumnDefine(TTable.Align.LEFT)
+            });
+
+            //Header
+            tTable.addRow("Compass (last minute)", "COUNT", "AVG(ms)", "P50", "P95", "P99", "MAX", "CATEGORIES");
+
+            //Content
+            long startTime = System.currentTimeMillis() - 60 * 1000;
+            for (Map.Entry<MetricName, Compass> entry : compasses.entrySet()) {
+                String categories = getCategoryCounts(entry.getValue(), startTime);
+                if (entry.getValue() instanceof Sampling) {
+                    Snapshot snapshot = ((Sampling) entry.getValue()).getSnapshot();
+                    tTable.addRow(entry.getKey(), snapshot.getCount(), String.format("%.2f", snapshot.getMean()),
+                            snapshot.getMedian(), snapshot.get95thPercentile(), snapshot.get99thPercentile(),
+                            snapshot.getMax(), categories);
+                } else {
+                    tTable.addRow(entry.getKey(), "-", "-", "-", "-", "-", "-", categories);
+                }
+            }
+            stringBuilder.append(tTable.rendering());
+        }
+
+        if (!counters.isEmpty()) {
+            TTable tTable = new TTable(new TTable.ColumnDefine[]{
+                    new TTable.ColumnDefine(TTable.Align.LEFT),
+                    new TTable.ColumnDefine(TTable.Align.RIGHT)
+            });
+            tTable.addRow("Counter", "COUNT");
+            for (Map.Entry<MetricName, Counter> entry : counters.entrySet()) {
+                tTable.addRow(entry.getKey(), entry.getValue().getCount());
+            }
+            stringBuilder.append(tTable.rendering());
+        }
+
+        if (!gauges.isEmpty()) {
+            TTable tTable = new TTable(new TTable.ColumnDefine[]{
+                    new TTable.ColumnDefine(TTable.Align.LEFT),
+                    new TTable.ColumnDefine(TTable.Align.RIGHT)
+            });
+            tTable.addRow("Gauge", "VALUE");
+            for (Map.Entry<MetricName, Gauge> entry : gauges.entrySet()) {
+                tTable.addRow(entry.getKey(), entry.getValue().getValue());
+            }
+            stringBuilder.append(tTable.rendering());
+        }
+
+        return stringBuilder.toString();
+    }
+
+    private String getCategoryCounts(Compass compass, long startTime) {
+        StringBuilder categories = new StringBuilder();
+        for (Map.Entry<String, Map<Long, Long>> entry : compass.getMethodCountPerCategory(startTime).entrySet()) {
+            long count = 0;
+            for (Long bucket : entry.getValue().values()) {
+                count += bucket;
+            }
+            if (categories.length() > 0) {
+                categories.append(", ");
+            }
+            categories.append(entry.getKey()).append('=').append(count);
+        }
+        return categories.toString();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.qos.command.impl;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.qos.command.CommandContext;
+import org.apache.dubbo.rpc.protocol.isolation.Bulkheads;
+import org.apache.dubbo.rpc.protocol.isolation.Lane;
+import org.apache.dubbo.rpc.protocol.isolation.MethodBulkhead;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class BulkheadTest {
+    @Test
+    public void testExecute() throws Exception {
+        Bulkheads bulkheads = Bulkheads.create(URL.valueOf("dubbo://127.0.0.1:20886?dispatcher=isolation"));
+        try {
+            MethodBulkhead sayHello = bulkheads.getBulkhead("org.apache.dubbo.qos.DemoService", "sayHello");
+
+            Bulkhead bulkhead = new Bulkhead();
+            CommandContext context = Mockito.mock(CommandContext.class);
+            String output = bulkhead.execute(context, null);
+            assertThat(output, containsString("20886"));
+            assertThat(output, containsString("org.apache.dubbo.qos.DemoService.sayHello"));
+            assertThat(output, containsString("shared"));
+
+            output = bulkhead.execute(context, new String[]{"org.apache.dubbo.qos.DemoService", "isolated"});
+            assertThat(output, equalTo("OK, 1 method(s) reassigned"));
+            assertThat(sayHello.getLane(), equalTo(Lane.ISOLATED));
+
+            output = bulkhead.execute(context, new String[]{"org.apache.dubbo.qos.DemoService", "auto"});
+            assertThat(output, equalTo("OK, 1 method(s) reassigned"));
+            assertThat(sayHello.getAssigned(), equalTo(null));
+
+            output = bulkhead.execute(context, new String[]{"org.apache.dubbo.qos.DemoService", "slow"});
+            assertThat(output, containsString("Unknown lane slow"));
+
+            output = bulkhead.execute(context, new String[]{"org.apache.dubbo.qos.DemoService"});
+            assertThat(output, containsString("Usage"));
+        } finally {
+            bulkheads.destroy();
+        }
+    }
+}
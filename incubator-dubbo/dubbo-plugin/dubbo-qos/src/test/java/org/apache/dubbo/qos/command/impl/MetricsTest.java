@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.qos.command.impl;
+
+import org.apache.dubbo.metrics.Compass;
+import org.apache.dubbo.metrics.MetricManager;
+import org.apache.dubbo.metrics.MetricName;
+import org.apache.dubbo.qos.command.CommandContext;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class MetricsTest {
+    @Test
+    public void testExecute() throws Exception {
+        Compass compass = MetricManager.getCompass("dubbo", new MetricName("dubbo.provider.rt")
+                .tag("service", "org.apache.dubbo.qos.DemoService", "method", "sayHello"));
+        compass.record(10, "success");
+        compass.record(20, "error");
+        MetricManager.getCounter("dubbo", MetricName.build("dubbo.test.counter")).inc(3);
+
+        Metrics metrics = new Metrics();
+        String output = metrics.execute(Mockito.mock(CommandContext.class), null);
+        assertThat(output, containsString("dubbo.provider.rt"));
+        assertThat(output, containsString("sayHello"));
+        assertThat(output, containsString("success=1"));
+        assertThat(output, containsString("error=1"));
+        assertThat(output, containsString("dubbo.test.counter"));
+
+        output = metrics.execute(Mockito.mock(CommandContext.class), new String[]{"dubbo.provider"});
+        assertThat(output, containsString("dubbo.provider.rt"));
+        assertThat(output, not(containsString("dubbo.test.counter")));
+    }
+}
@@ -34,6 +34,7 @@ import org.apache.dubbo.remoting.buffer.ChannelBufferOutputStream;
 import org.apache.dubbo.remoting.exchange.Request;
 import org.apache.dubbo.remoting.exchange.Response;
 import org.apache.dubbo.remoting.exchange.support.DefaultFuture;
+import org.apache.dubbo.remoting.exchange.support.MultiMessage;
 import org.apache.dubbo.remoting.telnet.codec.TelnetCodec;
 import org.apache.dubbo.remoting.transport.CodecSupport;
 import org.apache.dubbo.remoting.transport.ExceedPayloadLimitException;
@@ -72,6 +73,8 @@ public class ExchangeCodec extends TelnetCodec {
             encodeRequest(channel, buffer, (Request) msg);
         } else if (msg instanceof Response) {
             encodeResponse(channel, buffer, (Response) msg);
+        } else if (msg instanceof MultiMessage) {
+            encodeMultiMessage(channel, buffer, (MultiMessage) msg);
         } else {
             super.encode(channel, buffer, msg);
         }
@@ -250,6 +253,30 @@ public class ExchangeCodec extends TelnetCodec {
         buffer.writerIndex(savedWriteIndex + HEADER_LENGTH + len);
     }
 
+    /**
+     * Batched requests are written back to back and decoded one by one on the other side. A request
+     * which fails to encode, including a serializer throwing a runtime exception or an oversized payload,
+     * is answered locally instead of failing the whole batch.
+     */
+    protected void encodeMultiMessage(Channel channel, ChannelBuffer buffer, MultiMessage msg) throws IOException {
+        for (Object message : msg) {
+            int savedWriteIndex = buffer.writerIndex();
+            try {
+                encode(channel, buffer, message);
+            } catch (IOException | RuntimeException e) {
+                if (!(message instanceof Request) || !((Request) message).isTwoWay()) {
+                    throw e;
+                }
+                buffer.writerIndex(savedWriteIndex);
+                Request req = (Request) message;
+                Response res = new Response(req.getId(), req.getVersion());
+                res.setStatus(Response.CLIENT_ERROR);
+                res.setErrorMessage(StringUtils.toString(e));
+                DefaultFuture.received(channel, res);
+            }
+        }
+    }
+
     protected void encodeResponse(Channel channel, ChannelBuffer buffer, Response res) throws IOException {
         int savedWriteIndex = buffer.writerIndex();
         try {
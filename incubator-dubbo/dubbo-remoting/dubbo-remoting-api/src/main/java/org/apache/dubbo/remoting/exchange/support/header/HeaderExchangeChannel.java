@@ -44,6 +44,8 @@ final class HeaderExchangeChannel implements ExchangeChannel {
 
     private final Channel channel;
 
+    private final RequestBatcher batcher;
+
     private volatile boolean closed = false;
 
     HeaderExchangeChannel(Channel channel) {
@@ -51,6 +53,7 @@ final class HeaderExchangeChannel implements ExchangeChannel {
             throw new IllegalArgumentException("channel == null");
         }
         this.channel = channel;
+        this.batcher = RequestBatcher.isEnabled(channel) ? new RequestBatcher(channel) : null;
     }
 
     static HeaderExchangeChannel getOrAddChannel(Channel ch) {
@@ -112,6 +115,10 @@ final class HeaderExchangeChannel implements ExchangeChannel {
         req.setTwoWay(true);
         req.setData(request);
         DefaultFuture future = DefaultFuture.newFuture(channel, req, timeout);
+        if (batcher != null) {
+            batcher.send(req);
+            return future;
+        }
         try {
             channel.send(req);
         } catch (RemotingException e) {
@@ -142,6 +149,9 @@ final class HeaderExchangeChannel implements ExchangeChannel {
             return;
         }
         closed = true;
+        if (batcher != null) {
+            batcher.flush();
+        }
         if (timeout > 0) {
             long start = System.currentTimeMillis();
             while (DefaultFuture.hasFuture(channel)
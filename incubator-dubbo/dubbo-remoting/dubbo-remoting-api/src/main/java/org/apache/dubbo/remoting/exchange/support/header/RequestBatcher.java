@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.exchange.support.header;
+
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.logger.Logger;
+import org.apache.dubbo.common.logger.LoggerFactory;
+import org.apache.dubbo.common.utils.NamedThreadFactory;
+import org.apache.dubbo.remoting.Channel;
+import org.apache.dubbo.remoting.exchange.Request;
+import org.apache.dubbo.remoting.exchange.Response;
+import org.apache.dubbo.remoting.exchange.support.DefaultFuture;
+import org.apache.dubbo.remoting.exchange.support.MultiMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Packs the requests issued on a channel within <code>batch.window</code> microseconds into one
+ * {@link MultiMessage}, so they are encoded into a single write of at most <code>batch.size</code> frames.
+ * The provider decodes them back into a {@link MultiMessage} and dispatches every request on its own.
+ * <p>
+ * Every request keeps its own {@link DefaultFuture}, created before the request is queued, so the time
+ * spent in the window counts toward the request timeout.
+ */
+final class RequestBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestBatcher.class);
+
+    private static final ScheduledExecutorService FLUSH_EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("DubboRequestBatcher", true));
+
+    private final Queue<Request> queue = new ConcurrentLinkedQueue<Request>();
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final Channel channel;
+
+    private final long window;
+
+    private final int maxSize;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            // cleared first, a request queued during the flush either goes out with it or schedules the next one
+            scheduled.set(false);
+            flush();
+        }
+    };
+
+    RequestBatcher(Channel channel) {
+        URL url = channel.getUrl();
+        this.channel = channel;
+        this.window = url.getPositiveParameter(Constants.BATCH_WINDOW_KEY, Constants.DEFAULT_BATCH_WINDOW);
+        this.maxSize = url.getPositiveParameter(Constants.BATCH_SIZE_KEY, Constants.DEFAULT_BATCH_SIZE);
+    }
+
+    static boolean isEnabled(Channel channel) {
+        URL url = channel.getUrl();
+        return url != null && url.getParameter(Constants.BATCH_KEY, false);
+    }
+
+    void send(Request request) {
+        queue.offer(request);
+        if (scheduled.compareAndSet(false, true)) {
+            FLUSH_EXECUTOR.schedule(flushTask, window, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    void flush() {
+        List<Request> batch = new ArrayList<Request>(maxSize);
+        Request request;
+        while ((request = queue.poll()) != null) {
+            batch.add(request);
+            if (batch.size() == maxSize) {
+                write(batch);
+                batch = new ArrayList<Request>(maxSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private void write(List<Request> batch) {
+        try {
+            channel.send(batch.size() == 1 ? batch.get(0) : MultiMessage.createFromCollection(batch));
+        } catch (Throwable t) {
+            logger.warn("Failed to send " + batch.size() + " batched requests to " + channel.getRemoteAddress()
+                    + ", cause: " + t.getMessage(), t);
+            for (Request request : batch) {
+                Response response = new Response(request.getId(), request.getVersion());
+                response.setStatus(Response.CLIENT_ERROR);
+                response.setErrorMessage("Failed to send request to " + channel.getRemoteAddress()
+                        + ", cause: " + t.getMessage());
+                DefaultFuture.received(channel, response);
+            }
+        }
+    }
+
+}
@@ -43,4 +43,17 @@ public class MultiMessageHandler extends AbstractChannelHandlerDelegate {
             handler.received(channel, message);
         }
     }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void sent(Channel channel, Object message) throws RemotingException {
+        if (message instanceof MultiMessage) {
+            MultiMessage list = (MultiMessage) message;
+            for (Object obj : list) {
+                handler.sent(channel, obj);
+            }
+        } else {
+            handler.sent(channel, message);
+        }
+    }
 }
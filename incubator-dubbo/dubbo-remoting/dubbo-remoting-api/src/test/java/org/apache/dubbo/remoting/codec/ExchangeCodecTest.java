@@ -25,11 +25,14 @@ import org.apache.dubbo.common.io.UnsafeByteArrayOutputStream;
 import org.apache.dubbo.common.serialize.ObjectOutput;
 import org.apache.dubbo.common.serialize.Serialization;
 import org.apache.dubbo.remoting.Channel;
+import org.apache.dubbo.remoting.RemotingException;
 import org.apache.dubbo.remoting.buffer.ChannelBuffer;
 import org.apache.dubbo.remoting.buffer.ChannelBuffers;
 import org.apache.dubbo.remoting.exchange.Request;
 import org.apache.dubbo.remoting.exchange.Response;
 import org.apache.dubbo.remoting.exchange.codec.ExchangeCodec;
+import org.apache.dubbo.remoting.exchange.support.DefaultFuture;
+import org.apache.dubbo.remoting.exchange.support.MultiMessage;
 import org.apache.dubbo.remoting.telnet.codec.TelnetCodec;
 
 import org.junit.Assert;
@@ -326,6 +329,66 @@ public class ExchangeCodecTest extends TelnetCodecTest {
         Assert.assertEquals(person, obj.getData());
     }
 
+    @Test
+    public void test_Encode_MultiMessage() throws IOException {
+        ChannelBuffer encodeBuffer = ChannelBuffers.dynamicBuffer(2014);
+        Channel channel = getCliendSideChannel(url);
+        Request first = new Request();
+        first.setData(new Person());
+        Request second = new Request();
+        second.setData("second");
+
+        codec.encode(channel, encodeBuffer, MultiMessage.createFromArray(first, second));
+
+        byte[] data = new byte[encodeBuffer.writerIndex()];
+        encodeBuffer.readBytes(data);
+        ChannelBuffer decodeBuffer = ChannelBuffers.wrappedBuffer(data);
+        Request obj = (Request) codec.decode(channel, decodeBuffer);
+        Assert.assertEquals(first.getId(), obj.getId());
+        Assert.assertEquals(new Person(), obj.getData());
+        obj = (Request) codec.decode(channel, decodeBuffer);
+        Assert.assertEquals(second.getId(), obj.getId());
+        Assert.assertEquals("second", obj.getData());
+        Assert.assertFalse(decodeBuffer.readable());
+    }
+
+    @Test
+    public void test_Encode_MultiMessage_RuntimeException() throws IOException {
+        ExchangeCodec failingCodec = new ExchangeCodec() {
+            @Override
+            protected void encodeRequestData(Channel channel, ObjectOutput out, Object data, String version) throws IOException {
+                if ("fail".equals(data)) {
+                    throw new IllegalStateException("cannot serialize");
+                }
+                super.encodeRequestData(channel, out, data, version);
+            }
+        };
+        ChannelBuffer encodeBuffer = ChannelBuffers.dynamicBuffer(1024);
+        Channel channel = getCliendSideChannel(url);
+        Request first = new Request();
+        first.setData("fail");
+        Request second = new Request();
+        second.setData("second");
+        DefaultFuture future = DefaultFuture.newFuture(channel, first, 1000);
+
+        failingCodec.encode(channel, encodeBuffer, MultiMessage.createFromArray(first, second));
+
+        // only the failed request is answered, the rest of the batch is still written
+        Assert.assertTrue(future.isDone());
+        try {
+            future.get();
+            fail();
+        } catch (RemotingException e) {
+            Assert.assertTrue(e.getMessage().contains("cannot serialize"));
+        }
+        byte[] data = new byte[encodeBuffer.writerIndex()];
+        encodeBuffer.readBytes(data);
+        ChannelBuffer decodeBuffer = ChannelBuffers.wrappedBuffer(data);
+        Request obj = (Request) codec.decode(channel, decodeBuffer);
+        Assert.assertEquals(second.getId(), obj.getId());
+        Assert.assertFalse(decodeBuffer.readable());
+    }
+
     @Test
     public void test_Encode_Response() throws IOException {
         ChannelBuffer encodeBuffer = ChannelBuffers.dynamicBuffer(1024);
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.exchange.support.header;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.remoting.RemotingException;
+import org.apache.dubbo.remoting.exchange.Request;
+import org.apache.dubbo.remoting.exchange.ResponseFuture;
+import org.apache.dubbo.remoting.exchange.support.MultiMessage;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class RequestBatcherTest {
+
+    private MockChannel newChannel(String parameters) {
+        final URL url = URL.valueOf("dubbo://localhost:20880?" + parameters);
+        return new MockChannel() {
+            @Override
+            public URL getUrl() {
+                return url;
+            }
+        };
+    }
+
+    @Test
+    public void testDisabledByDefault() throws RemotingException {
+        MockChannel channel = newChannel("timeout=1000");
+        new HeaderExchangeChannel(channel).request("hello");
+        Assert.assertEquals(1, channel.getSentObjects().size());
+        Assert.assertTrue(channel.getSentObjects().get(0) instanceof Request);
+    }
+
+    @Test
+    public void testRequestsWithinWindowAreSentTogether() throws Exception {
+        MockChannel channel = newChannel("batch=true&batch.window=50000");
+        HeaderExchangeChannel exchangeChannel = new HeaderExchangeChannel(channel);
+        ResponseFuture first = exchangeChannel.request("a");
+        ResponseFuture second = exchangeChannel.request("b");
+        ResponseFuture third = exchangeChannel.request("c");
+        Assert.assertTrue(channel.getSentObjects().isEmpty());
+        Assert.assertFalse(first.isDone() || second.isDone() || third.isDone());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (channel.getSentObjects().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        List<Object> sent = channel.getSentObjects();
+        Assert.assertEquals(1, sent.size());
+        MultiMessage batch = (MultiMessage) sent.get(0);
+        Assert.assertEquals(3, batch.size());
+        Assert.assertEquals("a", ((Request) batch.get(0)).getData());
+        Assert.assertEquals("c", ((Request) batch.get(2)).getData());
+    }
+
+    @Test
+    public void testBatchSizeLimit() {
+        MockChannel channel = newChannel("batch=true&batch.window=10000000&batch.size=2");
+        RequestBatcher batcher = new RequestBatcher(channel);
+        for (int i = 0; i < 5; i++) {
+            Request request = new Request();
+            request.setTwoWay(true);
+            request.setData(i);
+            batcher.send(request);
+        }
+        batcher.flush();
+        List<Object> sent = channel.getSentObjects();
+        Assert.assertEquals(3, sent.size());
+        Assert.assertEquals(2, ((MultiMessage) sent.get(0)).size());
+        Assert.assertEquals(2, ((MultiMessage) sent.get(1)).size());
+        Assert.assertEquals(4, ((Request) sent.get(2)).getData());
+    }
+
+    @Test
+    public void testFailedSendCompletesFutures() throws Exception {
+        final URL url = URL.valueOf("dubbo://localhost:20880?batch=true&batch.window=10000000");
+        MockChannel channel = new MockChannel() {
+            @Override
+            public URL getUrl() {
+                return url;
+            }
+
+            @Override
+            public void send(Object message) throws RemotingException {
+                throw new RemotingException(this, "broken");
+            }
+        };
+        HeaderExchangeChannel exchangeChannel = new HeaderExchangeChannel(channel);
+        ResponseFuture future = exchangeChannel.request("a");
+        exchangeChannel.close(1);
+        Assert.assertTrue(future.isDone());
+        try {
+            future.get();
+            Assert.fail();
+        } catch (RemotingException e) {
+            Assert.assertTrue(e.getMessage().contains("broken"));
+        }
+    }
+
+}
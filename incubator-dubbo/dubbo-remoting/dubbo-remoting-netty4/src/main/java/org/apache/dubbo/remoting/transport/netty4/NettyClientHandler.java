@@ -25,6 +25,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import org.apache.dubbo.remoting.exchange.Request;
 import org.apache.dubbo.remoting.exchange.Response;
+import org.apache.dubbo.remoting.exchange.support.MultiMessage;
 
 /**
  * NettyClientHandler
@@ -87,12 +88,16 @@ public class NettyClientHandler extends ChannelDuplexHandler {
             // if error happens from write, mock a BAD_REQUEST response so that invoker can return immediately without
             // waiting until timeout. FIXME: not sure if this is the right approach, but exceptionCaught doesn't work
             // as expected.
-            if (promise.cause() != null && msg instanceof Request) {
-                Request request = (Request) msg;
-                Response response = new Response(request.getId(), request.getVersion());
-                response.setStatus(Response.BAD_REQUEST);
-                response.setErrorMessage(StringUtils.toString(promise.cause()));
-                handler.received(channel, response);
+            Throwable cause = promise.cause();
+            if (cause != null && msg instanceof Request) {
+                handler.received(channel, badRequest((Request) msg, cause));
+            } else if (cause != null && msg instanceof MultiMessage) {
+                // a batch is written at once, so every request of it failed
+                for (Object message : (MultiMessage) msg) {
+                    if (message instanceof Request) {
+                        handler.received(channel, badRequest((Request) message, cause));
+                    }
+                }
             } else {
                 handler.sent(channel, msg);
             }
@@ -111,4 +116,11 @@ public class NettyClientHandler extends ChannelDuplexHandler {
             NettyChannel.removeChannelIfDisconnected(ctx.channel());
         }
     }
-}
\ No newline at end of file
+
+    private static Response badRequest(Request request, Throwable cause) {
+        Response response = new Response(request.getId(), request.getVersion());
+        response.setStatus(Response.BAD_REQUEST);
+        response.setErrorMessage(StringUtils.toString(cause));
+        return response;
+    }
+}
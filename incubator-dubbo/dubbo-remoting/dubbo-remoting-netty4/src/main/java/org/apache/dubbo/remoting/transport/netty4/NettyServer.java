@@ -73,7 +73,11 @@ public class NettyServer extends AbstractServer implements Server {
         workerGroup = new NioEventLoopGroup(getUrl().getPositiveParameter(Constants.IO_THREADS_KEY, Constants.DEFAULT_IO_THREADS),
                 new DefaultThreadFactory("NettyServerWorker", true));
 
-        final NettyServerHandler nettyServerHandler = new NettyServerHandler(getUrl(), this);
+        NettyServerBackpressure backpressure = null;
+        if (getUrl().getParameter(Constants.BACKPRESSURE_KEY, false)) {
+            backpressure = new NettyServerBackpressure(getUrl());
+        }
+        final NettyServerHandler nettyServerHandler = new NettyServerHandler(getUrl(), this, backpressure);
         channels = nettyServerHandler.getChannels();
 
         bootstrap.group(bossGroup, workerGroup)
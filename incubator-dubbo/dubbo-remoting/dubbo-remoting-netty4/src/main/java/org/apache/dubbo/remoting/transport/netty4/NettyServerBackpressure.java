@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.transport.netty4;
+
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.extension.ExtensionLoader;
+import org.apache.dubbo.common.logger.Logger;
+import org.apache.dubbo.common.logger.LoggerFactory;
+import org.apache.dubbo.common.store.DataStore;
+import org.apache.dubbo.metrics.Counter;
+import org.apache.dubbo.metrics.Gauge;
+import org.apache.dubbo.metrics.MetricManager;
+import org.apache.dubbo.metrics.MetricName;
+import org.apache.dubbo.remoting.exchange.Request;
+import org.apache.dubbo.remoting.exchange.Response;
+import org.apache.dubbo.remoting.exchange.support.MultiMessage;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server side backpressure, enabled by <code>backpressure=true</code> on the protocol.
+ * <p>
+ * Counts the requests which were read but not answered yet. Once they reach the high watermark
+ * (<code>backpressure.high</code>, by default 90% of the server threads plus queue) the server stops
+ * reading from every channel, so requests wait in the clients' socket buffers instead of being decoded
+ * only to be rejected by the thread pool. Reading resumes at the low watermark (<code>backpressure.low</code>,
+ * by default half the high one). A channel whose outbound buffer is over the netty write watermark is not
+ * read from either, until it drains its responses.
+ */
+public class NettyServerBackpressure {
+
+    private static final Logger logger = LoggerFactory.getLogger(NettyServerBackpressure.class);
+
+    private static final AttributeKey<AtomicInteger> OUTSTANDING = AttributeKey.valueOf("dubbo.backpressure.outstanding");
+
+    private static final String METRIC_GROUP = "dubbo";
+
+    private final Set<Channel> channels = Collections.newSetFromMap(new ConcurrentHashMap<Channel, Boolean>());
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private final int highWatermark;
+
+    private final int lowWatermark;
+
+    private final Counter suspendCounter;
+
+    private final Counter unwritableCounter;
+
+    private volatile boolean suspended;
+
+    public NettyServerBackpressure(URL url) {
+        this(url, getCapacity(url));
+    }
+
+    public NettyServerBackpressure(URL url, int capacity) {
+        int high = url.getParameter(Constants.BACKPRESSURE_HIGH_WATERMARK_KEY, Math.max(1, capacity * 9 / 10));
+        int low = url.getParameter(Constants.BACKPRESSURE_LOW_WATERMARK_KEY, high / 2);
+        if (high <= 0 || low < 0 || low >= high) {
+            throw new IllegalArgumentException("Invalid backpressure watermarks, high: " + high + ", low: " + low);
+        }
+        this.highWatermark = high;
+        this.lowWatermark = low;
+        MetricName name = new MetricName("dubbo.server.backpressure").tag("port", String.valueOf(url.getPort()));
+        this.suspendCounter = MetricManager.getCounter(METRIC_GROUP, name.resolve("suspend"));
+        this.unwritableCounter = MetricManager.getCounter(METRIC_GROUP, name.resolve("unwritable"));
+        MetricManager.register(METRIC_GROUP, name.resolve("outstanding"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getOutstanding();
+            }
+
+            @Override
+            public long lastUpdateTime() {
+                return System.currentTimeMillis();
+            }
+        });
+        MetricManager.register(METRIC_GROUP, name.resolve("suspended"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return isSuspended() ? 1 : 0;
+            }
+
+            @Override
+            public long lastUpdateTime() {
+                return System.currentTimeMillis();
+            }
+        });
+    }
+
+    /**
+     * @return the threads plus queue capacity of the server thread pool, or the default thread count
+     * if the pool is unbounded or requests are not dispatched to a pool
+     */
+    private static int getCapacity(URL url) {
+        DataStore dataStore = ExtensionLoader.getExtensionLoader(DataStore.class).getDefaultExtension();
+        Object executor = dataStore.get(Constants.EXECUTOR_SERVICE_COMPONENT_KEY, Integer.toString(url.getPort()));
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            long capacity = (long) pool.getMaximumPoolSize() + pool.getQueue().remainingCapacity() + pool.getQueue().size();
+            if (capacity < Integer.MAX_VALUE) {
+                return (int) capacity;
+            }
+        }
+        return url.getParameter(Constants.THREADS_KEY, Constants.DEFAULT_THREADS);
+    }
+
+    public void connected(Channel channel) {
+        channel.attr(OUTSTANDING).set(new AtomicInteger());
+        channels.add(channel);
+        updateAutoRead(channel);
+    }
+
+    public void disconnected(Channel channel) {
+        channels.remove(channel);
+        AtomicInteger count = channel.attr(OUTSTANDING).get();
+        if (count != null) {
+            // the responses of these requests will never be written
+            release(count.getAndSet(0));
+        }
+    }
+
+    public void received(Channel channel, Object message) {
+        int requests = countRequests(message);
+        AtomicInteger count = channel.attr(OUTSTANDING).get();
+        if (requests == 0 || count == null) {
+            return;
+        }
+        count.addAndGet(requests);
+        if (outstanding.addAndGet(requests) >= highWatermark && !suspended) {
+            suspend();
+        }
+    }
+
+    public void sent(Channel channel, Object message) {
+        if (!(message instanceof Response) || ((Response) message).isEvent()) {
+            return;
+        }
+        AtomicInteger count = channel.attr(OUTSTANDING).get();
+        if (count == null) {
+            return;
+        }
+        for (; ; ) {
+            int current = count.get();
+            if (current <= 0) {
+                // already released when the channel was disconnected
+                return;
+            }
+            if (count.compareAndSet(current, current - 1)) {
+                break;
+            }
+        }
+        release(1);
+    }
+
+    public void writabilityChanged(Channel channel) {
+        if (!channel.isWritable()) {
+            unwritableCounter.inc();
+        }
+        updateAutoRead(channel);
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    public int getHighWatermark() {
+        return highWatermark;
+    }
+
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+
+    private void release(int requests) {
+        if (requests > 0 && outstanding.addAndGet(-requests) <= lowWatermark && suspended) {
+            resume();
+        }
+    }
+
+    private synchronized void suspend() {
+        if (suspended || outstanding.get() < highWatermark) {
+            return;
+        }
+        suspended = true;
+        suspendCounter.inc();
+        logger.warn("Stop reading from " + channels.size() + " channels, " + outstanding.get()
+                + " requests are waiting for the server thread pool, high watermark: " + highWatermark);
+        for (Channel channel : channels) {
+            updateAutoRead(channel);
+        }
+    }
+
+    private synchronized void resume() {
+        if (!suspended || outstanding.get() > lowWatermark) {
+            return;
+        }
+        suspended = false;
+        if (logger.isInfoEnabled()) {
+            logger.info("Resume reading from " + channels.size() + " channels, low watermark: " + lowWatermark);
+        }
+        for (Channel channel : channels) {
+            updateAutoRead(channel);
+        }
+    }
+
+    private void updateAutoRead(Channel channel) {
+        boolean autoRead = !suspended && channel.isWritable();
+        if (channel.config().isAutoRead() != autoRead) {
+            channel.config().setAutoRead(autoRead);
+        }
+    }
+
+    private static int countRequests(Object message) {
+        if (message instanceof MultiMessage) {
+            int requests = 0;
+            for (Object m : (MultiMessage) message) {
+                requests += countRequests(m);
+            }
+            return requests;
+        }
+        if (message instanceof Request) {
+            Request request = (Request) message;
+            return request.isTwoWay() && !request.isEvent() ? 1 : 0;
+        }
+        return 0;
+    }
+
+}
@@ -41,7 +41,13 @@ public class NettyServerHandler extends ChannelDuplexHandler {
 
     private final ChannelHandler handler;
 
+    private final NettyServerBackpressure backpressure;
+
     public NettyServerHandler(URL url, ChannelHandler handler) {
+        this(url, handler, null);
+    }
+
+    public NettyServerHandler(URL url, ChannelHandler handler, NettyServerBackpressure backpressure) {
         if (url == null) {
             throw new IllegalArgumentException("url == null");
         }
@@ -50,6 +56,7 @@ public class NettyServerHandler extends ChannelDuplexHandler {
         }
         this.url = url;
         this.handler = handler;
+        this.backpressure = backpressure;
     }
 
     public Map<String, Channel> getChannels() {
@@ -58,6 +65,9 @@ public class NettyServerHandler extends ChannelDuplexHandler {
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        if (backpressure != null) {
+            backpressure.connected(ctx.channel());
+        }
         NettyChannel channel = NettyChannel.getOrAddChannel(ctx.channel(), url, handler);
         try {
             if (channel != null) {
@@ -71,6 +81,9 @@ public class NettyServerHandler extends ChannelDuplexHandler {
 
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (backpressure != null) {
+            backpressure.disconnected(ctx.channel());
+        }
         NettyChannel channel = NettyChannel.getOrAddChannel(ctx.channel(), url, handler);
         try {
             channels.remove(NetUtils.toAddressString((InetSocketAddress) ctx.channel().remoteAddress()));
@@ -82,6 +95,10 @@ public class NettyServerHandler extends ChannelDuplexHandler {
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (backpressure != null) {
+            // counted before dispatching, the response may be written before handler.received returns
+            backpressure.received(ctx.channel(), msg);
+        }
         NettyChannel channel = NettyChannel.getOrAddChannel(ctx.channel(), url, handler);
         try {
             handler.received(channel, msg);
@@ -94,6 +111,9 @@ public class NettyServerHandler extends ChannelDuplexHandler {
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
         super.write(ctx, msg, promise);
+        if (backpressure != null) {
+            backpressure.sent(ctx.channel(), msg);
+        }
         NettyChannel channel = NettyChannel.getOrAddChannel(ctx.channel(), url, handler);
         try {
             handler.sent(channel, msg);
@@ -102,6 +122,14 @@ public class NettyServerHandler extends ChannelDuplexHandler {
         }
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (backpressure != null) {
+            backpressure.writabilityChanged(ctx.channel());
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
             throws Exception {
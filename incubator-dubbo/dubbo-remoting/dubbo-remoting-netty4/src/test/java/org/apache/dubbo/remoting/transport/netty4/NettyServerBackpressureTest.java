@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.transport.netty4;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.remoting.exchange.Request;
+import org.apache.dubbo.remoting.exchange.Response;
+import org.apache.dubbo.remoting.exchange.support.MultiMessage;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NettyServerBackpressureTest {
+
+    private NettyServerBackpressure backpressure;
+
+    private EmbeddedChannel channel1;
+
+    private EmbeddedChannel channel2;
+
+    @Before
+    public void setUp() {
+        backpressure = new NettyServerBackpressure(
+                URL.valueOf("dubbo://127.0.0.1:20880?backpressure=true&backpressure.high=4&backpressure.low=1"), 10);
+        channel1 = new EmbeddedChannel();
+        channel2 = new EmbeddedChannel();
+        backpressure.connected(channel1);
+        backpressure.connected(channel2);
+    }
+
+    @Test
+    public void testDefaultWatermarks() {
+        NettyServerBackpressure defaults = new NettyServerBackpressure(URL.valueOf("dubbo://127.0.0.1:20881"), 200);
+        Assert.assertEquals(180, defaults.getHighWatermark());
+        Assert.assertEquals(90, defaults.getLowWatermark());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWatermarks() {
+        new NettyServerBackpressure(URL.valueOf("dubbo://127.0.0.1:20882?backpressure.high=4&backpressure.low=4"), 10);
+    }
+
+    @Test
+    public void testSuspendAndResume() {
+        backpressure.received(channel1, request(true));
+        backpressure.received(channel2, request(true));
+        backpressure.received(channel1, request(false));
+        backpressure.received(channel1, heartbeat());
+        Assert.assertEquals(2, backpressure.getOutstanding());
+        Assert.assertFalse(backpressure.isSuspended());
+
+        MultiMessage multiMessage = MultiMessage.create();
+        multiMessage.addMessage(request(true));
+        multiMessage.addMessage(request(true));
+        backpressure.received(channel2, multiMessage);
+        Assert.assertEquals(4, backpressure.getOutstanding());
+        Assert.assertTrue(backpressure.isSuspended());
+        Assert.assertFalse(channel1.config().isAutoRead());
+        Assert.assertFalse(channel2.config().isAutoRead());
+
+        backpressure.sent(channel2, response());
+        backpressure.sent(channel2, response());
+        Assert.assertEquals(2, backpressure.getOutstanding());
+        Assert.assertTrue(backpressure.isSuspended());
+
+        backpressure.sent(channel1, response());
+        Assert.assertEquals(1, backpressure.getOutstanding());
+        Assert.assertFalse(backpressure.isSuspended());
+        Assert.assertTrue(channel1.config().isAutoRead());
+        Assert.assertTrue(channel2.config().isAutoRead());
+    }
+
+    @Test
+    public void testDisconnectReleasesOutstanding() {
+        for (int i = 0; i < 4; i++) {
+            backpressure.received(channel1, request(true));
+        }
+        Assert.assertTrue(backpressure.isSuspended());
+        EmbeddedChannel channel3 = new EmbeddedChannel();
+        backpressure.connected(channel3);
+        Assert.assertFalse(channel3.config().isAutoRead());
+
+        backpressure.disconnected(channel1);
+        Assert.assertEquals(0, backpressure.getOutstanding());
+        Assert.assertFalse(backpressure.isSuspended());
+        Assert.assertTrue(channel3.config().isAutoRead());
+        // late responses of the closed channel are not released twice
+        backpressure.sent(channel1, response());
+        Assert.assertEquals(0, backpressure.getOutstanding());
+    }
+
+    private static Request request(boolean twoWay) {
+        Request request = new Request();
+        request.setTwoWay(twoWay);
+        request.setData("data");
+        return request;
+    }
+
+    private static Request heartbeat() {
+        Request request = new Request();
+        request.setTwoWay(true);
+        request.setEvent(Request.HEARTBEAT_EVENT);
+        return request;
+    }
+
+    private static Response response() {
+        Response response = new Response(1);
+        response.setResult("result");
+        return response;
+    }
+
+}
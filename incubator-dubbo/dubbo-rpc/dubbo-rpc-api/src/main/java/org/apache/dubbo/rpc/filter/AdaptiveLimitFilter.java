@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.filter;
+
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.extension.Activate;
+import org.apache.dubbo.rpc.AsyncRpcResult;
+import org.apache.dubbo.rpc.Filter;
+import org.apache.dubbo.rpc.Invocation;
+import org.apache.dubbo.rpc.Invoker;
+import org.apache.dubbo.rpc.Result;
+import org.apache.dubbo.rpc.RpcException;
+import org.apache.dubbo.rpc.filter.limit.GradientLimiter;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * Limit concurrent invocations of a method to a value adapted from the measured RTT,
+ * enabled by <code>adaptivelimit=true</code> on either the provider or the consumer side. The RTT of an
+ * asynchronous invocation is measured when its result completes.
+ *
+ * @see GradientLimiter
+ */
+@Activate(group = {Constants.PROVIDER, Constants.CONSUMER}, value = Constants.ADAPTIVE_LIMIT_KEY)
+public class AdaptiveLimitFilter implements Filter {
+
+    @Override
+    public Result invoke(Invoker<?> invoker, Invocation invocation) throws RpcException {
+        URL url = invoker.getUrl();
+        String methodName = invocation.getMethodName();
+        if (!url.getMethodParameter(methodName, Constants.ADAPTIVE_LIMIT_KEY, false)) {
+            return invoker.invoke(invocation);
+        }
+        GradientLimiter limiter = GradientLimiter.getLimiter(url, methodName);
+        if (!limiter.tryAcquire()) {
+            throw new RpcException(RpcException.LIMIT_EXCEEDED_EXCEPTION,
+                    "Failed to invoke method " + methodName + " of service " + invoker.getInterface().getName()
+                            + " on " + url.getAddress() + ", cause: adaptive concurrency limit " + limiter.getLimit()
+                            + " exceeded.");
+        }
+        final long begin = System.nanoTime();
+        Result result;
+        try {
+            result = invoker.invoke(invocation);
+        } catch (RpcException e) {
+            limiter.release(System.nanoTime() - begin, e.isTimeout());
+            throw e;
+        } catch (RuntimeException | Error e) {
+            limiter.release(System.nanoTime() - begin, false);
+            throw e;
+        }
+        if (result instanceof AsyncRpcResult) {
+            // still running, the rtt is known once the result completes
+            ((AsyncRpcResult) result).getResultFuture().whenComplete((r, t) ->
+                    limiter.release(System.nanoTime() - begin, isTimeout(t != null ? t : r.getException())));
+        } else {
+            limiter.release(System.nanoTime() - begin, isTimeout(result.getException()));
+        }
+        return result;
+    }
+
+    private static boolean isTimeout(Throwable t) {
+        if (t instanceof CompletionException) {
+            t = t.getCause();
+        }
+        return t instanceof RpcException && ((RpcException) t).isTimeout();
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.filter;
+
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.extension.Activate;
+import org.apache.dubbo.metrics.Compass;
+import org.apache.dubbo.metrics.MetricManager;
+import org.apache.dubbo.metrics.MetricName;
+import org.apache.dubbo.rpc.Filter;
+import org.apache.dubbo.rpc.Invocation;
+import org.apache.dubbo.rpc.Invoker;
+import org.apache.dubbo.rpc.Result;
+import org.apache.dubbo.rpc.RpcException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Record the response time of every invocation into a {@link Compass} per service and method,
+ * enabled by <code>metrics=true</code> on either the provider or the consumer side.
+ * <p>
+ * The compasses are named <code>dubbo.provider.rt</code> or <code>dubbo.consumer.rt</code> in the
+ * <code>dubbo</code> group, tagged with the service key and the method, and the invocations are split into the
+ * <code>success</code>, <code>error</code> and <code>timeout</code> categories. Nothing is reported unless a
+ * metrics implementation such as <code>dubbo-metrics-default</code> is on the classpath.
+ */
+@Activate(group = {Constants.PROVIDER, Constants.CONSUMER}, value = Constants.METRICS_KEY)
+public class MetricsFilter implements Filter {
+
+    public static final String METRIC_GROUP = "dubbo";
+
+    public static final String SUCCESS = "success";
+
+    public static final String ERROR = "error";
+
+    public static final String TIMEOUT = "timeout";
+
+    // compasses by method of each invoker, the invokers of a service on one side share the same map
+    private static final ConcurrentMap<Invoker<?>, ConcurrentMap<String, Compass>> INVOKER_COMPASSES =
+            new ConcurrentHashMap<Invoker<?>, ConcurrentMap<String, Compass>>();
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Compass>> serviceCompasses =
+            new ConcurrentHashMap<String, ConcurrentMap<String, Compass>>();
+
+    @Override
+    public Result invoke(Invoker<?> invoker, Invocation invocation) throws RpcException {
+        URL url = invoker.getUrl();
+        String methodName = invocation.getMethodName();
+        if (!url.getMethodParameter(methodName, Constants.METRICS_KEY, false)) {
+            return invoker.invoke(invocation);
+        }
+        long begin = System.nanoTime();
+        String category = ERROR;
+        try {
+            Result result = invoker.invoke(invocation);
+            if (!result.hasException()) {
+                category = SUCCESS;
+            }
+            return result;
+        } catch (RpcException e) {
+            if (e.isTimeout()) {
+                category = TIMEOUT;
+            }
+            throw e;
+        } finally {
+            getCompass(invoker, methodName).record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin), category);
+        }
+    }
+
+    private Compass getCompass(Invoker<?> invoker, String methodName) {
+        ConcurrentMap<String, Compass> methods = INVOKER_COMPASSES.get(invoker);
+        if (methods == null) {
+            methods = getServiceCompasses(invoker.getUrl());
+            INVOKER_COMPASSES.putIfAbsent(invoker, methods);
+        }
+        Compass compass = methods.get(methodName);
+        if (compass == null) {
+            URL url = invoker.getUrl();
+            MetricName name = new MetricName("dubbo." + getSide(url) + ".rt")
+                    .tag("service", url.getServiceKey(), "method", methodName);
+            methods.putIfAbsent(methodName, MetricManager.getCompass(METRIC_GROUP, name));
+            compass = methods.get(methodName);
+        }
+        return compass;
+    }
+
+    private ConcurrentMap<String, Compass> getServiceCompasses(URL url) {
+        String key = getSide(url) + ":" + url.getServiceKey();
+        ConcurrentMap<String, Compass> methods = serviceCompasses.get(key);
+        if (methods == null) {
+            serviceCompasses.putIfAbsent(key, new ConcurrentHashMap<String, Compass>());
+            methods = serviceCompasses.get(key);
+        }
+        return methods;
+    }
+
+    /**
+     * Forget the invokers of an unexported service or a destroyed reference, consumers get new ones whenever the
+     * providers change.
+     *
+     * @param url url of the invoker
+     */
+    public static void removeInvokers(URL url) {
+        for (Invoker<?> invoker : INVOKER_COMPASSES.keySet()) {
+            if (url.equals(invoker.getUrl())) {
+                INVOKER_COMPASSES.remove(invoker);
+            }
+        }
+    }
+
+    private static String getSide(URL url) {
+        return url.getParameter(Constants.SIDE_KEY, Constants.PROVIDER_SIDE);
+    }
+
+}
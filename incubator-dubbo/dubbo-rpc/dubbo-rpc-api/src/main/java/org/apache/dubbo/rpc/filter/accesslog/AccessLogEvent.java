@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.filter.accesslog;
+
+import com.alibaba.fastjson.JSON;
+
+/**
+ * One access log entry, preallocated in a slot of {@link AccessLogRingBuffer}.
+ * <p>
+ * The calling thread only copies the fields of the invocation and a shallow copy of its argument array, so a
+ * service replacing an argument does not change the entry. The writer thread formats the whole line, the
+ * arguments as JSON included.
+ */
+final class AccessLogEvent {
+
+    // slot state, see AccessLogRingBuffer
+    volatile long sequence;
+
+    long timestamp;
+
+    AccessLogFile file;
+
+    String remoteHost;
+
+    int remotePort;
+
+    String localHost;
+
+    int localPort;
+
+    String group;
+
+    String serviceName;
+
+    String version;
+
+    String methodName;
+
+    Class<?>[] types;
+
+    Object[] arguments;
+
+    AccessLogEvent(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Append the log line, without line separator. Writer thread.
+     *
+     * @param sn   the target
+     * @param date the formatted timestamp of the event
+     */
+    void format(StringBuilder sn, String date) {
+        sn.append("[").append(date).append("] ")
+                .append(remoteHost).append(":").append(remotePort)
+                .append(" -> ").append(localHost).append(":").append(localPort)
+                .append(" - ");
+        if (null != group && group.length() > 0) {
+            sn.append(group).append("/");
+        }
+        sn.append(serviceName);
+        if (null != version && version.length() > 0) {
+            sn.append(":").append(version);
+        }
+        sn.append(" ");
+        sn.append(methodName);
+        sn.append("(");
+        if (types != null && types.length > 0) {
+            boolean first = true;
+            for (Class<?> type : types) {
+                if (first) {
+                    first = false;
+                } else {
+                    sn.append(",");
+                }
+                sn.append(type.getName());
+            }
+        }
+        sn.append(") ");
+        if (arguments != null && arguments.length > 0) {
+            sn.append(JSON.toJSONString(arguments));
+        }
+    }
+
+    void clear() {
+        file = null;
+        remoteHost = null;
+        localHost = null;
+        group = null;
+        serviceName = null;
+        version = null;
+        methodName = null;
+        types = null;
+        arguments = null;
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.filter.accesslog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Access log file kept open by the writer thread, appending batches of lines through one {@link FileChannel}.
+ * <p>
+ * The file is archived as <code>&lt;file&gt;.yyyyMMdd</code> when the first line of a new day arrives, and,
+ * if a maximum size is set, as <code>&lt;file&gt;.yyyyMMdd.N</code> when it would grow past that size.
+ * Not thread safe, only used by the writer thread.
+ */
+final class AccessLogFile {
+
+    static final String LINE_SEPARATOR = "\r\n";
+
+    private static final String FILE_DATE_FORMAT = "yyyyMMdd";
+
+    // lines are written once this many chars are pending
+    private static final int BATCH_SIZE = 32 * 1024;
+
+    private final File file;
+
+    private final long maxSize;
+
+    private final Charset charset = Charset.defaultCharset();
+
+    private final StringBuilder pending = new StringBuilder();
+
+    private FileChannel channel;
+
+    private long size;
+
+    // start of the day following the one of the lines in the file
+    private long nextDay;
+
+    private String day;
+
+    /**
+     * @param file    the log file
+     * @param maxSize the size in bytes the file is archived at, 0 for no limit
+     */
+    AccessLogFile(File file, long maxSize) {
+        this.file = file;
+        this.maxSize = maxSize;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    void append(long timestamp, CharSequence line) throws IOException {
+        if (channel == null) {
+            open(timestamp);
+        } else if (timestamp >= nextDay) {
+            flush();
+            close();
+            archive(day);
+            open(timestamp);
+        }
+        pending.append(line).append(LINE_SEPARATOR);
+        if (pending.length() >= BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    void flush() throws IOException {
+        if (pending.length() == 0 || channel == null) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(pending.toString().getBytes(charset));
+        pending.setLength(0);
+        if (maxSize > 0 && size > 0 && size + buffer.remaining() > maxSize) {
+            close();
+            archive(day);
+            open(System.currentTimeMillis());
+        }
+        while (buffer.hasRemaining()) {
+            size += channel.write(buffer);
+        }
+    }
+
+    void close() {
+        pending.setLength(0);
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // nothing to do
+            }
+            channel = null;
+        }
+    }
+
+    private void open(long timestamp) throws IOException {
+        File dir = file.getParentFile();
+        if (null != dir && !dir.exists()) {
+            dir.mkdirs();
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(timestamp);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        String today = new SimpleDateFormat(FILE_DATE_FORMAT).format(calendar.getTime());
+        if (file.exists() && file.length() > 0) {
+            // left over by a previous run
+            String last = new SimpleDateFormat(FILE_DATE_FORMAT).format(new Date(file.lastModified()));
+            if (!today.equals(last)) {
+                archive(last);
+            }
+        }
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        nextDay = calendar.getTimeInMillis();
+        day = today;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        size = channel.size();
+    }
+
+    private void archive(String fileDay) {
+        File archive = new File(file.getAbsolutePath() + "." + fileDay);
+        for (int i = 1; archive.exists(); i++) {
+            archive = new File(file.getAbsolutePath() + "." + fileDay + "." + i);
+        }
+        file.renameTo(archive);
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.filter.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded multi producer, single consumer ring of preallocated {@link AccessLogEvent}s.
+ * <p>
+ * Every slot carries a sequence: a producer may claim position <code>p</code> when the sequence of its slot is
+ * <code>p</code>, and publishes it by setting the sequence to <code>p + 1</code>; the consumer hands the slot
+ * back by setting it to <code>p + capacity</code>. Producers never wait, {@link #next()} fails when the ring
+ * is full.
+ */
+final class AccessLogRingBuffer {
+
+    private final AccessLogEvent[] events;
+
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    // only written by the consumer
+    private volatile long head;
+
+    AccessLogRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of 2: " + capacity);
+        }
+        this.events = new AccessLogEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            events[i] = new AccessLogEvent(i);
+        }
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Claim the next slot, which must then be filled and {@link #publish(long) published}.
+     *
+     * @return the sequence of the claimed slot, or -1 if the ring is full
+     */
+    long next() {
+        for (; ; ) {
+            long position = tail.get();
+            long available = events[(int) position & mask].sequence - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+            } else if (available < 0) {
+                return -1;
+            }
+            // otherwise another producer claimed the position, retry
+        }
+    }
+
+    AccessLogEvent get(long sequence) {
+        return events[(int) sequence & mask];
+    }
+
+    void publish(long sequence) {
+        get(sequence).sequence = sequence + 1;
+    }
+
+    /**
+     * @return the oldest published event, or null if there is none. Consumer only.
+     */
+    AccessLogEvent peek() {
+        AccessLogEvent event = events[(int) head & mask];
+        return event.sequence == head + 1 ? event : null;
+    }
+
+    /**
+     * Hand the event returned by {@link #peek()} back to the producers. Consumer only.
+     */
+    void release() {
+        AccessLogEvent event = events[(int) head & mask];
+        event.clear();
+        event.sequence = head + events.length;
+        head++;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return events.length;
+    }
+
+}
@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.filter.accesslog;
+
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.logger.Logger;
+import org.apache.dubbo.common.logger.LoggerFactory;
+import org.apache.dubbo.common.utils.ConfigUtils;
+import org.apache.dubbo.common.utils.NamedThreadFactory;
+import org.apache.dubbo.metrics.Gauge;
+import org.apache.dubbo.metrics.MetricManager;
+import org.apache.dubbo.metrics.MetricName;
+import org.apache.dubbo.rpc.Invocation;
+import org.apache.dubbo.rpc.Invoker;
+import org.apache.dubbo.rpc.RpcContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous access log pipeline.
+ * <p>
+ * Invocations are copied by the calling thread into a preallocated {@link AccessLogRingBuffer}, and a single
+ * writer thread formats them and appends them to their {@link AccessLogFile}, or to the <code>dubbo.accesslog</code>
+ * logger for <code>accesslog=true</code>. The calling thread never blocks or does IO: when the ring is full the
+ * entry is dropped and counted, see the <code>dubbo.accesslog.dropped</code> gauge.
+ */
+public class AccessLogWriter implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessLogWriter.class);
+
+    private static final String ACCESS_LOG_KEY = "dubbo.accesslog";
+
+    private static final String MESSAGE_DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    // events handled before the writer looks at idle work again
+    private static final int MAX_BATCH = 1024;
+
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final long DROP_REPORT_INTERVAL = 60 * 1000;
+
+    private static final AccessLogWriter INSTANCE = new AccessLogWriter(BUFFER_SIZE);
+
+    private final AccessLogRingBuffer ring;
+
+    private final ConcurrentMap<String, AccessLogFile> files = new ConcurrentHashMap<String, AccessLogFile>();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    // ==== writer thread only ====
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat(MESSAGE_DATE_FORMAT);
+
+    private final StringBuilder line = new StringBuilder(256);
+
+    private long lastSecond = -1;
+
+    private String lastDate;
+
+    private long reportedDropped;
+
+    private long lastDropReport;
+
+    AccessLogWriter(int capacity) {
+        this.ring = new AccessLogRingBuffer(capacity);
+    }
+
+    /**
+     * @return the writer shared by all access log filters, started on first use
+     */
+    public static AccessLogWriter getInstance() {
+        INSTANCE.start();
+        return INSTANCE;
+    }
+
+    /**
+     * Queue an access log entry for the invocation, must be called before the invocation for the provider
+     * context to be available.
+     *
+     * @param accesslog the value of the <code>accesslog</code> parameter, <code>true</code> or a file path
+     * @return false if the entry was dropped
+     */
+    public boolean log(String accesslog, Invoker<?> invoker, Invocation inv) {
+        URL url = invoker.getUrl();
+        AccessLogFile file = ConfigUtils.isDefault(accesslog) ? null : getFile(accesslog, url);
+        RpcContext context = RpcContext.getContext();
+        String remoteHost = context.getRemoteHost();
+        int remotePort = context.getRemotePort();
+        String localHost = context.getLocalHost();
+        int localPort = context.getLocalPort();
+        String group = url.getParameter(Constants.GROUP_KEY);
+        String serviceName = invoker.getInterface().getName();
+        String version = url.getParameter(Constants.VERSION_KEY);
+        String methodName = inv.getMethodName();
+        Class<?>[] types = inv.getParameterTypes();
+        Object[] args = inv.getArguments();
+        // the service may replace arguments while the entry is queued, the writer formats them later
+        Object[] arguments = args == null ? null : args.clone();
+        long sequence = ring.next();
+        if (sequence < 0) {
+            dropped.increment();
+            return false;
+        }
+        // nothing below may throw, a claimed slot must be published as the writer waits for it
+        AccessLogEvent event = ring.get(sequence);
+        event.timestamp = System.currentTimeMillis();
+        event.file = file;
+        event.remoteHost = remoteHost;
+        event.remotePort = remotePort;
+        event.localHost = localHost;
+        event.localPort = localPort;
+        event.group = group;
+        event.serviceName = serviceName;
+        event.version = version;
+        event.methodName = methodName;
+        event.types = types;
+        event.arguments = arguments;
+        ring.publish(sequence);
+        return true;
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public int getPendingCount() {
+        return ring.size();
+    }
+
+    @Override
+    public void run() {
+        for (; ; ) {
+            try {
+                if (drain() == 0) {
+                    flush();
+                    reportDropped();
+                    LockSupport.parkNanos(IDLE_NANOS);
+                }
+            } catch (Throwable t) {
+                logger.error("Unexpected error in access log writer, cause: " + t.getMessage(), t);
+            }
+        }
+    }
+
+    /**
+     * Write up to {@link #MAX_BATCH} published events. Writer thread only.
+     *
+     * @return the number of events written
+     */
+    int drain() {
+        int count = 0;
+        AccessLogEvent event;
+        while (count < MAX_BATCH && (event = ring.peek()) != null) {
+            try {
+                write(event);
+            } catch (Throwable t) {
+                logger.warn("Failed to write access log of " + event.serviceName + ", cause: " + t.getMessage(), t);
+            } finally {
+                ring.release();
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Write the lines pending in the files. Writer thread only.
+     */
+    void flush() {
+        for (AccessLogFile file : files.values()) {
+            try {
+                file.flush();
+            } catch (IOException e) {
+                logger.error("Failed to write access log file " + file.getFile() + ", cause: " + e.getMessage(), e);
+                file.close();
+            }
+        }
+    }
+
+    private void start() {
+        if (started.compareAndSet(false, true)) {
+            registerGauges();
+            new NamedThreadFactory("Dubbo-Access-Log", true).newThread(this).start();
+        }
+    }
+
+    private void write(AccessLogEvent event) {
+        line.setLength(0);
+        event.format(line, formatDate(event.timestamp));
+        AccessLogFile file = event.file;
+        if (file == null) {
+            LoggerFactory.getLogger(ACCESS_LOG_KEY + "." + event.serviceName).info(line.toString());
+            return;
+        }
+        try {
+            file.append(event.timestamp, line);
+        } catch (IOException e) {
+            logger.error("Failed to write access log file " + file.getFile() + ", cause: " + e.getMessage(), e);
+            file.close();
+        }
+    }
+
+    private String formatDate(long timestamp) {
+        long second = timestamp / 1000;
+        if (second != lastSecond) {
+            lastDate = dateFormat.format(new Date(timestamp));
+            lastSecond = second;
+        }
+        return lastDate;
+    }
+
+    private void reportDropped() {
+        long now = System.currentTimeMillis();
+        if (now - lastDropReport < DROP_REPORT_INTERVAL) {
+            return;
+        }
+        long total = dropped.sum();
+        if (total > reportedDropped) {
+            logger.warn("Dropped " + (total - reportedDropped) + " access log entries, the buffer of "
+                    + ring.capacity() + " entries was full.");
+            reportedDropped = total;
+            lastDropReport = now;
+        }
+    }
+
+    private AccessLogFile getFile(String accesslog, URL url) {
+        AccessLogFile file = files.get(accesslog);
+        if (file == null) {
+            long maxSize = url.getParameter(Constants.ACCESS_LOG_MAX_SIZE_KEY, Constants.DEFAULT_ACCESS_LOG_MAX_SIZE) * 1024L * 1024L;
+            files.putIfAbsent(accesslog, new AccessLogFile(new File(accesslog), maxSize));
+            file = files.get(accesslog);
+        }
+        return file;
+    }
+
+    private void registerGauges() {
+        MetricManager.register("dubbo", MetricName.build("dubbo.accesslog.dropped"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return getDroppedCount();
+            }
+
+            @Override
+            public long lastUpdateTime() {
+                return System.currentTimeMillis();
+            }
+        });
+        MetricManager.register("dubbo", MetricName.build("dubbo.accesslog.pending"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getPendingCount();
+            }
+
+            @Override
+            public long lastUpdateTime() {
+                return System.currentTimeMillis();
+            }
+        });
+    }
+
+}
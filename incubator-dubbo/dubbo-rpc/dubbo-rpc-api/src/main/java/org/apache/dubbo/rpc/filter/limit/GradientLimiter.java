@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.filter.limit;
+
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.metrics.Gauge;
+import org.apache.dubbo.metrics.MetricManager;
+import org.apache.dubbo.metrics.MetricName;
+import org.apache.dubbo.metrics.MetricRegistry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit adjusted from the gradient between the long term and the recent RTT.
+ * <p>
+ * While the recent RTT stays close to the long term one the limit grows by roughly
+ * <code>sqrt(limit)</code> per window; once requests start queueing the gradient drops below 1 and
+ * the limit shrinks proportionally. Timeouts back the limit off directly.
+ *
+ * @see org.apache.dubbo.rpc.filter.AdaptiveLimitFilter
+ */
+public class GradientLimiter {
+
+    public static final String METRIC_GROUP = "dubbo";
+
+    private static final ConcurrentMap<String, ConcurrentMap<String, GradientLimiter>> LIMITERS = new ConcurrentHashMap<String, ConcurrentMap<String, GradientLimiter>>();
+
+    // samples collected before the limit is recomputed
+    private static final int WINDOW_SIZE = 10;
+
+    // smoothing of the long term RTT, roughly the last 60 windows
+    private static final double LONG_RTT_ALPHA = 2.0 / 61;
+
+    private static final double LIMIT_SMOOTHING = 0.2;
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double tolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+
+    // prefix of the gauges of the limiter, null if not registered
+    private volatile MetricName metricName;
+
+    // ==== guarded by this ====
+
+    private double estimatedLimit;
+
+    private double longRtt;
+
+    private int samples;
+
+    private long rttSum;
+
+    private int maxInFlight;
+
+    private boolean dropped;
+
+    public GradientLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid adaptive limit range [" + minLimit + ", " + maxLimit + "]");
+        }
+        if (tolerance < 1) {
+            throw new IllegalArgumentException("adaptive limit tolerance < 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * @param url        invoker url
+     * @param methodName method name
+     * @return the limiter shared by all invocations of the method on the url
+     */
+    public static GradientLimiter getLimiter(URL url, String methodName) {
+        String uri = url.toIdentityString();
+        ConcurrentMap<String, GradientLimiter> map = LIMITERS.get(uri);
+        if (map == null) {
+            LIMITERS.putIfAbsent(uri, new ConcurrentHashMap<String, GradientLimiter>());
+            map = LIMITERS.get(uri);
+        }
+        GradientLimiter limiter = map.get(methodName);
+        if (limiter == null) {
+            GradientLimiter created = new GradientLimiter(
+                    url.getMethodParameter(methodName, Constants.ADAPTIVE_LIMIT_INITIAL_KEY, Constants.DEFAULT_ADAPTIVE_LIMIT_INITIAL),
+                    url.getMethodParameter(methodName, Constants.ADAPTIVE_LIMIT_MIN_KEY, Constants.DEFAULT_ADAPTIVE_LIMIT_MIN),
+                    url.getMethodParameter(methodName, Constants.ADAPTIVE_LIMIT_MAX_KEY, Constants.DEFAULT_ADAPTIVE_LIMIT_MAX),
+                    url.getMethodParameter(methodName, Constants.ADAPTIVE_LIMIT_TOLERANCE_KEY, Constants.DEFAULT_ADAPTIVE_LIMIT_TOLERANCE));
+            limiter = map.putIfAbsent(methodName, created);
+            if (limiter == null) {
+                limiter = created;
+                limiter.registerGauges(url, methodName);
+            }
+        }
+        return limiter;
+    }
+
+    /**
+     * Drop the limiters of an unexported or destroyed invoker, and their gauges.
+     *
+     * @param url invoker url
+     */
+    public static void removeLimiters(URL url) {
+        ConcurrentMap<String, GradientLimiter> map = LIMITERS.remove(url.toIdentityString());
+        if (map == null) {
+            return;
+        }
+        for (GradientLimiter limiter : map.values()) {
+            limiter.removeGauges();
+        }
+    }
+
+    /**
+     * Try to take one slot of the current limit.
+     *
+     * @return false if the limit is reached and the invocation should be rejected
+     */
+    public boolean tryAcquire() {
+        for (; ; ) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back a slot taken by {@link #tryAcquire()} and feed the measured RTT into the estimate.
+     *
+     * @param rttNanos  round trip time of the invocation
+     * @param isDropped whether the invocation timed out, which is taken as an overload signal
+     */
+    public void release(long rttNanos, boolean isDropped) {
+        int current = inFlight.getAndDecrement();
+        synchronized (this) {
+            samples++;
+            rttSum += rttNanos;
+            maxInFlight = Math.max(maxInFlight, current);
+            dropped |= isDropped;
+            if (samples >= WINDOW_SIZE) {
+                update(rttSum / samples, maxInFlight, dropped);
+                samples = 0;
+                rttSum = 0;
+                maxInFlight = 0;
+                dropped = false;
+            }
+        }
+    }
+
+    private void update(long shortRtt, int inFlightPeak, boolean isDropped) {
+        if (shortRtt <= 0) {
+            shortRtt = 1;
+        }
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += (shortRtt - longRtt) * LONG_RTT_ALPHA;
+        }
+        // let the baseline recover quickly once a long overload period is over
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        double newLimit;
+        if (isDropped) {
+            newLimit = estimatedLimit * BACKOFF_RATIO;
+        } else if (inFlightPeak < estimatedLimit / 2) {
+            // not limited by us, nothing learned about the capacity
+            return;
+        } else {
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+            newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+            newLimit = estimatedLimit * (1 - LIMIT_SMOOTHING) + newLimit * LIMIT_SMOOTHING;
+        }
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    private void registerGauges(URL url, String methodName) {
+        MetricName name = new MetricName("dubbo.adaptivelimit")
+                .tag("service", url.getServiceKey(), "method", methodName, "address", url.getAddress());
+        this.metricName = name;
+        MetricManager.register(METRIC_GROUP, name.resolve("limit"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getLimit();
+            }
+
+            @Override
+            public long lastUpdateTime() {
+                return System.currentTimeMillis();
+            }
+        });
+        MetricManager.register(METRIC_GROUP, name.resolve("inflight"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getInFlight();
+            }
+
+            @Override
+            public long lastUpdateTime() {
+                return System.currentTimeMillis();
+            }
+        });
+    }
+
+    private void removeGauges() {
+        MetricName name = metricName;
+        if (name != null) {
+            MetricRegistry registry = MetricManager.getIMetricManager().getMetricRegistryByGroup(METRIC_GROUP);
+            if (registry != null) {
+                registry.remove(name.resolve("limit"));
+                registry.remove(name.resolve("inflight"));
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public String toString() {
+        return "GradientLimiter [limit=" + limit + ", inFlight=" + inFlight.get() + "]";
+    }
+
+}
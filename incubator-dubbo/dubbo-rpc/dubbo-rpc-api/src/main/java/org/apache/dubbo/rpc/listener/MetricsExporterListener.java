@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.listener;
+
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.common.extension.Activate;
+import org.apache.dubbo.rpc.Exporter;
+import org.apache.dubbo.rpc.RpcException;
+import org.apache.dubbo.rpc.filter.MetricsFilter;
+
+/**
+ * Release what {@link MetricsFilter} keeps for an unexported service.
+ */
+@Activate(Constants.METRICS_KEY)
+public class MetricsExporterListener extends ExporterListenerAdapter {
+
+    @Override
+    public void unexported(Exporter<?> exporter) throws RpcException {
+        MetricsFilter.removeInvokers(exporter.getInvoker().getUrl());
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.protocol.isolation;
+
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.logger.Logger;
+import org.apache.dubbo.common.logger.LoggerFactory;
+import org.apache.dubbo.common.threadlocal.NamedInternalThreadFactory;
+import org.apache.dubbo.common.utils.ConcurrentHashSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link MethodBulkhead}s of the methods served by one server using the <code>isolation</code> dispatcher.
+ * <p>
+ * Lanes can be assigned with <code>isolation.assign</code>, a comma separated list of
+ * <code>&lt;service&gt;[.&lt;method&gt;]:&lt;lane&gt;</code>, or at runtime with the <code>bulkhead</code> QoS command.
+ */
+public class Bulkheads {
+
+    private static final Logger logger = LoggerFactory.getLogger(Bulkheads.class);
+
+    // the bulkheads of the live servers, each owned and destroyed by its server
+    private static final Set<Bulkheads> BULKHEADS = new ConcurrentHashSet<Bulkheads>();
+
+    private static final Comparator<Bulkheads> PORT_ORDER = new Comparator<Bulkheads>() {
+        @Override
+        public int compare(Bulkheads b1, Bulkheads b2) {
+            int p1 = b1.getUrl().getPort();
+            int p2 = b2.getUrl().getPort();
+            return p1 < p2 ? -1 : (p1 == p2 ? 0 : 1);
+        }
+    };
+
+    private final URL url;
+
+    private final long fastThresholdMicros;
+
+    private final long slowThresholdMicros;
+
+    private final Lane fastLane;
+
+    private final int fastThreads;
+
+    private final int threads;
+
+    private final int queues;
+
+    private final int window;
+
+    private final ConcurrentMap<String, MethodBulkhead> methods = new ConcurrentHashMap<String, MethodBulkhead>();
+
+    // lanes assigned to services or methods, applied to their bulkheads when created
+    private final ConcurrentMap<String, Lane> assignments = new ConcurrentHashMap<String, Lane>();
+
+    private volatile ThreadPoolExecutor fastExecutor;
+
+    public Bulkheads(URL url) {
+        this.url = url;
+        this.fastThresholdMicros = url.getPositiveParameter(Constants.ISOLATION_FAST_THRESHOLD_KEY,
+                Constants.DEFAULT_ISOLATION_FAST_THRESHOLD) * 1000L;
+        this.slowThresholdMicros = url.getPositiveParameter(Constants.ISOLATION_SLOW_THRESHOLD_KEY,
+                Constants.DEFAULT_ISOLATION_SLOW_THRESHOLD) * 1000L;
+        this.fastLane = Lane.DIRECT.toString().equals(url.getParameter(Constants.ISOLATION_FAST_LANE_KEY))
+                ? Lane.DIRECT : Lane.FAST;
+        this.fastThreads = url.getPositiveParameter(Constants.ISOLATION_FAST_THREADS_KEY,
+                Runtime.getRuntime().availableProcessors());
+        this.threads = url.getPositiveParameter(Constants.ISOLATION_THREADS_KEY, Constants.DEFAULT_ISOLATION_THREADS);
+        this.queues = url.getParameter(Constants.ISOLATION_QUEUES_KEY, Constants.DEFAULT_ISOLATION_QUEUES);
+        this.window = url.getPositiveParameter(Constants.ISOLATION_WINDOW_KEY, Constants.DEFAULT_ISOLATION_WINDOW);
+        String[] assigns = url.getParameter(Constants.ISOLATION_ASSIGN_KEY, new String[0]);
+        for (String assign : assigns) {
+            int i = assign.lastIndexOf(':');
+            Lane lane = i > 0 ? Lane.parse(assign.substring(i + 1).trim()) : null;
+            if (lane == null) {
+                logger.warn("Ignore invalid " + Constants.ISOLATION_ASSIGN_KEY + " entry " + assign);
+            } else {
+                assignments.put(assign.substring(0, i).trim(), lane);
+            }
+        }
+    }
+
+    /**
+     * Create the bulkheads of a server, listed by {@link #getAll()} until {@link #destroy()}ed.
+     */
+    public static Bulkheads create(URL url) {
+        Bulkheads bulkheads = new Bulkheads(url);
+        BULKHEADS.add(bulkheads);
+        return bulkheads;
+    }
+
+    /**
+     * @return the bulkheads of all the live servers using the <code>isolation</code> dispatcher, ordered by port
+     */
+    public static List<Bulkheads> getAll() {
+        List<Bulkheads> all = new ArrayList<Bulkheads>(BULKHEADS);
+        Collections.sort(all, PORT_ORDER);
+        return all;
+    }
+
+    /**
+     * @param service service path
+     * @param method  method name
+     * @return the bulkhead of the method, created on first use
+     */
+    public MethodBulkhead getBulkhead(String service, String method) {
+        String key = service + "." + method;
+        MethodBulkhead bulkhead = methods.get(key);
+        if (bulkhead == null) {
+            MethodBulkhead created = new MethodBulkhead(key, this);
+            bulkhead = methods.putIfAbsent(key, created);
+            if (bulkhead == null) {
+                bulkhead = created;
+                Lane lane = assignments.get(key);
+                if (lane == null) {
+                    lane = assignments.get(service);
+                }
+                if (lane != null) {
+                    bulkhead.assign(lane);
+                }
+            }
+        }
+        return bulkhead;
+    }
+
+    /**
+     * Assign a lane to a method, or to all the methods of a service including those not called yet.
+     *
+     * @param key  service path, or service path and method name joined by '.'
+     * @param lane the lane, or null to remove the assignment: a method then follows the lane of its service if
+     *             assigned, and the measured latency otherwise
+     * @return the number of known methods reassigned
+     */
+    public int assign(String key, Lane lane) {
+        if (lane == null) {
+            assignments.remove(key);
+        } else {
+            assignments.put(key, lane);
+        }
+        int count = 0;
+        for (MethodBulkhead bulkhead : methods.values()) {
+            String name = bulkhead.getKey();
+            if (name.equals(key) || (name.startsWith(key) && name.lastIndexOf('.') == key.length())) {
+                // a method assignment overrides its service one
+                Lane assigned = assignments.get(name);
+                if (assigned == null) {
+                    assigned = assignments.get(name.substring(0, name.lastIndexOf('.')));
+                }
+                bulkhead.assign(assigned);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public Collection<MethodBulkhead> getBulkheads() {
+        return new TreeMap<String, MethodBulkhead>(methods).values();
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    long getFastThresholdMicros() {
+        return fastThresholdMicros;
+    }
+
+    long getSlowThresholdMicros() {
+        return slowThresholdMicros;
+    }
+
+    Lane getFastLane() {
+        return fastLane;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    int getQueues() {
+        return queues;
+    }
+
+    int getWindow() {
+        return window;
+    }
+
+    /**
+     * @return the pool of the fast lane, which rejects requests rather than queueing them when all its threads are busy
+     */
+    ExecutorService getFastExecutor() {
+        ThreadPoolExecutor current = fastExecutor;
+        if (current == null) {
+            synchronized (this) {
+                current = fastExecutor;
+                if (current == null) {
+                    String name = "DubboFastLane-" + url.getPort();
+                    current = new ThreadPoolExecutor(fastThreads, fastThreads, 60, TimeUnit.SECONDS,
+                            new SynchronousQueue<Runnable>(), new NamedInternalThreadFactory(name, true));
+                    current.allowCoreThreadTimeOut(true);
+                    fastExecutor = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public void destroy() {
+        BULKHEADS.remove(this);
+        ThreadPoolExecutor current = fastExecutor;
+        if (current != null) {
+            current.shutdown();
+        }
+        for (MethodBulkhead bulkhead : methods.values()) {
+            bulkhead.destroy();
+        }
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.protocol.isolation;
+
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.remoting.Channel;
+import org.apache.dubbo.remoting.ChannelHandler;
+import org.apache.dubbo.remoting.Decodeable;
+import org.apache.dubbo.remoting.ExecutionException;
+import org.apache.dubbo.remoting.RemotingException;
+import org.apache.dubbo.remoting.exchange.Request;
+import org.apache.dubbo.remoting.exchange.Response;
+import org.apache.dubbo.remoting.transport.dispatcher.ChannelEventRunnable;
+import org.apache.dubbo.remoting.transport.dispatcher.ChannelEventRunnable.ChannelState;
+import org.apache.dubbo.remoting.transport.dispatcher.all.AllChannelHandler;
+import org.apache.dubbo.rpc.Invocation;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Dispatch each request to the lane of its method, see {@link MethodBulkhead}. Other events, and requests which
+ * are not invocations, are handled like the <code>all</code> dispatcher does.
+ * <p>
+ * The method of a request must be known to pick its lane, so requests are always decoded on the IO thread.
+ */
+public class IsolationChannelHandler extends AllChannelHandler {
+
+    private final Bulkheads bulkheads;
+
+    public IsolationChannelHandler(ChannelHandler handler, URL url) {
+        super(handler, url);
+        this.bulkheads = Bulkheads.create(url);
+    }
+
+    @Override
+    public void received(Channel channel, Object message) throws RemotingException {
+        MethodBulkhead bulkhead = getBulkhead(message);
+        if (bulkhead == null) {
+            super.received(channel, message);
+            return;
+        }
+        Runnable task = new MeasuredRunnable(new ChannelEventRunnable(channel, handler, ChannelState.RECEIVED, message), bulkhead);
+        ExecutorService executor;
+        switch (bulkhead.getLane()) {
+            case DIRECT:
+                task.run();
+                return;
+            case FAST:
+                try {
+                    bulkheads.getFastExecutor().execute(task);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // all the fast lane threads are busy, take the shared pool rather than failing
+                    executor = getExecutorService();
+                }
+                break;
+            case ISOLATED:
+                executor = bulkhead.getExecutor();
+                break;
+            default:
+                executor = getExecutorService();
+                break;
+        }
+        try {
+            executor.execute(task);
+        } catch (Throwable t) {
+            Request request = (Request) message;
+            if (t instanceof RejectedExecutionException && request.isTwoWay()) {
+                String msg = "Server side(" + url.getIp() + "," + url.getPort() + ") " + bulkhead.getLane()
+                        + " threadpool of " + bulkhead.getKey() + " is exhausted ,detail msg:" + t.getMessage();
+                Response response = new Response(request.getId(), request.getVersion());
+                response.setStatus(Response.SERVER_THREADPOOL_EXHAUSTED_ERROR);
+                response.setErrorMessage(msg);
+                channel.send(response);
+                return;
+            }
+            throw new ExecutionException(message, channel, getClass() + " error when process received event .", t);
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        bulkheads.destroy();
+    }
+
+    public Bulkheads getBulkheads() {
+        return bulkheads;
+    }
+
+    private MethodBulkhead getBulkhead(Object message) {
+        if (!(message instanceof Request)) {
+            return null;
+        }
+        Request request = (Request) message;
+        Object data = request.getData();
+        if (data instanceof Decodeable) {
+            try {
+                ((Decodeable) data).decode();
+            } catch (Throwable t) {
+                // reported again by the decode handler
+                return null;
+            }
+            data = request.getData();
+        }
+        if (request.isBroken() || !(data instanceof Invocation)) {
+            return null;
+        }
+        Invocation invocation = (Invocation) data;
+        String service = invocation.getAttachment(Constants.PATH_KEY, "");
+        String method = invocation.getMethodName();
+        if (!IsolationExporterListener.isExported(service, method)) {
+            // failed by the protocol later, don't keep a bulkhead for whatever name the client sent
+            return null;
+        }
+        return bulkheads.getBulkhead(service, method);
+    }
+
+    private static class MeasuredRunnable implements Runnable {
+
+        private final Runnable runnable;
+
+        private final MethodBulkhead bulkhead;
+
+        MeasuredRunnable(Runnable runnable, MethodBulkhead bulkhead) {
+            this.runnable = runnable;
+            this.bulkhead = bulkhead;
+        }
+
+        @Override
+        public void run() {
+            long begin = System.nanoTime();
+            try {
+                runnable.run();
+            } finally {
+                bulkhead.record(System.nanoTime() - begin);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.protocol.isolation;
+
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.remoting.ChannelHandler;
+import org.apache.dubbo.remoting.Dispatcher;
+import org.apache.dubbo.remoting.transport.dispatcher.all.AllChannelHandler;
+
+/**
+ * Isolate provider methods from each other: each one runs on a lane chosen from its measured p99,
+ * either the IO thread or a small pool for fast methods, the protocol pool, or a bounded pool of its own.
+ * <p>
+ * Consumers referring to services exported with this dispatcher inherit it, their connections are dispatched
+ * like the <code>all</code> dispatcher does.
+ */
+public class IsolationDispatcher implements Dispatcher {
+
+    public static final String NAME = "isolation";
+
+    @Override
+    public ChannelHandler dispatch(ChannelHandler handler, URL url) {
+        if (Constants.CONSUMER_SIDE.equals(url.getParameter(Constants.SIDE_KEY))) {
+            return new AllChannelHandler(handler, url);
+        }
+        return new IsolationChannelHandler(handler, url);
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.protocol.isolation;
+
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.extension.Activate;
+import org.apache.dubbo.rpc.Exporter;
+import org.apache.dubbo.rpc.Invoker;
+import org.apache.dubbo.rpc.RpcException;
+import org.apache.dubbo.rpc.listener.ExporterListenerAdapter;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Record the methods of the exported services, so that the <code>isolation</code> dispatcher only creates
+ * {@link MethodBulkhead}s for methods which can actually be invoked, whatever names clients send.
+ */
+@Activate(value = Constants.DISPATCHER_KEY)
+public class IsolationExporterListener extends ExporterListenerAdapter {
+
+    // service path -> method names of its exporters
+    private static final ConcurrentMap<String, Set<String>> EXPORTED = new ConcurrentHashMap<String, Set<String>>();
+
+    // service path -> number of live exporters, guarded by itself
+    private static final Map<String, Integer> EXPORTERS = new HashMap<String, Integer>();
+
+    /**
+     * @param service service path
+     * @param method  method name
+     * @return whether a live exporter of the service has the method
+     */
+    public static boolean isExported(String service, String method) {
+        Set<String> methods = EXPORTED.get(service);
+        return methods != null && methods.contains(method);
+    }
+
+    @Override
+    public void exported(Exporter<?> exporter) throws RpcException {
+        Invoker<?> invoker = exporter.getInvoker();
+        String path = invoker.getUrl().getPath();
+        if (path == null || !isIsolated(invoker.getUrl())) {
+            return;
+        }
+        Set<String> names = new HashSet<String>();
+        names.add(Constants.$INVOKE);
+        names.add(Constants.$ECHO);
+        for (Method method : invoker.getInterface().getMethods()) {
+            names.add(method.getName());
+        }
+        synchronized (EXPORTERS) {
+            Integer count = EXPORTERS.get(path);
+            EXPORTERS.put(path, count == null ? 1 : count + 1);
+            Set<String> previous = EXPORTED.get(path);
+            if (previous != null) {
+                names.addAll(previous);
+            }
+            EXPORTED.put(path, Collections.unmodifiableSet(names));
+        }
+    }
+
+    @Override
+    public void unexported(Exporter<?> exporter) throws RpcException {
+        URL url = exporter.getInvoker().getUrl();
+        String path = url.getPath();
+        if (path == null || !isIsolated(url)) {
+            return;
+        }
+        synchronized (EXPORTERS) {
+            Integer count = EXPORTERS.get(path);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                EXPORTERS.put(path, count - 1);
+            } else {
+                EXPORTERS.remove(path);
+                EXPORTED.remove(path);
+            }
+        }
+    }
+
+    private static boolean isIsolated(URL url) {
+        return IsolationDispatcher.NAME.equals(url.getParameter(Constants.DISPATCHER_KEY));
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.protocol.isolation;
+
+/**
+ * Where the requests of a method are executed.
+ */
+public enum Lane {
+
+    /**
+     * On the IO thread which received the request, like the <code>direct</code> dispatcher
+     */
+    DIRECT,
+
+    /**
+     * On the small pool shared by the fast methods of the server
+     */
+    FAST,
+
+    /**
+     * On the thread pool of the protocol, like the <code>all</code> dispatcher
+     */
+    SHARED,
+
+    /**
+     * On a bounded pool dedicated to the method
+     */
+    ISOLATED;
+
+    /**
+     * @param name lane name, case insensitive
+     * @return the lane, or null if unknown
+     */
+    public static Lane parse(String name) {
+        for (Lane lane : values()) {
+            if (lane.name().equalsIgnoreCase(name)) {
+                return lane;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase();
+    }
+
+}
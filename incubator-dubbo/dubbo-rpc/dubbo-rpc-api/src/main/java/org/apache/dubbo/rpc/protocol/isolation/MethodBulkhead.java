@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.protocol.isolation;
+
+import org.apache.dubbo.common.threadlocal.NamedInternalThreadFactory;
+import org.apache.dubbo.common.threadpool.support.AbortPolicyWithReport;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lane assignment and execution time statistics of one provider method.
+ * <p>
+ * Execution times are counted in power of two microsecond buckets. Every <code>isolation.window</code>
+ * executions the p99 is computed, the counts are reset and, unless the lane was assigned explicitly, the method
+ * moves to the fast lane when its p99 is below <code>isolation.fast</code> ms and to an isolated pool when it is
+ * above <code>isolation.slow</code> ms. A method only leaves these lanes once its p99 crossed the threshold by a
+ * factor of 2, so it does not flap between lanes.
+ */
+public class MethodBulkhead {
+
+    private static final int BUCKETS = 40;
+
+    private final String key;
+
+    private final Bulkheads bulkheads;
+
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    private final AtomicInteger samples = new AtomicInteger();
+
+    private volatile Lane lane = Lane.SHARED;
+
+    // explicitly assigned lane, null when chosen from the measured latency
+    private volatile Lane assigned;
+
+    private volatile long p99Micros = -1;
+
+    private volatile ThreadPoolExecutor executor;
+
+    MethodBulkhead(String key, Bulkheads bulkheads) {
+        this.key = key;
+        this.bulkheads = bulkheads;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Lane getLane() {
+        return lane;
+    }
+
+    public Lane getAssigned() {
+        return assigned;
+    }
+
+    /**
+     * @return the p99 of the execution time in microseconds during the last window, -1 before the first one
+     */
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    /**
+     * @return the number of requests of the isolated pool, executing or queued
+     */
+    public int getPending() {
+        ThreadPoolExecutor current = executor;
+        return current == null ? 0 : current.getActiveCount() + current.getQueue().size();
+    }
+
+    /**
+     * @param lane the lane to use from now on, or null to choose it from the measured latency again
+     */
+    public void assign(Lane lane) {
+        this.assigned = lane;
+        if (lane != null) {
+            this.lane = lane;
+        } else if (p99Micros >= 0) {
+            this.lane = classify(p99Micros, Lane.SHARED);
+        }
+    }
+
+    void record(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        histogram.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+        if (samples.incrementAndGet() == bulkheads.getWindow()) {
+            evaluate();
+        }
+    }
+
+    ExecutorService getExecutor() {
+        ThreadPoolExecutor current = executor;
+        if (current == null) {
+            synchronized (this) {
+                current = executor;
+                if (current == null) {
+                    int threads = bulkheads.getThreads();
+                    int queues = bulkheads.getQueues();
+                    String name = "DubboBulkhead-" + key;
+                    current = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                            queues == 0 ? new SynchronousQueue<Runnable>() :
+                                    (queues < 0 ? new LinkedBlockingQueue<Runnable>()
+                                            : new LinkedBlockingQueue<Runnable>(queues)),
+                            new NamedInternalThreadFactory(name, true), new AbortPolicyWithReport(name, bulkheads.getUrl()));
+                    current.allowCoreThreadTimeOut(true);
+                    executor = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    void destroy() {
+        ThreadPoolExecutor current = executor;
+        if (current != null) {
+            current.shutdown();
+        }
+    }
+
+    private void evaluate() {
+        // drain the sample count first, so records racing with the evaluation count towards the next window
+        samples.getAndSet(0);
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram.getAndSet(i, 0);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return;
+        }
+        long rank = (long) Math.ceil(total * 0.99);
+        long seen = 0;
+        int bucket = 0;
+        for (; bucket < BUCKETS - 1; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                break;
+            }
+        }
+        // upper bound of the bucket
+        long p99 = bucket == 0 ? 0 : (1L << bucket) - 1;
+        p99Micros = p99;
+        if (assigned == null) {
+            lane = classify(p99, lane);
+        }
+    }
+
+    private Lane classify(long p99, Lane current) {
+        long fast = bulkheads.getFastThresholdMicros();
+        long slow = bulkheads.getSlowThresholdMicros();
+        Lane fastLane = bulkheads.getFastLane();
+        if (p99 <= fast || (current == fastLane && p99 <= fast * 2)) {
+            return fastLane;
+        }
+        if (p99 >= slow || (current == Lane.ISOLATED && p99 >= slow / 2)) {
+            return Lane.ISOLATED;
+        }
+        return Lane.SHARED;
+    }
+
+    @Override
+    public String toString() {
+        return "MethodBulkhead [key=" + key + ", lane=" + lane + ", p99=" + p99Micros + "us]";
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.filter;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.rpc.AsyncRpcResult;
+import org.apache.dubbo.rpc.Invocation;
+import org.apache.dubbo.rpc.Invoker;
+import org.apache.dubbo.rpc.Result;
+import org.apache.dubbo.rpc.RpcException;
+import org.apache.dubbo.rpc.filter.limit.GradientLimiter;
+import org.apache.dubbo.rpc.support.MockInvocation;
+import org.apache.dubbo.rpc.support.MyInvoker;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AdaptiveLimitFilterTest {
+
+    private static final URL URL_WITH_LIMIT = URL.valueOf("test://test:11/test?adaptivelimit=true&adaptivelimit.initial=4&adaptivelimit.min=4");
+
+    private AdaptiveLimitFilter filter = new AdaptiveLimitFilter();
+
+    @After
+    public void tearDown() {
+        GradientLimiter.removeLimiters(URL_WITH_LIMIT);
+    }
+
+    @Test
+    public void testInvoke() {
+        Invoker<AdaptiveLimitFilterTest> invoker = new MyInvoker<AdaptiveLimitFilterTest>(URL_WITH_LIMIT);
+        Invocation invocation = new MockInvocation();
+        Result result = filter.invoke(invoker, invocation);
+        assertEquals("alibaba", result.getValue());
+        assertEquals(0, GradientLimiter.getLimiter(URL_WITH_LIMIT, invocation.getMethodName()).getInFlight());
+    }
+
+    @Test
+    public void testRejectWhenLimitReached() {
+        Invoker<AdaptiveLimitFilterTest> invoker = new MyInvoker<AdaptiveLimitFilterTest>(URL_WITH_LIMIT);
+        Invocation invocation = new MockInvocation();
+        GradientLimiter limiter = GradientLimiter.getLimiter(URL_WITH_LIMIT, invocation.getMethodName());
+        while (limiter.tryAcquire()) {
+        }
+        try {
+            filter.invoke(invoker, invocation);
+            fail();
+        } catch (RpcException e) {
+            assertTrue(e.isLimitExceed());
+        }
+    }
+
+    @Test
+    public void testReleaseWhenAsyncResultCompletes() {
+        final CompletableFuture<Object> future = new CompletableFuture<Object>();
+        Invoker<AdaptiveLimitFilterTest> invoker = new MyInvoker<AdaptiveLimitFilterTest>(URL_WITH_LIMIT) {
+            @Override
+            public Result invoke(Invocation invocation) throws RpcException {
+                return new AsyncRpcResult(future);
+            }
+        };
+        Invocation invocation = new MockInvocation();
+        filter.invoke(invoker, invocation);
+        GradientLimiter limiter = GradientLimiter.getLimiter(URL_WITH_LIMIT, invocation.getMethodName());
+        assertEquals(1, limiter.getInFlight());
+
+        future.complete("alibaba");
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testDisabled() {
+        URL url = URL.valueOf("test://test:11/test?adaptivelimit=false");
+        Invoker<AdaptiveLimitFilterTest> invoker = new MyInvoker<AdaptiveLimitFilterTest>(url);
+        Result result = filter.invoke(invoker, new MockInvocation());
+        assertEquals("alibaba", result.getValue());
+    }
+}
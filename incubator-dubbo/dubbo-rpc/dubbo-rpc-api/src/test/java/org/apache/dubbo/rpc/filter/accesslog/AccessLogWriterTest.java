@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.filter.accesslog;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.rpc.Invocation;
+import org.apache.dubbo.rpc.Invoker;
+import org.apache.dubbo.rpc.RpcInvocation;
+import org.apache.dubbo.rpc.support.DemoService;
+import org.apache.dubbo.rpc.support.MockInvocation;
+import org.apache.dubbo.rpc.support.MyInvoker;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+public class AccessLogWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndDrop() throws Exception {
+        File file = new File(folder.getRoot(), "logs/access.log");
+        URL url = URL.valueOf("test://test:11/test?accesslog=" + file.getPath() + "&group=dubbo&version=1.1");
+        Invoker<DemoService> invoker = new MyInvoker<DemoService>(url);
+        Invocation invocation = new MockInvocation();
+
+        AccessLogWriter writer = new AccessLogWriter(4);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(writer.log(file.getPath(), invoker, invocation));
+        }
+        Assert.assertFalse(writer.log(file.getPath(), invoker, invocation));
+        Assert.assertEquals(1, writer.getDroppedCount());
+        Assert.assertEquals(4, writer.getPendingCount());
+
+        Assert.assertEquals(4, writer.drain());
+        Assert.assertEquals(0, writer.getPendingCount());
+        writer.flush();
+
+        List<String> lines = Files.readAllLines(file.toPath(), Charset.defaultCharset());
+        Assert.assertEquals(4, lines.size());
+        Assert.assertTrue(lines.get(0), lines.get(0).endsWith(
+                " - dubbo/" + DemoService.class.getName() + ":1.1 echo(java.lang.String) [\"aa\"]"));
+
+        // slots are reused once written
+        Assert.assertTrue(writer.log(file.getPath(), invoker, invocation));
+        Assert.assertEquals(1, writer.drain());
+    }
+
+    @Test
+    public void testArgumentsLoggedAsReceived() throws Exception {
+        File file = new File(folder.getRoot(), "access.log");
+        URL url = URL.valueOf("test://test:11/test?accesslog=" + file.getPath());
+        Invoker<DemoService> invoker = new MyInvoker<DemoService>(url);
+        List<String> names = new ArrayList<String>();
+        names.add("a");
+        Invocation invocation = new RpcInvocation("echo", new Class<?>[]{List.class}, new Object[]{names});
+
+        AccessLogWriter writer = new AccessLogWriter(4);
+        Assert.assertTrue(writer.log(file.getPath(), invoker, invocation));
+        // replaced by the service after the entry was queued
+        invocation.getArguments()[0] = Collections.singletonList("b");
+        Assert.assertEquals(1, writer.drain());
+        writer.flush();
+
+        List<String> lines = Files.readAllLines(file.toPath(), Charset.defaultCharset());
+        Assert.assertEquals(1, lines.size());
+        Assert.assertTrue(lines.get(0), lines.get(0).endsWith(" echo(java.util.List) [[\"a\"]]"));
+    }
+
+    @Test
+    public void testRotateBySize() throws Exception {
+        File file = new File(folder.getRoot(), "access.log");
+        AccessLogFile logFile = new AccessLogFile(file, 100);
+        long now = System.currentTimeMillis();
+        logFile.append(now, line(60));
+        logFile.flush();
+        logFile.append(now, line(60));
+        logFile.flush();
+        logFile.close();
+
+        String today = new SimpleDateFormat("yyyyMMdd").format(new Date(now));
+        File archive = new File(file.getPath() + "." + today);
+        Assert.assertTrue(archive.exists());
+        Assert.assertEquals(62, archive.length());
+        Assert.assertEquals(62, file.length());
+    }
+
+    @Test
+    public void testRotateByDay() throws Exception {
+        File file = new File(folder.getRoot(), "access.log");
+        AccessLogFile logFile = new AccessLogFile(file, 0);
+        long yesterday = System.currentTimeMillis() - 24 * 60 * 60 * 1000L;
+        logFile.append(yesterday, line(10));
+        logFile.append(System.currentTimeMillis(), line(20));
+        logFile.flush();
+        logFile.close();
+
+        File archive = new File(file.getPath() + "." + new SimpleDateFormat("yyyyMMdd").format(new Date(yesterday)));
+        Assert.assertEquals(12, archive.length());
+        Assert.assertEquals(22, file.length());
+    }
+
+    @Test
+    public void testRingBuffer() {
+        AccessLogRingBuffer ring = new AccessLogRingBuffer(2);
+        long first = ring.next();
+        long second = ring.next();
+        Assert.assertEquals(-1, ring.next());
+        // the second slot is published first, the consumer still waits for the first one
+        ring.publish(second);
+        Assert.assertNull(ring.peek());
+        ring.publish(first);
+        Assert.assertSame(ring.get(first), ring.peek());
+        ring.release();
+        Assert.assertSame(ring.get(second), ring.peek());
+        ring.release();
+        Assert.assertNull(ring.peek());
+        Assert.assertEquals(2, ring.next());
+    }
+
+    private static String line(int length) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            line.append('x');
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.filter.limit;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.rpc.support.MyInvoker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GradientLimiterTest {
+
+    @Test
+    public void testRejectWhenLimitReached() {
+        GradientLimiter limiter = new GradientLimiter(4, 4, 100, 1.5);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        assertEquals(4, limiter.getInFlight());
+        limiter.release(1000, false);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testLimitGrowsWithStableRtt() {
+        GradientLimiter limiter = new GradientLimiter(10, 4, 100, 1.5);
+        for (int round = 0; round < 20; round++) {
+            fill(limiter);
+            drain(limiter, 1000000L);
+        }
+        assertTrue(limiter.getLimit() > 10);
+    }
+
+    @Test
+    public void testLimitShrinksWhenRttGrows() {
+        GradientLimiter limiter = new GradientLimiter(50, 4, 100, 1.5);
+        for (int round = 0; round < 5; round++) {
+            fill(limiter);
+            drain(limiter, 1000000L);
+        }
+        int stable = limiter.getLimit();
+        // fewer windows than the long term RTT needs to settle on the new latency
+        for (int round = 0; round < 5; round++) {
+            fill(limiter);
+            drain(limiter, 10000000L);
+        }
+        assertTrue(limiter.getLimit() < stable);
+    }
+
+    @Test
+    public void testBackoffOnTimeout() {
+        GradientLimiter limiter = new GradientLimiter(50, 4, 100, 1.5);
+        fill(limiter);
+        int before = limiter.getLimit();
+        int inFlight = limiter.getInFlight();
+        for (int i = 0; i < inFlight; i++) {
+            limiter.release(1000000L, true);
+        }
+        assertTrue(limiter.getLimit() < before);
+    }
+
+    @Test
+    public void testGetLimiter() {
+        URL url = URL.valueOf("dubbo://127.0.0.1:20880/DemoService?adaptivelimit=true&sayHello.adaptivelimit.initial=8");
+        GradientLimiter limiter = GradientLimiter.getLimiter(url, "sayHello");
+        assertSame(limiter, GradientLimiter.getLimiter(url, "sayHello"));
+        assertEquals(8, limiter.getLimit());
+        GradientLimiter.removeLimiters(url);
+    }
+
+    @Test
+    public void testRemovedWhenInvokerDestroyed() {
+        URL url = URL.valueOf("dubbo://127.0.0.1:20880/DemoService?adaptivelimit=true");
+        GradientLimiter limiter = GradientLimiter.getLimiter(url, "sayHello");
+        new AdaptiveLimitInvokerListener().destroyed(new MyInvoker<Object>(url));
+        assertNotSame(limiter, GradientLimiter.getLimiter(url, "sayHello"));
+        GradientLimiter.removeLimiters(url);
+    }
+
+    private void fill(GradientLimiter limiter) {
+        while (limiter.tryAcquire()) {
+        }
+    }
+
+    private void drain(GradientLimiter limiter, long rtt) {
+        int inFlight = limiter.getInFlight();
+        for (int i = 0; i < inFlight; i++) {
+            limiter.release(rtt, false);
+        }
+    }
+}
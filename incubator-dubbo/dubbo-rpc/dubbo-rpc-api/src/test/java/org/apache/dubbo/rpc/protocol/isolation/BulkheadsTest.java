@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.rpc.protocol.isolation;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.remoting.ChannelHandler;
+import org.apache.dubbo.remoting.transport.dispatcher.all.AllChannelHandler;
+import org.apache.dubbo.rpc.Exporter;
+import org.apache.dubbo.rpc.support.DemoService;
+import org.apache.dubbo.rpc.support.MyInvoker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BulkheadsTest {
+
+    private static final String SERVICE = "org.apache.dubbo.rpc.support.DemoService";
+
+    @Test
+    public void testClassifyByP99() {
+        Bulkheads bulkheads = new Bulkheads(URL.valueOf("dubbo://127.0.0.1:20880?isolation.window=10"));
+        MethodBulkhead bulkhead = bulkheads.getBulkhead(SERVICE, "sayHello");
+        Assert.assertEquals(Lane.SHARED, bulkhead.getLane());
+        Assert.assertEquals(-1, bulkhead.getP99Micros());
+
+        record(bulkhead, 10, TimeUnit.MICROSECONDS.toNanos(100));
+        Assert.assertEquals(Lane.FAST, bulkhead.getLane());
+        Assert.assertEquals(127, bulkhead.getP99Micros());
+
+        record(bulkhead, 10, TimeUnit.MILLISECONDS.toNanos(200));
+        Assert.assertEquals(Lane.ISOLATED, bulkhead.getLane());
+
+        // within a factor of 2 of the slow threshold, stays isolated
+        record(bulkhead, 10, TimeUnit.MILLISECONDS.toNanos(60));
+        Assert.assertEquals(Lane.ISOLATED, bulkhead.getLane());
+
+        record(bulkhead, 10, TimeUnit.MILLISECONDS.toNanos(10));
+        Assert.assertEquals(Lane.SHARED, bulkhead.getLane());
+    }
+
+    @Test
+    public void testP99IgnoresOutliers() {
+        Bulkheads bulkheads = new Bulkheads(URL.valueOf("dubbo://127.0.0.1:20880?isolation.window=100"));
+        MethodBulkhead bulkhead = bulkheads.getBulkhead(SERVICE, "sayHello");
+        record(bulkhead, 1, TimeUnit.SECONDS.toNanos(1));
+        record(bulkhead, 99, TimeUnit.MICROSECONDS.toNanos(50));
+        Assert.assertEquals(Lane.FAST, bulkhead.getLane());
+    }
+
+    @Test
+    public void testDirectFastLane() {
+        Bulkheads bulkheads = new Bulkheads(URL.valueOf("dubbo://127.0.0.1:20880?isolation.window=10&isolation.fast.lane=direct"));
+        MethodBulkhead bulkhead = bulkheads.getBulkhead(SERVICE, "sayHello");
+        record(bulkhead, 10, TimeUnit.MICROSECONDS.toNanos(100));
+        Assert.assertEquals(Lane.DIRECT, bulkhead.getLane());
+    }
+
+    @Test
+    public void testAssign() {
+        Bulkheads bulkheads = new Bulkheads(URL.valueOf("dubbo://127.0.0.1:20880?isolation.window=10"));
+        MethodBulkhead sayHello = bulkheads.getBulkhead(SERVICE, "sayHello");
+        record(sayHello, 10, TimeUnit.MILLISECONDS.toNanos(200));
+        Assert.assertEquals(Lane.ISOLATED, sayHello.getLane());
+
+        Assert.assertEquals(1, bulkheads.assign(SERVICE, Lane.DIRECT));
+        Assert.assertEquals(Lane.DIRECT, sayHello.getLane());
+        Assert.assertEquals(Lane.DIRECT, sayHello.getAssigned());
+        // assigned lanes are not changed by the latency
+        record(sayHello, 10, TimeUnit.MILLISECONDS.toNanos(200));
+        Assert.assertEquals(Lane.DIRECT, sayHello.getLane());
+        // applies to the methods called later
+        MethodBulkhead echo = bulkheads.getBulkhead(SERVICE, "echo");
+        Assert.assertEquals(Lane.DIRECT, echo.getLane());
+        // but not to the methods of other services with the same prefix
+        Assert.assertEquals(Lane.SHARED, bulkheads.getBulkhead(SERVICE + "2", "echo").getLane());
+
+        Assert.assertEquals(1, bulkheads.assign(SERVICE + ".echo", Lane.SHARED));
+        Assert.assertEquals(2, bulkheads.assign(SERVICE, null));
+        Assert.assertEquals(Lane.SHARED, echo.getLane());
+        Assert.assertEquals(Lane.SHARED, echo.getAssigned());
+        // back to the lane of the last measured p99
+        Assert.assertEquals(Lane.ISOLATED, sayHello.getLane());
+        Assert.assertNull(sayHello.getAssigned());
+
+        // removing a method assignment falls back to the service one
+        Assert.assertEquals(2, bulkheads.assign(SERVICE, Lane.FAST));
+        Assert.assertEquals(1, bulkheads.assign(SERVICE + ".echo", null));
+        Assert.assertEquals(Lane.FAST, echo.getLane());
+        Assert.assertEquals(Lane.FAST, echo.getAssigned());
+    }
+
+    @Test
+    public void testAssignFromUrl() {
+        Bulkheads bulkheads = new Bulkheads(URL.valueOf("dubbo://127.0.0.1:20880?isolation.assign="
+                + SERVICE + ".sayHello:isolated," + SERVICE + ":fast,invalid"));
+        Assert.assertEquals(Lane.ISOLATED, bulkheads.getBulkhead(SERVICE, "sayHello").getLane());
+        Assert.assertEquals(Lane.FAST, bulkheads.getBulkhead(SERVICE, "echo").getLane());
+    }
+
+    @Test
+    public void testIsolatedExecutor() throws Exception {
+        Bulkheads bulkheads = new Bulkheads(URL.valueOf("dubbo://127.0.0.1:20880?isolation.threads=2"));
+        MethodBulkhead bulkhead = bulkheads.getBulkhead(SERVICE, "sayHello");
+        Assert.assertSame(bulkhead.getExecutor(), bulkhead.getExecutor());
+        Assert.assertEquals(0, bulkhead.getPending());
+        bulkheads.destroy();
+        Assert.assertTrue(bulkhead.getExecutor().isShutdown());
+    }
+
+    @Test
+    public void testServersOnSamePort() {
+        Bulkheads first = Bulkheads.create(URL.valueOf("dubbo://127.0.0.1:20887"));
+        Bulkheads second = Bulkheads.create(URL.valueOf("dubbo://127.0.0.1:20887"));
+        try {
+            Assert.assertTrue(Bulkheads.getAll().contains(first));
+            Assert.assertTrue(Bulkheads.getAll().contains(second));
+            MethodBulkhead bulkhead = first.getBulkhead(SERVICE, "sayHello");
+            second.destroy();
+            Assert.assertFalse(bulkhead.getExecutor().isShutdown());
+            Assert.assertFalse(Bulkheads.getAll().contains(second));
+        } finally {
+            first.destroy();
+            second.destroy();
+        }
+        Assert.assertFalse(Bulkheads.getAll().contains(first));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExportedMethods() {
+        URL url = URL.valueOf("dubbo://127.0.0.1:20880/" + SERVICE + "?dispatcher=isolation");
+        Exporter<DemoService> exporter = mock(Exporter.class);
+        when(exporter.getInvoker()).thenReturn(new MyInvoker<DemoService>(url));
+        IsolationExporterListener listener = new IsolationExporterListener();
+        // services exported with another dispatcher are not recorded
+        Exporter<DemoService> other = mock(Exporter.class);
+        when(other.getInvoker()).thenReturn(new MyInvoker<DemoService>(
+                URL.valueOf("dubbo://127.0.0.1:20881/" + SERVICE + "2?dispatcher=all")));
+        listener.exported(other);
+        listener.exported(exporter);
+        listener.exported(exporter);
+        Assert.assertTrue(IsolationExporterListener.isExported(SERVICE, "sayHello"));
+        Assert.assertTrue(IsolationExporterListener.isExported(SERVICE, "$echo"));
+        Assert.assertFalse(IsolationExporterListener.isExported(SERVICE, "notExist"));
+        Assert.assertFalse(IsolationExporterListener.isExported(SERVICE + "2", "sayHello"));
+
+        // still exported by the other exporter of the service
+        listener.unexported(exporter);
+        Assert.assertTrue(IsolationExporterListener.isExported(SERVICE, "sayHello"));
+        listener.unexported(exporter);
+        Assert.assertFalse(IsolationExporterListener.isExported(SERVICE, "sayHello"));
+    }
+
+    @Test
+    public void testConsumerSide() {
+        ChannelHandler handler = mock(ChannelHandler.class);
+        IsolationDispatcher dispatcher = new IsolationDispatcher();
+        ChannelHandler client = dispatcher.dispatch(handler, URL.valueOf("dubbo://127.0.0.1:20888?side=consumer&dispatcher=isolation"));
+        Assert.assertEquals(AllChannelHandler.class, client.getClass());
+    }
+
+    private static void record(MethodBulkhead bulkhead, int times, long nanos) {
+        for (int i = 0; i < times; i++) {
+            bulkhead.record(nanos);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.common.serialize.hessian2;
+
+import com.alibaba.com.caucho.hessian.io.AbstractDeserializer;
+import com.alibaba.com.caucho.hessian.io.AbstractHessianInput;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Base class of the deserializers generated by {@link CompiledSerializerFactory}.
+ * <p>
+ * Field names of an incoming class definition are resolved to field indexes once per definition, the
+ * generated subclass then reads every field with a single switch on its index, setting it directly or through
+ * its setter, or through its accessible {@link Field} in {@link #fields} when neither is public, instead of
+ * looking it up by name. Unknown fields are skipped like Hessian's reflective <code>JavaDeserializer</code> does.
+ */
+public abstract class CompiledDeserializer extends AbstractDeserializer {
+
+    protected Field[] fields;
+
+    private Class<?> type;
+
+    private String[] fieldNames;
+
+    private Class<?>[] fieldTypes;
+
+    private Map<String, Integer> fieldIndexes;
+
+    // indexes of the last class definition read, hessian reuses the definition within a stream
+    private volatile FieldIndexes lastIndexes;
+
+    void init(Class<?> type, Field[] fields) {
+        this.type = type;
+        this.fields = fields;
+        this.fieldNames = new String[fields.length];
+        this.fieldTypes = new Class<?>[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            fieldNames[i] = fields[i].getName();
+            fieldTypes[i] = fields[i].getType();
+        }
+        this.fieldIndexes = new HashMap<String, Integer>();
+        for (int i = 0; i < fieldNames.length; i++) {
+            // a field hides the fields of the same name in its super classes
+            if (!fieldIndexes.containsKey(fieldNames[i])) {
+                fieldIndexes.put(fieldNames[i], i);
+            }
+        }
+    }
+
+    @Override
+    public Class getType() {
+        return type;
+    }
+
+    @Override
+    public Object readMap(AbstractHessianInput in) throws IOException {
+        try {
+            Object obj = newInstance();
+            in.addRef(obj);
+            while (!in.isEnd()) {
+                Object key = in.readObject();
+                Integer index = key instanceof String ? fieldIndexes.get(key) : null;
+                if (index == null) {
+                    in.readObject();
+                } else {
+                    readField(obj, index, in);
+                }
+            }
+            in.readMapEnd();
+            return obj;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(type.getName() + ":" + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object readObject(AbstractHessianInput in, String[] names) throws IOException {
+        try {
+            int[] indexes = getIndexes(names);
+            Object obj = newInstance();
+            in.addRef(obj);
+            for (int index : indexes) {
+                if (index < 0) {
+                    in.readObject();
+                } else {
+                    readField(obj, index, in);
+                }
+            }
+            return obj;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(type.getName() + ":" + e.getMessage(), e);
+        }
+    }
+
+    private int[] getIndexes(String[] names) {
+        FieldIndexes last = lastIndexes;
+        if (last != null && last.names == names) {
+            return last.indexes;
+        }
+        int[] indexes = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Integer index = fieldIndexes.get(names[i]);
+            indexes[i] = index == null ? -1 : index;
+        }
+        lastIndexes = new FieldIndexes(names, indexes);
+        return indexes;
+    }
+
+    protected Object readObject(AbstractHessianInput in, int index) throws IOException {
+        Class<?> fieldType = fieldTypes[index];
+        Object value = in.readObject(fieldType);
+        if (value != null && !fieldType.isInstance(value)) {
+            throw new IOException(type.getName() + "." + fieldNames[index] + ": " + value.getClass().getName()
+                    + " cannot be assigned to " + fieldType.getName());
+        }
+        return value;
+    }
+
+    protected IOException accessFailed(IllegalAccessException e) {
+        return new IOException(type.getName() + ": " + e.getMessage(), e);
+    }
+
+    protected static char readChar(AbstractHessianInput in) throws IOException {
+        String value = in.readString();
+        return value == null || value.length() == 0 ? (char) 0 : value.charAt(0);
+    }
+
+    protected abstract Object newInstance();
+
+    /**
+     * @param obj   object being read
+     * @param index index of the field in the serializer's field order
+     * @param in    hessian input
+     */
+    protected abstract void readField(Object obj, int index, AbstractHessianInput in) throws IOException;
+
+    private static final class FieldIndexes {
+
+        final String[] names;
+
+        final int[] indexes;
+
+        FieldIndexes(String[] names, int[] indexes) {
+            this.names = names;
+            this.indexes = indexes;
+        }
+    }
+
+}
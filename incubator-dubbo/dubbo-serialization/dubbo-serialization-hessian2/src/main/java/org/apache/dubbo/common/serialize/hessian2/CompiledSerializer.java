@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.common.serialize.hessian2;
+
+import com.alibaba.com.caucho.hessian.io.AbstractHessianOutput;
+import com.alibaba.com.caucho.hessian.io.AbstractSerializer;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+
+/**
+ * Base class of the serializers generated by {@link CompiledSerializerFactory}.
+ * <p>
+ * Writes the same stream as Hessian's reflective <code>JavaSerializer</code>: the class definition on first
+ * use, then the fields in definition order, or a typed map for Hessian 1 style output. The generated
+ * subclass only implements {@link #writeFields(Object, AbstractHessianOutput, boolean)}, reading every field
+ * directly or through its getter, and through its accessible {@link Field} in {@link #fields} when neither is
+ * public.
+ */
+public abstract class CompiledSerializer extends AbstractSerializer {
+
+    protected Field[] fields;
+
+    private String className;
+
+    private String[] fieldNames;
+
+    void init(Class<?> type, Field[] fields) {
+        this.className = type.getName();
+        this.fields = fields;
+        this.fieldNames = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            fieldNames[i] = fields[i].getName();
+        }
+    }
+
+    @Override
+    public void writeObject(Object obj, AbstractHessianOutput out) throws IOException {
+        if (out.addRef(obj)) {
+            return;
+        }
+        int ref = out.writeObjectBegin(className);
+        if (ref < -1) {
+            writeFields(obj, out, true);
+            out.writeMapEnd();
+        } else {
+            if (ref == -1) {
+                // class definition, same as AbstractHessianOutput.writeClassFieldLength
+                out.writeInt(fieldNames.length);
+                for (String fieldName : fieldNames) {
+                    out.writeString(fieldName);
+                }
+                out.writeObjectBegin(className);
+            }
+            writeFields(obj, out, false);
+        }
+    }
+
+    /**
+     * @param obj   object to write
+     * @param out   hessian output
+     * @param named whether every field value is preceded by the field name
+     */
+    protected abstract void writeFields(Object obj, AbstractHessianOutput out, boolean named) throws IOException;
+
+    protected IOException accessFailed(IllegalAccessException e) {
+        return new IOException(className + ": " + e.getMessage(), e);
+    }
+
+}
@@ -0,0 +1,453 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.common.serialize.hessian2;
+
+import com.alibaba.com.caucho.hessian.io.AbstractHessianInput;
+import com.alibaba.com.caucho.hessian.io.AbstractHessianOutput;
+import com.alibaba.com.caucho.hessian.io.AbstractSerializerFactory;
+import com.alibaba.com.caucho.hessian.io.Deserializer;
+import com.alibaba.com.caucho.hessian.io.Serializer;
+import org.apache.dubbo.common.bytecode.ClassGenerator;
+import org.apache.dubbo.common.logger.Logger;
+import org.apache.dubbo.common.logger.LoggerFactory;
+import org.apache.dubbo.common.serialize.support.SerializableClassRegistry;
+import org.apache.dubbo.common.utils.ClassHelper;
+import org.apache.dubbo.common.utils.ReflectUtils;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates a serializer and a deserializer for every class registered through
+ * {@link org.apache.dubbo.common.serialize.support.SerializableClassRegistry}, i.e. by a
+ * <code>SerializationOptimizer</code>, instead of Hessian's reflective <code>JavaSerializer</code>.
+ * <p>
+ * The generated code reads and writes every field with a constant index instead of a name lookup, in the order
+ * and with the encoding of the reflective serializer, so the wire format does not change. Public fields and the
+ * public getters and setters declared next to a field are accessed directly, only the other fields go through a
+ * {@link Field} resolved once. Classes are looked up in the registry on every call, so a class registered after
+ * it was first serialized is compiled from then on. Classes the generated code could not handle the same way (no public default constructor, <code>writeReplace</code> or
+ * <code>readResolve</code> methods, date fields, ...) are left to Hessian.
+ */
+public class CompiledSerializerFactory extends AbstractSerializerFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompiledSerializerFactory.class);
+
+    private static final AtomicLong CLASS_COUNTER = new AtomicLong(0);
+
+    private static final Compiled NOT_COMPILED = new Compiled(null, null);
+
+    private final ConcurrentMap<Class<?>, Compiled> compiledClasses = new ConcurrentHashMap<Class<?>, Compiled>();
+
+    // registered classes by name, rebuilt when the registry grew since
+    private volatile Map<String, Class<?>> registeredNames = new HashMap<String, Class<?>>();
+
+    private volatile int registeredCount;
+
+    @Override
+    public Serializer getSerializer(Class cl) {
+        return getCompiled(cl).serializer;
+    }
+
+    @Override
+    public Deserializer getDeserializer(Class cl) {
+        return getCompiled(cl).deserializer;
+    }
+
+    /**
+     * @param type class name read from the stream
+     * @return the compiled deserializer of the registered class of that name, or null
+     */
+    public Deserializer getDeserializer(String type) {
+        Class<?> cl = getRegisteredClass(type);
+        return cl == null ? null : getDeserializer(cl);
+    }
+
+    private Class<?> getRegisteredClass(String name) {
+        Map<Class, Object> registered = SerializableClassRegistry.getRegisteredClasses();
+        if (registeredCount != registered.size()) {
+            Map<String, Class<?>> names = new HashMap<String, Class<?>>();
+            for (Class<?> cl : registered.keySet()) {
+                names.put(cl.getName(), cl);
+            }
+            registeredNames = names;
+            registeredCount = registered.size();
+        }
+        return registeredNames.get(name);
+    }
+
+    private Compiled getCompiled(Class<?> cl) {
+        if (cl == null || !SerializableClassRegistry.getRegisteredClasses().containsKey(cl)) {
+            return NOT_COMPILED;
+        }
+        Compiled compiled = compiledClasses.get(cl);
+        if (compiled == null) {
+            compiled = compile(cl);
+            Compiled old = compiledClasses.putIfAbsent(cl, compiled);
+            if (old != null) {
+                compiled = old;
+            }
+        }
+        return compiled;
+    }
+
+    private static Compiled compile(Class<?> cl) {
+        if (!isCompilable(cl)) {
+            return NOT_COMPILED;
+        }
+        List<Field> fields = getFields(cl);
+        for (Field field : fields) {
+            if (Date.class.isAssignableFrom(field.getType())) {
+                // hessian writes date fields as utc dates whatever their runtime class
+                return NOT_COMPILED;
+            }
+        }
+        try {
+            Field[] accessors = fields.toArray(new Field[fields.size()]);
+            for (Field field : accessors) {
+                if (getter(cl, field) == null || setter(cl, field) == null) {
+                    field.setAccessible(true);
+                }
+            }
+            CompiledSerializer serializer = (CompiledSerializer) makeSerializer(cl, fields).newInstance();
+            serializer.init(cl, accessors);
+            CompiledDeserializer deserializer = (CompiledDeserializer) makeDeserializer(cl, fields).newInstance();
+            deserializer.init(cl, accessors);
+            return new Compiled(serializer, deserializer);
+        } catch (Throwable t) {
+            logger.warn("Failed to generate hessian2 serializer of " + cl.getName()
+                    + ", fall back to reflective serialization: " + t.getMessage(), t);
+            return NOT_COMPILED;
+        }
+    }
+
+    /**
+     * Only plain serializable beans, anything hessian serializes in another way is left to it.
+     */
+    static boolean isCompilable(Class<?> cl) {
+        int modifiers = cl.getModifiers();
+        if (cl.isArray() || cl.isPrimitive() || cl.isEnum() || cl.isInterface()
+                || !Modifier.isPublic(modifiers) || Modifier.isAbstract(modifiers)
+                || cl.getName().startsWith("java.")
+                || !Serializable.class.isAssignableFrom(cl)
+                || Throwable.class.isAssignableFrom(cl)
+                || Collection.class.isAssignableFrom(cl)
+                || Map.class.isAssignableFrom(cl)) {
+            return false;
+        }
+        try {
+            cl.getConstructor();
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+        for (Class<?> c = cl; c != null; c = c.getSuperclass()) {
+            if (hasMethod(c, "writeReplace") || hasMethod(c, "readResolve")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasMethod(Class<?> cl, String name) {
+        try {
+            cl.getDeclaredMethod(name);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Same fields and order as hessian's <code>JavaSerializer</code>: primitive and <code>java.lang</code>
+     * fields first, the others after, both from the class up to its super classes.
+     */
+    static List<Field> getFields(Class<?> cl) {
+        List<Field> primitiveFields = new ArrayList<Field>();
+        List<Field> compoundFields = new ArrayList<Field>();
+        for (; cl != null; cl = cl.getSuperclass()) {
+            for (Field field : cl.getDeclaredFields()) {
+                if (Modifier.isTransient(field.getModifiers()) || Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                Class<?> type = field.getType();
+                if (type.isPrimitive() || (type.getName().startsWith("java.lang.") && !type.equals(Object.class))) {
+                    primitiveFields.add(field);
+                } else {
+                    compoundFields.add(field);
+                }
+            }
+        }
+        List<Field> fields = new ArrayList<Field>(primitiveFields);
+        fields.addAll(compoundFields);
+        return fields;
+    }
+
+    private static Class<?> makeSerializer(Class<?> cl, List<Field> fields) {
+        StringBuilder code = new StringBuilder("public void writeFields(Object obj, ")
+                .append(AbstractHessianOutput.class.getName()).append(" out, boolean named) throws java.io.IOException {");
+        boolean reflective = false;
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            String value = getter(cl, field);
+            if (value == null) {
+                value = reflectiveGet(field.getType(), "fields[" + i + "]");
+                reflective = true;
+            }
+            body.append(" if (named) { out.writeString(\"").append(field.getName()).append("\"); }");
+            body.append(" out.").append(write(field.getType(), value)).append(';');
+        }
+        code.append(tryAccess(body, reflective)).append(" }");
+
+        ClassGenerator cc = ClassGenerator.newInstance(ClassHelper.getClassLoader(cl));
+        try {
+            cc.setClassName(CompiledSerializer.class.getName() + CLASS_COUNTER.getAndIncrement());
+            cc.setSuperClass(CompiledSerializer.class);
+            cc.addDefaultConstructor();
+            cc.addMethod(code.toString());
+            return cc.toClass();
+        } finally {
+            cc.release();
+        }
+    }
+
+    private static Class<?> makeDeserializer(Class<?> cl, List<Field> fields) {
+        StringBuilder code = new StringBuilder("public void readField(Object obj, int index, ")
+                .append(AbstractHessianInput.class.getName()).append(" in) throws java.io.IOException {");
+        boolean reflective = false;
+        StringBuilder body = new StringBuilder(" switch (index) {");
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            String value = read(field.getType(), i);
+            String assignment = setter(cl, field);
+            if (assignment == null) {
+                assignment = reflectiveSet(field.getType(), "fields[" + i + "]", value);
+                reflective = true;
+            } else {
+                assignment = String.format(assignment, cast(field.getType(), value));
+            }
+            body.append(" case ").append(i).append(": ").append(assignment).append("; return;");
+        }
+        body.append(" default: in.readObject(); }");
+        code.append(tryAccess(body, reflective)).append(" }");
+
+        ClassGenerator cc = ClassGenerator.newInstance(ClassHelper.getClassLoader(cl));
+        try {
+            cc.setClassName(CompiledDeserializer.class.getName() + CLASS_COUNTER.getAndIncrement());
+            cc.setSuperClass(CompiledDeserializer.class);
+            cc.addDefaultConstructor();
+            cc.addMethod("public Object newInstance() { return new " + cl.getName() + "(); }");
+            cc.addMethod(code.toString());
+            return cc.toClass();
+        } finally {
+            cc.release();
+        }
+    }
+
+    private static String tryAccess(StringBuilder body, boolean reflective) {
+        if (!reflective) {
+            return body.toString();
+        }
+        return " try {" + body + " } catch (IllegalAccessException e) { throw accessFailed(e); }";
+    }
+
+    /**
+     * @return expression reading the field of <code>obj</code> directly or through its getter, or null if
+     * neither is accessible to the generated class
+     */
+    static String getter(Class<?> cl, Field field) {
+        if (!isVisible(field.getDeclaringClass()) || !isVisible(field.getType())) {
+            return null;
+        }
+        String target = "((" + ReflectUtils.getName(field.getDeclaringClass()) + ") obj).";
+        if (Modifier.isPublic(field.getModifiers())) {
+            return target + field.getName();
+        }
+        String property = Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+        Method method = getAccessor(cl, field, (field.getType() == boolean.class ? "is" : "get") + property);
+        if (method != null && method.getReturnType() == field.getType()) {
+            return target + method.getName() + "()";
+        }
+        return null;
+    }
+
+    /**
+     * @return format of the statement setting the field of <code>obj</code> to the value given as its only
+     * argument, directly or through its setter, or null if neither is accessible to the generated class
+     */
+    static String setter(Class<?> cl, Field field) {
+        if (!isVisible(field.getDeclaringClass()) || !isVisible(field.getType())) {
+            return null;
+        }
+        String target = "((" + ReflectUtils.getName(field.getDeclaringClass()) + ") obj).";
+        if (Modifier.isPublic(field.getModifiers())) {
+            return Modifier.isFinal(field.getModifiers()) ? null : target + field.getName() + " = %s";
+        }
+        String property = Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+        Method method = getAccessor(cl, field, "set" + property, field.getType());
+        if (method != null && method.getReturnType() == void.class) {
+            return target + method.getName() + "(%s)";
+        }
+        return null;
+    }
+
+    /**
+     * Only an accessor declared next to the field, one overridden in a subclass may not read or write it.
+     */
+    private static Method getAccessor(Class<?> cl, Field field, String name, Class<?>... parameterTypes) {
+        try {
+            Method method = cl.getMethod(name, parameterTypes);
+            if (method.getDeclaringClass() == field.getDeclaringClass() && !Modifier.isStatic(method.getModifiers())) {
+                return method;
+            }
+        } catch (NoSuchMethodException e) {
+            // not a bean property, accessed through its field
+        }
+        return null;
+    }
+
+    private static boolean isVisible(Class<?> cl) {
+        while (cl.isArray()) {
+            cl = cl.getComponentType();
+        }
+        for (; cl != null; cl = cl.getDeclaringClass()) {
+            if (!cl.isPrimitive() && !Modifier.isPublic(cl.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String reflectiveGet(Class<?> type, String field) {
+        if (type == boolean.class) {
+            return field + ".getBoolean(obj)";
+        } else if (type == byte.class) {
+            return field + ".getByte(obj)";
+        } else if (type == short.class) {
+            return field + ".getShort(obj)";
+        } else if (type == int.class) {
+            return field + ".getInt(obj)";
+        } else if (type == long.class) {
+            return field + ".getLong(obj)";
+        } else if (type == float.class) {
+            return field + ".getFloat(obj)";
+        } else if (type == double.class) {
+            return field + ".getDouble(obj)";
+        } else if (type == char.class) {
+            return field + ".getChar(obj)";
+        } else if (type == String.class) {
+            return "(String) " + field + ".get(obj)";
+        }
+        return field + ".get(obj)";
+    }
+
+    private static String reflectiveSet(Class<?> type, String field, String value) {
+        if (type == boolean.class) {
+            return field + ".setBoolean(obj, " + value + ")";
+        } else if (type == byte.class) {
+            return field + ".setByte(obj, " + value + ")";
+        } else if (type == short.class) {
+            return field + ".setShort(obj, " + value + ")";
+        } else if (type == int.class) {
+            return field + ".setInt(obj, " + value + ")";
+        } else if (type == long.class) {
+            return field + ".setLong(obj, " + value + ")";
+        } else if (type == float.class) {
+            return field + ".setFloat(obj, " + value + ")";
+        } else if (type == double.class) {
+            return field + ".setDouble(obj, " + value + ")";
+        } else if (type == char.class) {
+            return field + ".setChar(obj, " + value + ")";
+        }
+        return field + ".set(obj, " + value + ")";
+    }
+
+    private static String cast(Class<?> type, String value) {
+        if (type.isPrimitive() || type == String.class) {
+            return value;
+        }
+        return "(" + ReflectUtils.getName(type) + ") " + value;
+    }
+
+    private static String write(Class<?> type, String value) {
+        if (type == boolean.class) {
+            return "writeBoolean(" + value + ")";
+        } else if (type == byte.class || type == short.class) {
+            return "writeInt((int) " + value + ")";
+        } else if (type == int.class) {
+            return "writeInt(" + value + ")";
+        } else if (type == long.class) {
+            return "writeLong(" + value + ")";
+        } else if (type == float.class) {
+            return "writeDouble((double) " + value + ")";
+        } else if (type == double.class) {
+            return "writeDouble(" + value + ")";
+        } else if (type == char.class) {
+            return "writeString(String.valueOf(" + value + "))";
+        } else if (type == String.class) {
+            return "writeString(" + value + ")";
+        }
+        return "writeObject(" + value + ")";
+    }
+
+    private static String read(Class<?> type, int index) {
+        if (type == boolean.class) {
+            return "in.readBoolean()";
+        } else if (type == byte.class) {
+            return "(byte) in.readInt()";
+        } else if (type == short.class) {
+            return "(short) in.readInt()";
+        } else if (type == int.class) {
+            return "in.readInt()";
+        } else if (type == long.class) {
+            return "in.readLong()";
+        } else if (type == float.class) {
+            return "(float) in.readDouble()";
+        } else if (type == double.class) {
+            return "in.readDouble()";
+        } else if (type == char.class) {
+            return "readChar(in)";
+        } else if (type == String.class) {
+            return "in.readString()";
+        }
+        return "readObject(in, " + index + ")";
+    }
+
+    private static final class Compiled {
+
+        final CompiledSerializer serializer;
+
+        final CompiledDeserializer deserializer;
+
+        Compiled(CompiledSerializer serializer, CompiledDeserializer deserializer) {
+            this.serializer = serializer;
+            this.deserializer = deserializer;
+        }
+    }
+
+}
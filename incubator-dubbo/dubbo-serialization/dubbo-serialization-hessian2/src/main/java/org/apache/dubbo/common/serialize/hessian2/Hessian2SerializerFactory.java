@@ -16,15 +16,40 @@
  */
 package org.apache.dubbo.common.serialize.hessian2;
 
+import com.alibaba.com.caucho.hessian.io.Deserializer;
+import com.alibaba.com.caucho.hessian.io.HessianProtocolException;
+import com.alibaba.com.caucho.hessian.io.Serializer;
 import com.alibaba.com.caucho.hessian.io.SerializerFactory;
 
 public class Hessian2SerializerFactory extends SerializerFactory {
 
     public static final SerializerFactory SERIALIZER_FACTORY = new Hessian2SerializerFactory();
 
+    // asked before hessian's own caches, which would keep the reflective serializer of a class serialized
+    // before it was registered
+    private final CompiledSerializerFactory compiledFactory = new CompiledSerializerFactory();
+
     private Hessian2SerializerFactory() {
     }
 
+    @Override
+    public Serializer getSerializer(Class cl) throws HessianProtocolException {
+        Serializer serializer = compiledFactory.getSerializer(cl);
+        return serializer != null ? serializer : super.getSerializer(cl);
+    }
+
+    @Override
+    public Deserializer getDeserializer(Class cl) throws HessianProtocolException {
+        Deserializer deserializer = compiledFactory.getDeserializer(cl);
+        return deserializer != null ? deserializer : super.getDeserializer(cl);
+    }
+
+    @Override
+    public Deserializer getDeserializer(String type) throws HessianProtocolException {
+        Deserializer deserializer = compiledFactory.getDeserializer(type);
+        return deserializer != null ? deserializer : super.getDeserializer(type);
+    }
+
     @Override
     public ClassLoader getClassLoader() {
         return Thread.currentThread().getContextClassLoader();
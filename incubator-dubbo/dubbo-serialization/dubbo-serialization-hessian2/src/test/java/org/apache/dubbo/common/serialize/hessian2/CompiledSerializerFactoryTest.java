@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.common.serialize.hessian2;
+
+import com.alibaba.com.caucho.hessian.io.Hessian2Output;
+import com.alibaba.com.caucho.hessian.io.SerializerFactory;
+import org.apache.dubbo.common.serialize.ObjectInput;
+import org.apache.dubbo.common.serialize.ObjectOutput;
+import org.apache.dubbo.common.serialize.support.SerializableClassRegistry;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class CompiledSerializerFactoryTest {
+
+    private final Hessian2Serialization serialization = new Hessian2Serialization();
+
+    @BeforeClass
+    public static void setUpClass() {
+        SerializableClassRegistry.registerClass(Order.class);
+        SerializableClassRegistry.registerClass(Item.class);
+        SerializableClassRegistry.registerClass(Dated.class);
+    }
+
+    @Test
+    public void testCompiledOnlyForRegisteredBeans() throws Exception {
+        CompiledSerializerFactory factory = new CompiledSerializerFactory();
+        assertThat(factory.getSerializer(Order.class), instanceOf(CompiledSerializer.class));
+        assertThat(factory.getDeserializer(Order.class), instanceOf(CompiledDeserializer.class));
+        assertThat(factory.getSerializer(Unregistered.class), nullValue());
+        assertThat(factory.getSerializer(Dated.class), nullValue());
+        assertThat(factory.getDeserializer(Dated.class), nullValue());
+    }
+
+    @Test
+    public void testCompiledOnceRegistered() throws Exception {
+        SerializerFactory factory = Hessian2SerializerFactory.SERIALIZER_FACTORY;
+        assertThat(factory.getSerializer(Late.class), not(instanceOf(CompiledSerializer.class)));
+        assertThat(factory.getDeserializer(Late.class.getName()), not(instanceOf(CompiledDeserializer.class)));
+
+        SerializableClassRegistry.registerClass(Late.class);
+        assertThat(factory.getSerializer(Late.class), instanceOf(CompiledSerializer.class));
+        assertThat(factory.getDeserializer(Late.class.getName()), instanceOf(CompiledDeserializer.class));
+    }
+
+    @Test
+    public void testSameWireFormat() throws Exception {
+        List<Order> orders = Arrays.asList(newOrder(1), newOrder(2));
+        assertArrayEquals(writeReflective(orders), write(orders));
+    }
+
+    @Test
+    public void testReadWrite() throws Exception {
+        List<Order> orders = new ArrayList<Order>(Arrays.asList(newOrder(1), newOrder(2)));
+        orders.add(orders.get(0));
+        byte[] bytes = write(orders);
+
+        ObjectInput in = serialization.deserialize(null, new ByteArrayInputStream(bytes));
+        List<?> result = in.readObject(List.class);
+        assertThat(result.size(), is(3));
+        assertOrder((Order) result.get(0), 1);
+        assertOrder((Order) result.get(1), 2);
+        assertThat(result.get(2) == result.get(0), is(true));
+    }
+
+    @Test
+    public void testReadReflectivelyWritten() throws Exception {
+        byte[] bytes = writeReflective(newOrder(3));
+
+        ObjectInput in = serialization.deserialize(null, new ByteArrayInputStream(bytes));
+        assertOrder(in.readObject(Order.class), 3);
+    }
+
+    private byte[] write(Object obj) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutput out = serialization.serialize(null, bos);
+        out.writeObject(obj);
+        out.flushBuffer();
+        return bos.toByteArray();
+    }
+
+    private byte[] writeReflective(Object obj) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Hessian2Output out = new Hessian2Output(bos);
+        out.setSerializerFactory(new SerializerFactory());
+        out.writeObject(obj);
+        out.flushBuffer();
+        return bos.toByteArray();
+    }
+
+    private static Order newOrder(int id) {
+        Order order = new Order();
+        order.setId(id);
+        order.setCreator("creator" + id);
+        order.setUserId(id * 100L);
+        order.setPaid(id % 2 == 0);
+        order.setLevel((byte) id);
+        order.setPriority((short) -id);
+        order.setDiscount(0.5F);
+        order.setAmount(99.9D * id);
+        order.setCode('A');
+        order.setVersion(id);
+        order.setItems(Arrays.asList(new Item("book", id), new Item("pen", 2)));
+        order.setNote(null);
+        return order;
+    }
+
+    private static void assertOrder(Order order, int id) {
+        assertThat(order.getId(), is(id));
+        assertThat(order.getCreator(), is("creator" + id));
+        assertThat(order.getUserId(), is(id * 100L));
+        assertThat(order.isPaid(), is(id % 2 == 0));
+        assertThat(order.getLevel(), is((byte) id));
+        assertThat(order.getPriority(), is((short) -id));
+        assertThat(order.getDiscount(), is(0.5F));
+        assertThat(order.getAmount(), is(99.9D * id));
+        assertThat(order.getCode(), is('A'));
+        assertThat(order.getVersion(), is(id));
+        assertThat(order.getItems().size(), is(2));
+        assertThat(order.getItems().get(0).getName(), is("book"));
+        assertThat(order.getItems().get(0).getCount(), is(id));
+        assertThat(order.getNote(), nullValue());
+    }
+
+    public static class Base implements Serializable {
+
+        private Integer version;
+
+        public Integer getVersion() {
+            return version;
+        }
+
+        public void setVersion(Integer version) {
+            this.version = version;
+        }
+    }
+
+    public static class Order extends Base {
+
+        private static final long serialVersionUID = 1L;
+
+        private int id;
+
+        private String creator;
+
+        private long userId;
+
+        private boolean paid;
+
+        private byte level;
+
+        private short priority;
+
+        private float discount;
+
+        private double amount;
+
+        private char code;
+
+        private List<Item> items;
+
+        private Object note;
+
+        private transient String cached = "cached";
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getCreator() {
+            return creator;
+        }
+
+        public void setCreator(String creator) {
+            this.creator = creator;
+        }
+
+        public long getUserId() {
+            return userId;
+        }
+
+        public void setUserId(long userId) {
+            this.userId = userId;
+        }
+
+        public boolean isPaid() {
+            return paid;
+        }
+
+        public void setPaid(boolean paid) {
+            this.paid = paid;
+        }
+
+        public byte getLevel() {
+            return level;
+        }
+
+        public void setLevel(byte level) {
+            this.level = level;
+        }
+
+        public short getPriority() {
+            return priority;
+        }
+
+        public void setPriority(short priority) {
+            this.priority = priority;
+        }
+
+        public float getDiscount() {
+            return discount;
+        }
+
+        public void setDiscount(float discount) {
+            this.discount = discount;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+
+        public void setAmount(double amount) {
+            this.amount = amount;
+        }
+
+        public char getCode() {
+            return code;
+        }
+
+        public void setCode(char code) {
+            this.code = code;
+        }
+
+        public List<Item> getItems() {
+            return items;
+        }
+
+        public void setItems(List<Item> items) {
+            this.items = items;
+        }
+
+        public Object getNote() {
+            return note;
+        }
+
+        public void setNote(Object note) {
+            this.note = note;
+        }
+    }
+
+    public static class Item implements Serializable {
+
+        private String name;
+
+        private int count;
+
+        public Item() {
+        }
+
+        public Item(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    public static class Dated implements Serializable {
+
+        private Date date;
+    }
+
+    public static class Late implements Serializable {
+
+        public int id;
+    }
+
+    public static class Unregistered implements Serializable {
+
+        private int id;
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.benchmark;
+
+import org.apache.dubbo.benchmark.service.UserService;
+import org.apache.dubbo.benchmark.service.UserServiceImpl;
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.Version;
+import org.apache.dubbo.common.extension.ExtensionLoader;
+import org.apache.dubbo.remoting.Codec2;
+import org.apache.dubbo.remoting.buffer.ChannelBuffer;
+import org.apache.dubbo.remoting.buffer.ChannelBuffers;
+import org.apache.dubbo.remoting.exchange.Request;
+import org.apache.dubbo.remoting.exchange.Response;
+import org.apache.dubbo.rpc.RpcInvocation;
+import org.apache.dubbo.rpc.RpcResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode of a request and a response through the {@link Codec2} extensions,
+ * "exchange" being the plain header codec and "dubbo" the one of the dubbo protocol.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"dubbo", "exchange"})
+    public String codec;
+
+    @Param({"hessian2", "kryo"})
+    public String serialization;
+
+    private final ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(8192);
+
+    private Codec2 instance;
+
+    private BenchmarkChannel channel;
+
+    private Request request;
+
+    private Response response;
+
+    private ChannelBuffer requestBuffer;
+
+    private ChannelBuffer responseBuffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        instance = ExtensionLoader.getExtensionLoader(Codec2.class).getExtension(codec);
+        channel = new BenchmarkChannel(URL.valueOf("dubbo://127.0.0.1:20880/" + UserService.class.getName()
+                + "?" + Constants.SERIALIZATION_KEY + "=" + serialization));
+
+        RpcInvocation invocation = new RpcInvocation("listUser", new Class<?>[]{int.class}, new Object[]{1});
+        invocation.setAttachment(Constants.PATH_KEY, UserService.class.getName());
+        invocation.setAttachment(Constants.VERSION_KEY, "0.0.0");
+        request = new Request(1);
+        request.setVersion(Version.getProtocolVersion());
+        request.setTwoWay(true);
+        request.setData(invocation);
+
+        response = new Response(1, Version.getProtocolVersion());
+        response.setResult(new RpcResult(UserServiceImpl.newPage(1)));
+
+        requestBuffer = ChannelBuffers.wrappedBuffer(encode(request));
+        responseBuffer = ChannelBuffers.wrappedBuffer(encode(response));
+    }
+
+    @Benchmark
+    public ChannelBuffer encodeRequest() throws IOException {
+        buffer.clear();
+        instance.encode(channel, buffer, request);
+        return buffer;
+    }
+
+    @Benchmark
+    public Object decodeRequest() throws IOException {
+        requestBuffer.readerIndex(0);
+        return instance.decode(channel, requestBuffer);
+    }
+
+    @Benchmark
+    public ChannelBuffer encodeResponse() throws IOException {
+        buffer.clear();
+        instance.encode(channel, buffer, response);
+        return buffer;
+    }
+
+    @Benchmark
+    public Object decodeResponse() throws IOException {
+        responseBuffer.readerIndex(0);
+        return instance.decode(channel, responseBuffer);
+    }
+
+    private byte[] encode(Object message) throws IOException {
+        ChannelBuffer encoded = ChannelBuffers.dynamicBuffer(8192);
+        instance.encode(channel, encoded, message);
+        byte[] bytes = new byte[encoded.readableBytes()];
+        encoded.readBytes(bytes);
+        return bytes;
+    }
+
+}
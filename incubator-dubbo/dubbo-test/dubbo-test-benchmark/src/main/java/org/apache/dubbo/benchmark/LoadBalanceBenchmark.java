@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.benchmark;
+
+import org.apache.dubbo.benchmark.service.UserService;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.extension.ExtensionLoader;
+import org.apache.dubbo.rpc.Invocation;
+import org.apache.dubbo.rpc.Invoker;
+import org.apache.dubbo.rpc.Result;
+import org.apache.dubbo.rpc.RpcInvocation;
+import org.apache.dubbo.rpc.RpcResult;
+import org.apache.dubbo.rpc.RpcStatus;
+import org.apache.dubbo.rpc.cluster.LoadBalance;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selection cost of every {@link LoadBalance} extension. After each selection the invocation is
+ * recorded in {@link RpcStatus} the way the active limit filter does, with an elapsed time that
+ * depends on the chosen provider, so the adaptive strategies see a realistic feedback loop.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBalanceBenchmark {
+
+    private static final String METHOD = "getUser";
+
+    @Param({"random", "roundrobin", "leastactive", "consistenthash", "peakewma"})
+    public String loadbalance;
+
+    @Param({"10", "100"})
+    public int providers;
+
+    private final List<Invoker<UserService>> invokers = new ArrayList<Invoker<UserService>>();
+
+    private LoadBalance instance;
+
+    private URL consumerUrl;
+
+    private RpcInvocation invocation;
+
+    private long sequence;
+
+    @Setup
+    public void setUp() {
+        instance = ExtensionLoader.getExtensionLoader(LoadBalance.class).getExtension(loadbalance);
+        for (int i = 0; i < providers; i++) {
+            invokers.add(new BenchmarkInvoker(URL.valueOf("dubbo://10.0.0." + (i + 1) + ":20880/"
+                    + UserService.class.getName() + "?weight=100&loadbalance=" + loadbalance)));
+        }
+        consumerUrl = URL.valueOf("consumer://10.0.1.1/" + UserService.class.getName() + "?loadbalance=" + loadbalance);
+        invocation = new RpcInvocation(METHOD, new Class<?>[]{long.class}, new Object[]{0L});
+    }
+
+    @Benchmark
+    public Invoker<UserService> select() {
+        invocation.getArguments()[0] = sequence++;
+        Invoker<UserService> invoker = instance.select(invokers, consumerUrl, invocation);
+        URL url = invoker.getUrl();
+        RpcStatus.beginCount(url, METHOD);
+        RpcStatus.endCount(url, METHOD, url.getHost().length(), true);
+        return invoker;
+    }
+
+    private static class BenchmarkInvoker implements Invoker<UserService> {
+
+        private final URL url;
+
+        BenchmarkInvoker(URL url) {
+            this.url = url;
+        }
+
+        @Override
+        public Class<UserService> getInterface() {
+            return UserService.class;
+        }
+
+        @Override
+        public Result invoke(Invocation invocation) {
+            return new RpcResult();
+        }
+
+        @Override
+        public URL getUrl() {
+            return url;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.benchmark;
+
+import org.apache.dubbo.benchmark.service.Page;
+import org.apache.dubbo.benchmark.service.User;
+import org.apache.dubbo.benchmark.service.UserService;
+import org.apache.dubbo.benchmark.service.UserServiceImpl;
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.extension.ExtensionLoader;
+import org.apache.dubbo.common.utils.NetUtils;
+import org.apache.dubbo.rpc.Exporter;
+import org.apache.dubbo.rpc.Invoker;
+import org.apache.dubbo.rpc.Protocol;
+import org.apache.dubbo.rpc.ProxyFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end invocations of the dubbo protocol over loopback, from the consumer proxy through the
+ * filter chains, codec and transport to the provider implementation and back.
+ * Run with more threads (<code>-t</code>) to put the shared connection under concurrent load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProtocolBenchmark {
+
+    @Param({"hessian2", "kryo", "fst"})
+    public String serialization;
+
+    @Param({"netty4"})
+    public String transporter;
+
+    private final Protocol protocol = ExtensionLoader.getExtensionLoader(Protocol.class).getAdaptiveExtension();
+
+    private final ProxyFactory proxyFactory = ExtensionLoader.getExtensionLoader(ProxyFactory.class).getAdaptiveExtension();
+
+    private Exporter<UserService> exporter;
+
+    private Invoker<UserService> invoker;
+
+    private UserService userService;
+
+    @Setup
+    public void setUp() {
+        URL url = URL.valueOf("dubbo://127.0.0.1:" + NetUtils.getAvailablePort() + "/" + UserService.class.getName())
+                .addParameter(Constants.SERIALIZATION_KEY, serialization)
+                .addParameter(Constants.TRANSPORTER_KEY, transporter)
+                .addParameter(Constants.TIMEOUT_KEY, 10000);
+        exporter = protocol.export(proxyFactory.getInvoker(new UserServiceImpl(), UserService.class, url));
+        invoker = protocol.refer(UserService.class, url);
+        userService = proxyFactory.getProxy(invoker);
+    }
+
+    @TearDown
+    public void tearDown() {
+        invoker.destroy();
+        exporter.unexport();
+        ExtensionLoader.getExtensionLoader(Protocol.class).getExtension("dubbo").destroy();
+    }
+
+    @Benchmark
+    public String echo() {
+        return userService.echo("benchmark");
+    }
+
+    @Benchmark
+    public User getUser() {
+        return userService.getUser(1);
+    }
+
+    @Benchmark
+    public Page listUser() {
+        return userService.listUser(1);
+    }
+
+}
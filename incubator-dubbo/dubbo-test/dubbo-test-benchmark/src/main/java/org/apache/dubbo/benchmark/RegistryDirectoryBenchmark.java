@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.benchmark;
+
+import org.apache.dubbo.benchmark.service.UserService;
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.extension.ExtensionLoader;
+import org.apache.dubbo.registry.RegistryService;
+import org.apache.dubbo.registry.integration.RegistryDirectory;
+import org.apache.dubbo.rpc.Protocol;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a provider notification pushed by the registry. Every notification alternates between
+ * two lists which differ in one provider, the common case of a single instance restarting.
+ * Providers are referred lazily so that no connection is opened.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistryDirectoryBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int providers;
+
+    private RegistryDirectory<UserService> directory;
+
+    private List<URL> urls;
+
+    private List<URL> changedUrls;
+
+    private boolean changed;
+
+    @Setup
+    public void setUp() {
+        String service = UserService.class.getName();
+        URL registryUrl = URL.valueOf("registry://127.0.0.1:2181/" + RegistryService.class.getName()
+                + "?" + Constants.REFER_KEY + "=" + URL.encode(Constants.INTERFACE_KEY + "=" + service));
+        directory = new RegistryDirectory<UserService>(UserService.class, registryUrl);
+        directory.setProtocol(ExtensionLoader.getExtensionLoader(Protocol.class).getAdaptiveExtension());
+        urls = new ArrayList<URL>(providers);
+        for (int i = 0; i < providers; i++) {
+            urls.add(providerUrl(i));
+        }
+        changedUrls = new ArrayList<URL>(urls);
+        changedUrls.set(providers / 2, providerUrl(providers));
+        directory.notify(urls);
+    }
+
+    @TearDown
+    public void tearDown() {
+        directory.destroy();
+    }
+
+    @Benchmark
+    public RegistryDirectory<UserService> notifyProviders() {
+        changed = !changed;
+        directory.notify(changed ? changedUrls : urls);
+        return directory;
+    }
+
+    private static URL providerUrl(int i) {
+        return URL.valueOf("dubbo://10.0." + (i / 250) + "." + (i % 250 + 1) + ":20880/" + UserService.class.getName()
+                + "?lazy=true&side=provider&methods=echo,getUser,listUser&timeout=3000&weight=100&anyhost=true");
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.benchmark;
+
+import org.apache.dubbo.benchmark.service.Page;
+import org.apache.dubbo.benchmark.service.User;
+import org.apache.dubbo.benchmark.service.UserServiceImpl;
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.extension.ExtensionLoader;
+import org.apache.dubbo.common.io.UnsafeByteArrayInputStream;
+import org.apache.dubbo.common.io.UnsafeByteArrayOutputStream;
+import org.apache.dubbo.common.serialize.Cleanable;
+import org.apache.dubbo.common.serialize.ObjectInput;
+import org.apache.dubbo.common.serialize.ObjectOutput;
+import org.apache.dubbo.common.serialize.Serialization;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of the benchmark DTOs through every {@link Serialization} extension.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"hessian2", "fastjson", "fst", "kryo", "java"})
+    public String serialization;
+
+    private final URL url = URL.valueOf("dubbo://127.0.0.1:20880/benchmark");
+
+    private final UnsafeByteArrayOutputStream output = new UnsafeByteArrayOutputStream(4096);
+
+    private Serialization instance;
+
+    private User user;
+
+    private Page page;
+
+    private byte[] userBytes;
+
+    private byte[] pageBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        instance = ExtensionLoader.getExtensionLoader(Serialization.class).getExtension(serialization);
+        user = UserServiceImpl.newUser(1);
+        page = UserServiceImpl.newPage(1);
+        userBytes = serialize(user);
+        pageBytes = serialize(page);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws IOException {
+        return serialize(user);
+    }
+
+    @Benchmark
+    public User deserializeUser() throws IOException, ClassNotFoundException {
+        return deserialize(userBytes, User.class);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws IOException {
+        return serialize(page);
+    }
+
+    @Benchmark
+    public Page deserializePage() throws IOException, ClassNotFoundException {
+        return deserialize(pageBytes, Page.class);
+    }
+
+    private byte[] serialize(Object value) throws IOException {
+        output.reset();
+        ObjectOutput out = instance.serialize(url, output);
+        out.writeObject(value);
+        out.flushBuffer();
+        if (out instanceof Cleanable) {
+            ((Cleanable) out).cleanup();
+        }
+        return output.toByteArray();
+    }
+
+    private <T> T deserialize(byte[] bytes, Class<T> type) throws IOException, ClassNotFoundException {
+        ObjectInput in = instance.deserialize(url, new UnsafeByteArrayInputStream(bytes));
+        T value = in.readObject(type);
+        if (in instanceof Cleanable) {
+            ((Cleanable) in).cleanup();
+        }
+        return value;
+    }
+
+}
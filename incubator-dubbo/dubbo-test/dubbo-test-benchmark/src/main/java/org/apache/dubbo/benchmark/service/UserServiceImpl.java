@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.benchmark.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class UserServiceImpl implements UserService {
+
+    public static final int PAGE_SIZE = 15;
+
+    public static User newUser(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setName("Doug Lea");
+        user.setEmail("dlea@example.com");
+        user.setAge(35);
+        user.setScore(99.5);
+        user.setActive(true);
+        user.setCreateTime(new Date(1535731200000L));
+        user.setTags(Arrays.asList("concurrency", "collections", "java"));
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("department", "computer science");
+        properties.put("city", "Oswego");
+        user.setProperties(properties);
+        return user;
+    }
+
+    public static Page newPage(int pageNo) {
+        List<User> users = new ArrayList<User>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            users.add(newUser(pageNo * PAGE_SIZE + i));
+        }
+        Page page = new Page();
+        page.setPageNo(pageNo);
+        page.setTotal(1000);
+        page.setResult(users);
+        return page;
+    }
+
+    @Override
+    public String echo(String message) {
+        return message;
+    }
+
+    @Override
+    public User getUser(long id) {
+        return newUser(id);
+    }
+
+    @Override
+    public Page listUser(int pageNo) {
+        return newPage(pageNo);
+    }
+
+}
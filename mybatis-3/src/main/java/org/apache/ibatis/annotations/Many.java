@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2016 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -33,4 +33,14 @@ public @interface Many {
 
   FetchType fetchType() default FetchType.DEFAULT;
 
+  /**
+   * @since 3.5.0
+   */
+  String batchSelect() default "";
+
+  /**
+   * @since 3.5.0
+   */
+  String batchKeyProperty() default "";
+
 }
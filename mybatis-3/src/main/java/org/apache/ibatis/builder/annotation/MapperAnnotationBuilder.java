@@ -550,6 +550,8 @@ public class MapperAnnotationBuilder {
           result.javaType() == void.class ? null : result.javaType(),
           result.jdbcType() == JdbcType.UNDEFINED ? null : result.jdbcType(),
           hasNestedSelect(result) ? nestedSelectId(result) : null,
+          nestedBatchSelectId(result),
+          batchKeyProperty(result),
           null,
           null,
           null,
@@ -573,6 +575,28 @@ public class MapperAnnotationBuilder {
     return nestedSelect;
   }
 
+  private String nestedBatchSelectId(Result result) {
+    String nestedBatchSelect = result.one().batchSelect();
+    if (nestedBatchSelect.length() < 1) {
+      nestedBatchSelect = result.many().batchSelect();
+    }
+    if (nestedBatchSelect.length() < 1) {
+      return null;
+    }
+    if (!nestedBatchSelect.contains(".")) {
+      nestedBatchSelect = type.getName() + "." + nestedBatchSelect;
+    }
+    return nestedBatchSelect;
+  }
+
+  private String batchKeyProperty(Result result) {
+    String batchKeyProperty = result.one().batchKeyProperty();
+    if (batchKeyProperty.length() < 1) {
+      batchKeyProperty = result.many().batchKeyProperty();
+    }
+    return nullOrEmpty(batchKeyProperty);
+  }
+
   private boolean isLazy(Result result) {
     boolean isLazy = configuration.isLazyLoadingEnabled();
     if (result.one().select().length() > 0 && FetchType.DEFAULT != result.one().fetchType()) {
@@ -16,56 +16,62 @@
 package org.apache.ibatis.cache;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import org.apache.ibatis.reflection.ArrayUtil;
 
 /**
+ * The key of cached results, made of the objects it was updated with.
+ * <p>
+ * The objects are kept in an array and their hash codes are combined into a 64-bit hash, so that two keys of
+ * different objects almost never get past the comparison of their hashes and their objects are only compared when
+ * the keys are equal.
+ *
  * @author Clinton Begin
  */
 public class CacheKey implements Cloneable, Serializable {
 
-  private static final long serialVersionUID = 1146682552656046210L;
+  private static final long serialVersionUID = -6484155484418727386L;
 
   public static final CacheKey NULL_CACHE_KEY = new NullCacheKey();
 
-  private static final int DEFAULT_MULTIPLYER = 37;
-  private static final int DEFAULT_HASHCODE = 17;
+  private static final Object[] EMPTY_UPDATE_LIST = new Object[0];
+  private static final int DEFAULT_CAPACITY = 8;
+
+  // constants of the 64-bit MurmurHash3
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
 
-  private final int multiplier;
-  private int hashcode;
-  private long checksum;
+  private long hash;
   private int count;
   // 8/21/2017 - Sonarlint flags this as needing to be marked transient.  While true if content is not serializable, this is not always true and thus should not be marked transient.
-  private List<Object> updateList;
+  private Object[] updateList;
 
   public CacheKey() {
-    this.hashcode = DEFAULT_HASHCODE;
-    this.multiplier = DEFAULT_MULTIPLYER;
-    this.count = 0;
-    this.updateList = new ArrayList<>();
+    this.updateList = EMPTY_UPDATE_LIST;
   }
 
   public CacheKey(Object[] objects) {
-    this();
+    this.updateList = new Object[Math.max(objects.length, DEFAULT_CAPACITY)];
     updateAll(objects);
   }
 
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   public void update(Object object) {
-    int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object); 
-
-    count++;
-    checksum += baseHashCode;
-    baseHashCode *= count;
-
-    hashcode = multiplier * hashcode + baseHashCode;
-
-    updateList.add(object);
+    long k = object == null ? 1 : ArrayUtil.hashCode(object);
+    k *= C1;
+    k = Long.rotateLeft(k, 31);
+    k *= C2;
+    hash ^= k;
+    hash = Long.rotateLeft(hash, 27) * 5 + 0x52dce729;
+
+    if (count == updateList.length) {
+      updateList = Arrays.copyOf(updateList, Math.max(count * 2, DEFAULT_CAPACITY));
+    }
+    updateList[count++] = object;
   }
 
   public void updateAll(Object[] objects) {
@@ -85,20 +91,17 @@ public class CacheKey implements Cloneable, Serializable {
 
     final CacheKey cacheKey = (CacheKey) object;
 
-    if (hashcode != cacheKey.hashcode) {
-      return false;
-    }
-    if (checksum != cacheKey.checksum) {
+    if (hash != cacheKey.hash) {
       return false;
     }
     if (count != cacheKey.count) {
       return false;
     }
 
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
-      if (!ArrayUtil.equals(thisObject, thatObject)) {
+    for (int i = 0; i < count; i++) {
+      Object thisObject = updateList[i];
+      Object thatObject = cacheKey.updateList[i];
+      if (thisObject != thatObject && !ArrayUtil.equals(thisObject, thatObject)) {
         return false;
       }
     }
@@ -107,14 +110,21 @@ public class CacheKey implements Cloneable, Serializable {
 
   @Override
   public int hashCode() {
-    return hashcode;
+    // the finalization of the 64-bit MurmurHash3, folded to 32 bits
+    long h = hash ^ count;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return (int) (h ^ (h >>> 32));
   }
 
   @Override
   public String toString() {
-    StringBuilder returnValue = new StringBuilder().append(hashcode).append(':').append(checksum);
-    for (Object object : updateList) {
-      returnValue.append(':').append(ArrayUtil.toString(object));
+    StringBuilder returnValue = new StringBuilder().append(hashCode()).append(':').append(hash);
+    for (int i = 0; i < count; i++) {
+      returnValue.append(':').append(ArrayUtil.toString(updateList[i]));
     }
     return returnValue.toString();
   }
@@ -122,7 +132,7 @@ public class CacheKey implements Cloneable, Serializable {
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<>(updateList);
+    clonedCacheKey.updateList = count == 0 ? EMPTY_UPDATE_LIST : Arrays.copyOf(updateList, count);
     return clonedCacheKey;
   }
 
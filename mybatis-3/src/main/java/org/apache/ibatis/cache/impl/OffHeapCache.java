@@ -0,0 +1,426 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.ibatis.builder.InitializingObject;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.decorators.SerializedCache.CustomObjectInputStream;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * Cache storing serialized values outside of the heap, in direct buffers or in a memory mapped file, so that
+ * large read mostly caches do not weigh on the garbage collector. Only the keys and a small index entry per
+ * value stay on the heap.
+ * <p>
+ * The store is a ring of segments written sequentially. When the ring is full, the oldest segment is compacted:
+ * the values read since they were written are moved to its start, up to half of it, and the others are evicted.
+ * This approximates LRU eviction without keeping any per access order.
+ * <p>
+ * Properties:
+ * <ul>
+ * <li><code>capacity</code>: the bytes of the store, 64 MB by default</li>
+ * <li><code>segmentSize</code>: the bytes of a segment, 4 MB by default. Larger values are not cached.</li>
+ * <li><code>file</code>: a file to map the store to, instead of direct buffers. It is overwritten.</li>
+ * <li><code>serializer</code>: the class name of a {@link CacheSerializer}, Java serialization by default</li>
+ * </ul>
+ * Every read returns a new copy of the cached value, like a read-write cache.
+ *
+ * @since 3.5.0
+ */
+public class OffHeapCache implements Cache, InitializingObject {
+
+  private final String id;
+  private final ConcurrentMap<Object, Entry> index = new ConcurrentHashMap<>();
+  // guards the content of the segments and the location of the entries
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private long capacity = 64L * 1024 * 1024;
+  private int segmentSize = 4 * 1024 * 1024;
+  private String file;
+  private CacheSerializer serializer = new JavaSerializer();
+
+  // guarded by the write lock
+  private Segment[] segments;
+  private int head;
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+
+  public OffHeapCache(String id) {
+    this.id = id;
+  }
+
+  public void setCapacity(long capacity) {
+    this.capacity = capacity;
+  }
+
+  public void setSegmentSize(int segmentSize) {
+    this.segmentSize = segmentSize;
+  }
+
+  public void setFile(String file) {
+    this.file = file;
+  }
+
+  public void setSerializer(String serializer) {
+    try {
+      this.serializer = (CacheSerializer) Resources.classForName(serializer).newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Error creating cache serializer '" + serializer + "'.  Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public void initialize() throws Exception {
+    if (segmentSize <= 0 || capacity / segmentSize < 2) {
+      throw new CacheException("The capacity of cache '" + id + "' must hold at least 2 segments of " + segmentSize + " bytes");
+    }
+    if (capacity / segmentSize > Integer.MAX_VALUE) {
+      throw new CacheException("The capacity of cache '" + id + "' holds too many segments of " + segmentSize + " bytes");
+    }
+    final int count = (int) (capacity / segmentSize);
+    final Segment[] newSegments = new Segment[count];
+    if (file == null) {
+      for (int i = 0; i < count; i++) {
+        newSegments[i] = new Segment(ByteBuffer.allocateDirect(segmentSize));
+      }
+    } else {
+      final Path path = Paths.get(file);
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        // the mapping stays valid once the channel is closed
+        for (int i = 0; i < count; i++) {
+          newSegments[i] = new Segment(channel.map(FileChannel.MapMode.READ_WRITE, (long) i * segmentSize, segmentSize));
+        }
+      }
+      path.toFile().deleteOnExit();
+    }
+    lock.writeLock().lock();
+    try {
+      index.clear();
+      segments = newSegments;
+      head = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    return index.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    final byte[] bytes = serializer.serialize(value);
+    lock.writeLock().lock();
+    try {
+      if (segments == null) {
+        initialize();
+      }
+      final Entry old = index.remove(key);
+      if (old != null) {
+        old.segment.live -= old.length;
+      }
+      if (bytes.length > segmentSize) {
+        return;
+      }
+      Segment segment = segments[head];
+      if (segment.position + bytes.length > segmentSize) {
+        segment = advance(bytes.length);
+      }
+      final Entry entry = new Entry(key, segment, segment.position, bytes.length);
+      segment.write(bytes);
+      segment.entries.add(entry);
+      index.put(key, entry);
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error initializing cache '" + id + "'.  Cause: " + e, e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    final Entry entry = index.get(key);
+    byte[] bytes = null;
+    if (entry != null) {
+      lock.readLock().lock();
+      try {
+        // it may have been evicted after the lookup
+        if (index.get(key) == entry) {
+          bytes = entry.segment.read(entry.offset, entry.length);
+        }
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+    if (bytes == null) {
+      missCount.increment();
+      return null;
+    }
+    entry.accessed = true;
+    hitCount.increment();
+    return serializer.deserialize(bytes);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    lock.writeLock().lock();
+    try {
+      final Entry entry = index.remove(key);
+      if (entry != null) {
+        entry.segment.live -= entry.length;
+      }
+      return null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      index.clear();
+      if (segments != null) {
+        for (Segment segment : segments) {
+          segment.reset();
+        }
+      }
+      head = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  public double getHitRatio() {
+    long hits = hitCount.sum();
+    long requests = hits + missCount.sum();
+    return requests == 0 ? 0 : (double) hits / requests;
+  }
+
+  /**
+   * @return the bytes of the values in the store, which does not count the space left by replaced values
+   */
+  public long getUsedBytes() {
+    lock.readLock().lock();
+    try {
+      long used = 0;
+      if (segments != null) {
+        for (Segment segment : segments) {
+          used += segment.live;
+        }
+      }
+      return used;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private Segment advance(int length) {
+    while (true) {
+      head = (head + 1) % segments.length;
+      final Segment segment = segments[head];
+      compact(segment);
+      if (segment.position + length <= segmentSize) {
+        return segment;
+      }
+    }
+  }
+
+  private void compact(Segment segment) {
+    final List<Entry> entries = new ArrayList<>(segment.entries);
+    segment.reset();
+    final int retained = segmentSize / 2;
+    for (Entry entry : entries) {
+      if (index.get(entry.key) != entry) {
+        // replaced or removed
+        continue;
+      }
+      if (entry.accessed && segment.position + entry.length <= retained) {
+        // entries are in offset order, so moving one never overwrites the next
+        segment.move(entry.offset, entry.length);
+        entry.offset = segment.position - entry.length;
+        entry.accessed = false;
+        segment.entries.add(entry);
+      } else {
+        index.remove(entry.key, entry);
+        evictionCount.increment();
+      }
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private static final class Segment {
+    private final ByteBuffer buffer;
+    private final List<Entry> entries = new ArrayList<>();
+    private int position;
+    private long live;
+
+    private Segment(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    private void write(byte[] bytes) {
+      final ByteBuffer target = buffer.duplicate();
+      target.position(position);
+      target.put(bytes);
+      position += bytes.length;
+      live += bytes.length;
+    }
+
+    private byte[] read(int offset, int length) {
+      final ByteBuffer source = buffer.duplicate();
+      source.position(offset);
+      final byte[] bytes = new byte[length];
+      source.get(bytes);
+      return bytes;
+    }
+
+    private void move(int offset, int length) {
+      if (offset != position) {
+        final byte[] bytes = read(offset, length);
+        final ByteBuffer target = buffer.duplicate();
+        target.position(position);
+        target.put(bytes);
+      }
+      position += length;
+      live += length;
+    }
+
+    private void reset() {
+      entries.clear();
+      position = 0;
+      live = 0;
+    }
+  }
+
+  private static final class Entry {
+    private final Object key;
+    private final Segment segment;
+    private final int length;
+    private volatile boolean accessed;
+
+    // guarded by the lock
+    private int offset;
+
+    private Entry(Object key, Segment segment, int offset, int length) {
+      this.key = key;
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  private static final class JavaSerializer implements CacheSerializer {
+
+    @Override
+    public byte[] serialize(Object value) {
+      if (value != null && !(value instanceof Serializable)) {
+        throw new CacheException("OffHeapCache failed to serialize a non-serializable object: " + value);
+      }
+      try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
+           ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+        oos.writeObject(value);
+        oos.flush();
+        return bos.toByteArray();
+      } catch (IOException e) {
+        throw new CacheException("Error serializing object.  Cause: " + e, e);
+      }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+      try (ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
+           ObjectInputStream ois = new CustomObjectInputStream(bis)) {
+        return ois.readObject();
+      } catch (Exception e) {
+        throw new CacheException("Error deserializing object.  Cause: " + e, e);
+      }
+    }
+  }
+
+}
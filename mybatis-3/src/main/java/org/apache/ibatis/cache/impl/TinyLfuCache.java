@@ -0,0 +1,378 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+
+/**
+ * Bounded cache with W-TinyLFU eviction, which can be used without any decorator:
+ * <code>&lt;cache type="org.apache.ibatis.cache.impl.TinyLfuCache"/&gt;</code>.
+ * <p>
+ * New entries enter a small LRU window. An entry leaving the window only replaces the least recently used entry
+ * of the main space if a frequency sketch has seen its key more often, so that keys read once do not flush the
+ * hot ones. Reads do not lock: the eviction policy is only updated when its lock is free, otherwise the access
+ * is not recorded.
+ * <p>
+ * The cache holds up to <code>size</code> entries (1024 by default) and, if <code>maxRows</code> is positive,
+ * up to <code>maxRows</code> rows, where a list result weighs its number of rows. Cached objects are returned
+ * as is, like a read only cache.
+ *
+ * @since 3.5.0
+ */
+public class TinyLfuCache implements Cache {
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+  private static final int REMOVED = 3;
+
+  private final String id;
+  private final ConcurrentMap<Object, Node> store = new ConcurrentHashMap<>();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  // guarded by evictionLock
+  private final LinkedDeque window = new LinkedDeque();
+  private final LinkedDeque probation = new LinkedDeque();
+  private final LinkedDeque protect = new LinkedDeque();
+  private FrequencySketch sketch;
+  private int size;
+  private int maximumWindowSize;
+  private int maximumProtectedSize;
+  private long maxRows;
+  private long rows;
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+
+  public TinyLfuCache(String id) {
+    this.id = id;
+    setSize(1024);
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    return store.size();
+  }
+
+  public void setSize(int size) {
+    if (size <= 0) {
+      throw new CacheException("The size of cache '" + id + "' must be positive but was " + size);
+    }
+    evictionLock.lock();
+    try {
+      this.size = size;
+      this.maximumWindowSize = Math.max(1, size / 100);
+      this.maximumProtectedSize = (int) ((size - maximumWindowSize) * 0.8);
+      this.sketch = new FrequencySketch(size);
+      evict();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  public long getMaxRows() {
+    return maxRows;
+  }
+
+  public void setMaxRows(long maxRows) {
+    evictionLock.lock();
+    try {
+      this.maxRows = maxRows;
+      evict();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    Node node = new Node(key, value);
+    evictionLock.lock();
+    try {
+      Node old = store.put(key, node);
+      if (old != null) {
+        unlink(old);
+      }
+      sketch.increment(key);
+      window.addLast(node, WINDOW);
+      rows += node.weight;
+      evict();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Node node = store.get(key);
+    if (node == null) {
+      missCount.increment();
+    } else {
+      hitCount.increment();
+    }
+    if (evictionLock.tryLock()) {
+      try {
+        sketch.increment(key);
+        if (node != null) {
+          onAccess(node);
+        }
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+    return node == null ? null : node.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    evictionLock.lock();
+    try {
+      Node node = store.remove(key);
+      if (node == null) {
+        return null;
+      }
+      unlink(node);
+      return node.value;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    evictionLock.lock();
+    try {
+      store.clear();
+      window.clear();
+      probation.clear();
+      protect.clear();
+      rows = 0;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  public double getHitRatio() {
+    long hits = hitCount.sum();
+    long requests = hits + missCount.sum();
+    return requests == 0 ? 0 : (double) hits / requests;
+  }
+
+  private void onAccess(Node node) {
+    switch (node.queue) {
+      case WINDOW:
+        window.moveToLast(node);
+        break;
+      case PROBATION:
+        probation.unlink(node);
+        protect.addLast(node, PROTECTED);
+        if (protect.size > maximumProtectedSize) {
+          Node demoted = protect.first;
+          protect.unlink(demoted);
+          probation.addLast(demoted, PROBATION);
+        }
+        break;
+      case PROTECTED:
+        protect.moveToLast(node);
+        break;
+      default:
+        // removed by a concurrent write
+        break;
+    }
+  }
+
+  private boolean isOverflowing() {
+    return window.size + probation.size + protect.size > size || (maxRows > 0 && rows > maxRows);
+  }
+
+  private void evict() {
+    while (window.size > maximumWindowSize) {
+      Node candidate = window.first;
+      window.unlink(candidate);
+      probation.addLast(candidate, PROBATION);
+      if (isOverflowing()) {
+        Node victim = probation.first != candidate ? probation.first : protect.first;
+        if (victim == null) {
+          evict(candidate);
+        } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+          evict(victim);
+        } else {
+          evict(candidate);
+        }
+      }
+    }
+    while (isOverflowing()) {
+      evict(probation.first != null ? probation.first : protect.first != null ? protect.first : window.first);
+    }
+  }
+
+  private void evict(Node node) {
+    if (store.remove(node.key, node)) {
+      evictionCount.increment();
+    }
+    unlink(node);
+  }
+
+  private void unlink(Node node) {
+    switch (node.queue) {
+      case WINDOW:
+        window.unlink(node);
+        break;
+      case PROBATION:
+        probation.unlink(node);
+        break;
+      case PROTECTED:
+        protect.unlink(node);
+        break;
+      default:
+        return;
+    }
+    node.queue = REMOVED;
+    rows -= node.weight;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private static final class Node {
+    private final Object key;
+    private final Object value;
+    private final int weight;
+
+    // guarded by evictionLock
+    private int queue = REMOVED;
+    private Node prev;
+    private Node next;
+
+    private Node(Object key, Object value) {
+      this.key = key;
+      this.value = value;
+      this.weight = value instanceof Collection ? Math.max(1, ((Collection<?>) value).size()) : 1;
+    }
+  }
+
+  /**
+   * Intrusive doubly linked list, the first node is the least recently used one.
+   */
+  private static final class LinkedDeque {
+    private Node first;
+    private Node last;
+    private int size;
+
+    private void addLast(Node node, int queue) {
+      node.queue = queue;
+      node.prev = last;
+      node.next = null;
+      if (last == null) {
+        first = node;
+      } else {
+        last.next = node;
+      }
+      last = node;
+      size++;
+    }
+
+    private void unlink(Node node) {
+      if (node.prev == null) {
+        first = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        last = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+      size--;
+    }
+
+    private void moveToLast(Node node) {
+      if (node != last) {
+        int queue = node.queue;
+        unlink(node);
+        addLast(node, queue);
+      }
+    }
+
+    private void clear() {
+      for (Node node = first; node != null; ) {
+        Node next = node.next;
+        node.queue = REMOVED;
+        node.prev = null;
+        node.next = null;
+        node = next;
+      }
+      first = null;
+      last = null;
+      size = 0;
+    }
+  }
+
+}
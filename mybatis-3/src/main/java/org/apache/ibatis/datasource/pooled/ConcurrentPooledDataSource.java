@@ -0,0 +1,388 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * A database connection pool with the settings of {@link PooledDataSource}, which never holds a lock while
+ * opening, pinging or closing a connection.
+ * <p>
+ * Checkouts are bounded by a fair semaphore, so waiting threads are served in order, and idle connections are kept
+ * in a lock free deque, the most recently returned first. The {@link PoolState} is not maintained, the statistics
+ * of this pool are available from its own getters.
+ *
+ * @since 3.5.0
+ */
+public class ConcurrentPooledDataSource extends PooledDataSource {
+
+  private static final Log log = LogFactory.getLog(ConcurrentPooledDataSource.class);
+
+  private final ConcurrentLinkedDeque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+  private final AtomicInteger idleConnectionCount = new AtomicInteger();
+  private final Map<PooledConnection, Semaphore> activeConnections = new ConcurrentHashMap<>();
+  private volatile Semaphore permits;
+  private volatile int expectedConnectionTypeCode;
+
+  private final LongAdder requestCount = new LongAdder();
+  private final LongAdder accumulatedRequestTime = new LongAdder();
+  private final AtomicLong maximumRequestTime = new AtomicLong();
+  private final LongAdder hadToWaitCount = new LongAdder();
+  private final LongAdder badConnectionCount = new LongAdder();
+  private final LongAdder claimedOverdueConnectionCount = new LongAdder();
+  private final LongAdder accumulatedCheckoutTime = new LongAdder();
+
+  public ConcurrentPooledDataSource() {
+    super();
+    reset();
+  }
+
+  public ConcurrentPooledDataSource(UnpooledDataSource dataSource) {
+    super(dataSource);
+    reset();
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, String username, String password) {
+    super(driver, url, username, password);
+    reset();
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, Properties driverProperties) {
+    super(driver, url, driverProperties);
+    reset();
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return popConnection(getUsername(), getPassword()).getProxyConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return popConnection(username, password).getProxyConnection();
+  }
+
+  @Override
+  public void forceCloseAll() {
+    reset();
+    for (PooledConnection conn : activeConnections.keySet()) {
+      if (activeConnections.remove(conn) != null) {
+        closeQuietly(conn);
+      }
+    }
+    PooledConnection conn;
+    while ((conn = idleConnections.pollFirst()) != null) {
+      idleConnectionCount.decrementAndGet();
+      closeQuietly(conn);
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("ConcurrentPooledDataSource forcefully closed/removed all connections.");
+    }
+  }
+
+  public int getActiveConnectionCount() {
+    return activeConnections.size();
+  }
+
+  public int getIdleConnectionCount() {
+    return idleConnectionCount.get();
+  }
+
+  public long getRequestCount() {
+    return requestCount.sum();
+  }
+
+  /**
+   * @return the average time, in milliseconds, to get a connection, including waits and pings
+   */
+  public double getAverageRequestTime() {
+    long requests = requestCount.sum();
+    return requests == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(accumulatedRequestTime.sum()) / 1000.0 / requests;
+  }
+
+  /**
+   * @return the longest time, in milliseconds, taken to get a connection
+   */
+  public double getMaximumRequestTime() {
+    return TimeUnit.NANOSECONDS.toMicros(maximumRequestTime.get()) / 1000.0;
+  }
+
+  public long getHadToWaitCount() {
+    return hadToWaitCount.sum();
+  }
+
+  public long getBadConnectionCount() {
+    return badConnectionCount.sum();
+  }
+
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnectionCount.sum();
+  }
+
+  public long getAverageCheckoutTime() {
+    long requests = requestCount.sum();
+    return requests == 0 ? 0 : accumulatedCheckoutTime.sum() / requests;
+  }
+
+  private void reset() {
+    expectedConnectionTypeCode = assembleConnectionTypeCode(getUrl(), getUsername(), getPassword());
+    permits = new Semaphore(getPoolMaximumActiveConnections(), true);
+  }
+
+  private int assembleConnectionTypeCode(String url, String username, String password) {
+    return ("" + url + username + password).hashCode();
+  }
+
+  @Override
+  protected void pushConnection(PooledConnection conn) throws SQLException {
+    final Semaphore connectionPermits = activeConnections.remove(conn);
+    if (connectionPermits == null) {
+      // closed twice, or claimed as overdue
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      badConnectionCount.increment();
+      return;
+    }
+    try {
+      accumulatedCheckoutTime.add(conn.getCheckoutTime());
+      if (!conn.isValid()) {
+        if (log.isDebugEnabled()) {
+          log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+        }
+        badConnectionCount.increment();
+        return;
+      }
+      if (conn.getConnectionTypeCode() == expectedConnectionTypeCode && reserveIdleSlot()) {
+        try {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+        } catch (SQLException e) {
+          idleConnectionCount.decrementAndGet();
+          throw e;
+        }
+        PooledConnection newConn = new IdentityPooledConnection(conn.getRealConnection(), this);
+        newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
+        newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+        conn.invalidate();
+        idleConnections.offerFirst(newConn);
+        if (log.isDebugEnabled()) {
+          log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
+        }
+      } else {
+        if (!conn.getRealConnection().getAutoCommit()) {
+          conn.getRealConnection().rollback();
+        }
+        conn.getRealConnection().close();
+        if (log.isDebugEnabled()) {
+          log.debug("Closed connection " + conn.getRealHashCode() + ".");
+        }
+        conn.invalidate();
+      }
+    } finally {
+      connectionPermits.release();
+    }
+  }
+
+  private boolean reserveIdleSlot() {
+    int count;
+    do {
+      count = idleConnectionCount.get();
+      if (count >= getPoolMaximumIdleConnections()) {
+        return false;
+      }
+    } while (!idleConnectionCount.compareAndSet(count, count + 1));
+    return true;
+  }
+
+  private PooledConnection popConnection(String username, String password) throws SQLException {
+    final long start = System.nanoTime();
+    IdentityPooledConnection claimed = null;
+    Semaphore connectionPermits;
+    boolean countedWait = false;
+    while (true) {
+      connectionPermits = permits;
+      try {
+        // unlike tryAcquire(), the timed form does not barge ahead of the threads already waiting
+        if (connectionPermits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+          break;
+        }
+        if (!countedWait) {
+          hadToWaitCount.increment();
+          countedWait = true;
+        }
+        claimed = claimOverdueConnection();
+        if (claimed != null) {
+          // holds the permit of the overdue checkout
+          connectionPermits = claimed.permits;
+          break;
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("Waiting as long as " + getPoolTimeToWait() + " milliseconds for connection.");
+        }
+        if (connectionPermits.tryAcquire(getPoolTimeToWait(), TimeUnit.MILLISECONDS)) {
+          break;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SQLException("ConcurrentPooledDataSource: Interrupted while waiting for a connection.", e);
+      }
+    }
+
+    int localBadConnectionCount = 0;
+    try {
+      while (true) {
+        PooledConnection conn = claimed;
+        claimed = null;
+        if (conn == null) {
+          conn = idleConnections.pollFirst();
+          if (conn != null) {
+            idleConnectionCount.decrementAndGet();
+            if (log.isDebugEnabled()) {
+              log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+            }
+          } else {
+            conn = new IdentityPooledConnection(getUnpooledDataSource().getConnection(), this);
+            if (log.isDebugEnabled()) {
+              log.debug("Created connection " + conn.getRealHashCode() + ".");
+            }
+          }
+        }
+        // ping to server and check the connection is valid or not
+        if (conn.isValid()) {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+          conn.setConnectionTypeCode(assembleConnectionTypeCode(getUrl(), username, password));
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          activeConnections.put(conn, connectionPermits);
+          final long elapsed = System.nanoTime() - start;
+          requestCount.increment();
+          accumulatedRequestTime.add(elapsed);
+          maximumRequestTime.accumulateAndGet(elapsed, Math::max);
+          return conn;
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+        }
+        badConnectionCount.increment();
+        localBadConnectionCount++;
+        if (localBadConnectionCount > (getPoolMaximumIdleConnections() + getPoolMaximumLocalBadConnectionTolerance())) {
+          if (log.isDebugEnabled()) {
+            log.debug("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+          }
+          throw new SQLException("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+        }
+      }
+    } catch (SQLException | RuntimeException e) {
+      connectionPermits.release();
+      throw e;
+    }
+  }
+
+  private IdentityPooledConnection claimOverdueConnection() {
+    PooledConnection oldest = null;
+    for (PooledConnection conn : activeConnections.keySet()) {
+      if (oldest == null || conn.getCheckoutTimestamp() < oldest.getCheckoutTimestamp()) {
+        oldest = conn;
+      }
+    }
+    if (oldest == null) {
+      return null;
+    }
+    final long longestCheckoutTime = oldest.getCheckoutTime();
+    if (longestCheckoutTime <= getPoolMaximumCheckoutTime()) {
+      return null;
+    }
+    final Semaphore connectionPermits = activeConnections.remove(oldest);
+    if (connectionPermits == null) {
+      // returned or claimed by another thread meanwhile
+      return null;
+    }
+    claimedOverdueConnectionCount.increment();
+    accumulatedCheckoutTime.add(longestCheckoutTime);
+    try {
+      if (!oldest.getRealConnection().getAutoCommit()) {
+        oldest.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      // the new connection will not be valid if the real one is broken
+      log.debug("Bad connection. Could not roll back");
+    }
+    IdentityPooledConnection conn = new IdentityPooledConnection(oldest.getRealConnection(), this);
+    conn.setCreatedTimestamp(oldest.getCreatedTimestamp());
+    conn.setLastUsedTimestamp(oldest.getLastUsedTimestamp());
+    conn.permits = connectionPermits;
+    oldest.invalidate();
+    if (log.isDebugEnabled()) {
+      log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+    }
+    return conn;
+  }
+
+  private void closeQuietly(PooledConnection conn) {
+    try {
+      conn.invalidate();
+      Connection realConn = conn.getRealConnection();
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+  /**
+   * Compared by identity, as several pooled connections may wrap the same real connection.
+   */
+  private static final class IdentityPooledConnection extends PooledConnection {
+
+    // the permits of a claimed overdue checkout
+    private Semaphore permits;
+
+    IdentityPooledConnection(Connection connection, PooledDataSource dataSource) {
+      super(connection, dataSource);
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(this);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return this == obj;
+    }
+  }
+
+}
@@ -340,6 +340,10 @@ public class PooledDataSource implements DataSource {
     return state;
   }
 
+  UnpooledDataSource getUnpooledDataSource() {
+    return dataSource;
+  }
+
   private int assembleConnectionTypeCode(String url, String username, String password) {
     return ("" + url + username + password).hashCode();
   }
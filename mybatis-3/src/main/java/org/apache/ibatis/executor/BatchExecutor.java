@@ -21,7 +21,9 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
@@ -46,9 +48,24 @@ public class BatchExecutor extends BaseExecutor {
   private final List<BatchResult> batchResultList = new ArrayList<>();
   private String currentSql;
   private MappedStatement currentStatement;
+  // statement indexes by mapped statement id and sql, when grouping
+  private final Map<String, Integer> statementIndexes;
+  private final List<BatchResult> autoFlushedResults = new ArrayList<>();
+  private int batchedCount;
 
   public BatchExecutor(Configuration configuration, Transaction transaction) {
+    this(configuration, transaction, false);
+  }
+
+  /**
+   * @param grouping when true, an update reuses the statement of any previous update with the same mapped statement
+   *          and sql since the last flush, not only the one of the previous update. The statements are executed in
+   *          the order of their first update.
+   * @since 3.5.0
+   */
+  public BatchExecutor(Configuration configuration, Transaction transaction, boolean grouping) {
     super(configuration, transaction);
+    this.statementIndexes = grouping ? new HashMap<>() : null;
   }
 
   @Override
@@ -58,12 +75,12 @@ public class BatchExecutor extends BaseExecutor {
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
     final Statement stmt;
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-      int last = statementList.size() - 1;
-      stmt = statementList.get(last);
+    final int index = indexOfStatement(ms, sql);
+    if (index >= 0) {
+      stmt = statementList.get(index);
       applyTransactionTimeout(stmt);
      handler.parameterize(stmt);//fix Issues 322
-      BatchResult batchResult = batchResultList.get(last);
+      BatchResult batchResult = batchResultList.get(index);
       batchResult.addParameterObject(parameterObject);
     } else {
       Connection connection = getConnection(ms.getStatementLog());
@@ -71,14 +88,30 @@ public class BatchExecutor extends BaseExecutor {
       handler.parameterize(stmt);    //fix Issues 322
       currentSql = sql;
       currentStatement = ms;
+      if (statementIndexes != null) {
+        statementIndexes.put(ms.getId() + ":" + sql, statementList.size());
+      }
       statementList.add(stmt);
       batchResultList.add(new BatchResult(ms, sql, parameterObject));
     }
   // handler.parameterize(stmt);
     handler.batch(stmt);
+    final int batchFlushSize = configuration.getBatchFlushSize();
+    if (batchFlushSize > 0 && ++batchedCount >= batchFlushSize) {
+      // returned by the next flush
+      autoFlushedResults.addAll(doFlushStatements(false));
+    }
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
+  private int indexOfStatement(MappedStatement ms, String sql) {
+    if (statementIndexes != null) {
+      final Integer index = statementIndexes.get(ms.getId() + ":" + sql);
+      return index == null ? -1 : index;
+    }
+    return sql.equals(currentSql) && ms.equals(currentStatement) ? statementList.size() - 1 : -1;
+  }
+
   @Override
   public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
       throws SQLException {
@@ -110,7 +143,8 @@ public class BatchExecutor extends BaseExecutor {
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
     try {
-      List<BatchResult> results = new ArrayList<>();
+      List<BatchResult> results = new ArrayList<>(autoFlushedResults);
+      autoFlushedResults.clear();
       if (isRollback) {
         return Collections.emptyList();
       }
@@ -157,6 +191,10 @@ public class BatchExecutor extends BaseExecutor {
       currentSql = null;
       statementList.clear();
       batchResultList.clear();
+      if (statementIndexes != null) {
+        statementIndexes.clear();
+      }
+      batchedCount = 0;
     }
   }
 
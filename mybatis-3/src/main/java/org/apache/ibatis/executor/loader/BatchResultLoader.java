@@ -0,0 +1,167 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ResultExtractor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.defaults.DefaultSqlSession.StrictMap;
+
+/**
+ * Collects the eager nested selects of a result that declare a batch select, and loads them with one batch select
+ * per {@link Configuration#getBatchSelectSize()} distinct keys instead of one select per key.
+ * <p>
+ * The keys are passed to the batch select as a <code>list</code>, and each loaded object is assigned to the
+ * properties waiting for the value of its key property.
+ *
+ * @since 3.5.0
+ */
+public class BatchResultLoader {
+
+  private final Configuration configuration;
+  private final Executor executor;
+  private final ResultExtractor resultExtractor;
+  private final Map<String, Batch> batches = new LinkedHashMap<>();
+
+  public BatchResultLoader(Configuration configuration, Executor executor) {
+    this.configuration = configuration;
+    this.executor = executor;
+    this.resultExtractor = new ResultExtractor(configuration, configuration.getObjectFactory());
+  }
+
+  public void addLoader(MappedStatement batchStatement, String keyProperty, Object key, MetaObject resultObject, String property, Class<?> targetType) {
+    final String batchId = batchStatement.getId() + ":" + keyProperty;
+    Batch batch = batches.get(batchId);
+    if (batch == null) {
+      batch = new Batch(batchStatement, keyProperty);
+      batches.put(batchId, batch);
+    }
+    batch.add(key, new PendingLoad(resultObject, property, targetType));
+  }
+
+  public void load() throws SQLException {
+    for (Batch batch : batches.values()) {
+      load(batch);
+    }
+    batches.clear();
+  }
+
+  private void load(Batch batch) throws SQLException {
+    final Map<Object, List<Object>> loaded = new HashMap<>();
+    final List<Object> keys = new ArrayList<>(batch.keys.values());
+    final int batchSize = Math.max(1, configuration.getBatchSelectSize());
+    for (int from = 0; from < keys.size(); from += batchSize) {
+      final List<Object> chunk = keys.subList(from, Math.min(keys.size(), from + batchSize));
+      final List<Object> list = executor.query(batch.statement, wrapKeys(new ArrayList<>(chunk)), RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      for (Object object : list) {
+        if (object == null) {
+          continue;
+        }
+        final Object key = normalizeKey(configuration.newMetaObject(object).getValue(batch.keyProperty));
+        List<Object> objects = loaded.get(key);
+        if (objects == null) {
+          objects = new ArrayList<>();
+          loaded.put(key, objects);
+        }
+        objects.add(object);
+      }
+    }
+    for (Map.Entry<Object, List<PendingLoad>> entry : batch.loads.entrySet()) {
+      final List<Object> objects = loaded.getOrDefault(entry.getKey(), Collections.emptyList());
+      for (PendingLoad load : entry.getValue()) {
+        // every property gets its own collection
+        final Object value = resultExtractor.extractObjectFromList(new ArrayList<>(objects), load.targetType);
+        if (value != null || (configuration.isCallSettersOnNulls() && !load.resultObject.getSetterType(load.property).isPrimitive())) {
+          load.resultObject.setValue(load.property, value);
+        }
+      }
+    }
+  }
+
+  private Object wrapKeys(List<Object> keys) {
+    StrictMap<Object> map = new StrictMap<>();
+    map.put("collection", keys);
+    map.put("list", keys);
+    return map;
+  }
+
+  // the key read from a column and the key property of the loaded object may be of different number types
+  private static Object normalizeKey(Object key) {
+    if (key instanceof Integer || key instanceof Long || key instanceof Short || key instanceof Byte) {
+      return ((Number) key).longValue();
+    }
+    if (key instanceof BigInteger || key instanceof BigDecimal) {
+      final BigDecimal decimal = key instanceof BigInteger ? new BigDecimal((BigInteger) key) : ((BigDecimal) key).stripTrailingZeros();
+      try {
+        return decimal.longValueExact();
+      } catch (ArithmeticException e) {
+        return decimal;
+      }
+    }
+    return key;
+  }
+
+  private static class Batch {
+    private final MappedStatement statement;
+    private final String keyProperty;
+    private final Map<Object, Object> keys = new LinkedHashMap<>();
+    private final Map<Object, List<PendingLoad>> loads = new HashMap<>();
+
+    private Batch(MappedStatement statement, String keyProperty) {
+      this.statement = statement;
+      this.keyProperty = keyProperty;
+    }
+
+    private void add(Object key, PendingLoad load) {
+      final Object normalizedKey = normalizeKey(key);
+      if (!keys.containsKey(normalizedKey)) {
+        keys.put(normalizedKey, key);
+      }
+      List<PendingLoad> list = loads.get(normalizedKey);
+      if (list == null) {
+        list = new ArrayList<>();
+        loads.put(normalizedKey, list);
+      }
+      list.add(load);
+    }
+  }
+
+  private static class PendingLoad {
+    private final MetaObject resultObject;
+    private final String property;
+    private final Class<?> targetType;
+
+    private PendingLoad(MetaObject resultObject, String property, Class<?> targetType) {
+      this.resultObject = resultObject;
+      this.property = property;
+      this.targetType = targetType;
+    }
+  }
+
+}
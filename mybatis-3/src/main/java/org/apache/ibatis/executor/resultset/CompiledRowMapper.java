@@ -0,0 +1,248 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.session.AutoMappingBehavior;
+import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+/**
+ * Maps the rows of a simple result map for one column layout without going through {@link org.apache.ibatis.reflection.MetaObject}.
+ * <p>
+ * The automatic and property mappings are resolved once, when the result map is first seen with the layout,
+ * into a flat list of column, type handler and setter, the setters being {@link MethodHandle}s where the
+ * property is backed by a method or a field. Result maps this cannot reproduce exactly (constructor mappings,
+ * nested selects and results, multiple result sets, property paths, maps, custom object wrappers) keep going
+ * through the reflective path of {@link DefaultResultSetHandler}.
+ *
+ * @since 3.5.0
+ */
+public final class CompiledRowMapper {
+
+  /**
+   * Marks a result map and column layout that have to be mapped reflectively.
+   */
+  static final CompiledRowMapper UNSUPPORTED = new CompiledRowMapper(null, new ColumnMapping[0], false);
+
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+  private final Class<?> type;
+  private final ColumnMapping[] columnMappings;
+  private final boolean returnInstanceForEmptyRow;
+
+  private CompiledRowMapper(Class<?> type, ColumnMapping[] columnMappings, boolean returnInstanceForEmptyRow) {
+    this.type = type;
+    this.columnMappings = columnMappings;
+    this.returnInstanceForEmptyRow = returnInstanceForEmptyRow;
+  }
+
+  /**
+   * Gets the row mapper of the result map for the columns of the result set, compiling it on first use.
+   *
+   * @return the row mapper, or {@link #UNSUPPORTED}
+   */
+  static CompiledRowMapper forResultMap(MappedStatement mappedStatement, ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    Map<String, CompiledRowMapper> rowMappers = resultMap.getCompiledRowMappers();
+    String columnLayout = rsw.getColumnLayout();
+    CompiledRowMapper rowMapper = rowMappers.get(columnLayout);
+    if (rowMapper == null) {
+      rowMapper = compile(mappedStatement, rsw, resultMap);
+      // concurrent compilations produce equivalent mappers
+      rowMappers.put(columnLayout, rowMapper);
+    }
+    return rowMapper;
+  }
+
+  private static CompiledRowMapper compile(MappedStatement mappedStatement, ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    final Configuration configuration = mappedStatement.getConfiguration();
+    final TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    final Class<?> type = resultMap.getType();
+    if (!isSupported(configuration, rsw, resultMap)) {
+      return UNSUPPORTED;
+    }
+    final MetaClass metaClass = MetaClass.forClass(type, configuration.getReflectorFactory());
+    if (!metaClass.hasDefaultConstructor()) {
+      return UNSUPPORTED;
+    }
+    final List<ColumnMapping> columnMappings = new ArrayList<>();
+    if (shouldApplyAutomaticMappings(configuration, resultMap)) {
+      for (String columnName : rsw.getUnmappedColumnNames(resultMap, null)) {
+        final String property = metaClass.findProperty(columnName, configuration.isMapUnderscoreToCamelCase());
+        if (property != null && isSimpleProperty(property) && metaClass.hasSetter(property)) {
+          if (resultMap.getMappedProperties().contains(property)) {
+            continue;
+          }
+          final Class<?> propertyType = metaClass.getSetterType(property);
+          if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
+            final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
+            columnMappings.add(new ColumnMapping(columnName, property, typeHandler, metaClass.getSetInvoker(property),
+                configuration.isCallSettersOnNulls() && !propertyType.isPrimitive()));
+            continue;
+          }
+        }
+        if ((property != null && !isSimpleProperty(property))
+            || configuration.getAutoMappingUnknownColumnBehavior() != AutoMappingUnknownColumnBehavior.NONE) {
+          // let the reflective path map property paths and report unknown columns on every execution
+          return UNSUPPORTED;
+        }
+      }
+    }
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, null);
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      final String column = propertyMapping.getColumn();
+      final String property = propertyMapping.getProperty();
+      if (column == null || property == null || !mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+        continue;
+      }
+      if (!isSimpleProperty(property) || !metaClass.hasSetter(property)) {
+        return UNSUPPORTED;
+      }
+      columnMappings.add(new ColumnMapping(column, property, propertyMapping.getTypeHandler(), metaClass.getSetInvoker(property),
+          configuration.isCallSettersOnNulls() && !metaClass.getSetterType(property).isPrimitive()));
+    }
+    return new CompiledRowMapper(type, columnMappings.toArray(new ColumnMapping[columnMappings.size()]),
+        configuration.isReturnInstanceForEmptyRow());
+  }
+
+  private static boolean isSupported(Configuration configuration, ResultSetWrapper rsw, ResultMap resultMap) {
+    final Class<?> type = resultMap.getType();
+    if (type.isInterface() || type.isArray() || Map.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type)) {
+      return false;
+    }
+    if (rsw.getColumnNames().size() == 1
+        ? configuration.getTypeHandlerRegistry().hasTypeHandler(type, rsw.getJdbcType(rsw.getColumnNames().get(0)))
+        : configuration.getTypeHandlerRegistry().hasTypeHandler(type)) {
+      return false;
+    }
+    if (configuration.getObjectWrapperFactory().getClass() != DefaultObjectWrapperFactory.class) {
+      return false;
+    }
+    if (resultMap.hasNestedQueries() || resultMap.hasNestedResultMaps() || !resultMap.getConstructorResultMappings().isEmpty()) {
+      return false;
+    }
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.isCompositeResult() || propertyMapping.getResultSet() != null
+          || propertyMapping.getNestedResultMapId() != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean shouldApplyAutomaticMappings(Configuration configuration, ResultMap resultMap) {
+    if (resultMap.getAutoMapping() != null) {
+      return resultMap.getAutoMapping();
+    }
+    return AutoMappingBehavior.NONE != configuration.getAutoMappingBehavior();
+  }
+
+  private static boolean isSimpleProperty(String property) {
+    return property.indexOf('.') < 0 && property.indexOf('[') < 0;
+  }
+
+  /**
+   * Maps the current row of the result set.
+   *
+   * @return the row value, or null if no column had a value and empty rows do not return an instance
+   */
+  Object map(ResultSet rs, ObjectFactory objectFactory) throws SQLException {
+    final Object rowValue = objectFactory.create(type);
+    boolean foundValues = false;
+    for (ColumnMapping columnMapping : columnMappings) {
+      final Object value = columnMapping.typeHandler.getResult(rs, columnMapping.column);
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value != null || columnMapping.callSetterOnNull) {
+        // gcode issue #377, call setter on nulls (value is not 'found')
+        columnMapping.set(rowValue, value);
+      }
+    }
+    return foundValues || returnInstanceForEmptyRow ? rowValue : null;
+  }
+
+  private static final class ColumnMapping {
+    private final String column;
+    private final String property;
+    private final TypeHandler<?> typeHandler;
+    private final boolean callSetterOnNull;
+    private final Invoker invoker;
+    private final MethodHandle setter;
+
+    ColumnMapping(String column, String property, TypeHandler<?> typeHandler, Invoker invoker, boolean callSetterOnNull) {
+      this.column = column;
+      this.property = property;
+      this.typeHandler = typeHandler;
+      this.callSetterOnNull = callSetterOnNull;
+      this.invoker = invoker;
+      this.setter = unreflect(invoker);
+    }
+
+    private static MethodHandle unreflect(Invoker invoker) {
+      try {
+        if (invoker instanceof MethodInvoker) {
+          return MethodHandles.lookup().unreflect(((MethodInvoker) invoker).getMethod()).asType(SETTER_TYPE);
+        } else if (invoker instanceof SetFieldInvoker) {
+          return MethodHandles.lookup().unreflectSetter(((SetFieldInvoker) invoker).getField()).asType(SETTER_TYPE);
+        }
+      } catch (IllegalAccessException e) {
+        // not accessible, fall back to the invoker
+      }
+      return null;
+    }
+
+    void set(Object target, Object value) {
+      try {
+        if (setter != null) {
+          setter.invokeExact(target, value);
+        } else {
+          try {
+            invoker.invoke(target, new Object[] {value});
+          } catch (Throwable t) {
+            throw ExceptionUtil.unwrapThrowable(t);
+          }
+        }
+      } catch (Throwable t) {
+        throw new ReflectionException("Could not set property '" + property + "' of '" + target.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+      }
+    }
+  }
+
+}
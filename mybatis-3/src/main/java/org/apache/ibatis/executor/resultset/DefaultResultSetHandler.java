@@ -23,6 +23,7 @@ import org.apache.ibatis.cursor.defaults.DefaultCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.loader.BatchResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
@@ -92,6 +93,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
   private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<>();
 
+  // batched nested queries, only while handling the result sets of a query without result handler
+  private BatchResultLoader batchResultLoader;
+
   // Cached Automappings
   private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
 
@@ -182,6 +186,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     ErrorContext.instance().activity("handling results").object(mappedStatement.getId());
 
     final List<Object> multipleResults = new ArrayList<>();
+    if (resultHandler == null) {
+      batchResultLoader = new BatchResultLoader(configuration, executor);
+    }
 
     int resultSetCount = 0;
     ResultSetWrapper rsw = getFirstResultSet(stmt);
@@ -212,6 +219,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
     }
 
+    if (batchResultLoader != null) {
+      final BatchResultLoader loader = batchResultLoader;
+      batchResultLoader = null;
+      loader.load();
+    }
     return collapseSingleResultList(multipleResults);
   }
 
@@ -390,6 +402,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //
 
   private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
+    if (columnPrefix == null && configuration.isCompiledRowMappingEnabled()) {
+      final CompiledRowMapper rowMapper = CompiledRowMapper.forResultMap(mappedStatement, rsw, resultMap);
+      if (rowMapper != CompiledRowMapper.UNSUPPORTED) {
+        return rowMapper.map(rsw.getResultSet(), objectFactory);
+      }
+    }
     final ResultLoaderMap lazyLoader = new ResultLoaderMap();
     Object rowValue = createResultObject(rsw, resultMap, lazyLoader, columnPrefix);
     if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
@@ -745,6 +763,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       if (executor.isCached(nestedQuery, key)) {
         executor.deferLoad(nestedQuery, metaResultObject, property, key, targetType);
         value = DEFERED;
+      } else if (propertyMapping.getNestedBatchQueryId() != null && !propertyMapping.isLazy() && batchResultLoader != null) {
+        final MappedStatement batchQuery = configuration.getMappedStatement(propertyMapping.getNestedBatchQueryId());
+        batchResultLoader.addLoader(batchQuery, propertyMapping.getBatchKeyProperty(), nestedQueryParameterObject, metaResultObject, property, targetType);
+        value = DEFERED;
       } else {
         final ResultLoader resultLoader = new ResultLoader(configuration, executor, nestedQuery, nestedQueryParameterObject, targetType, key, nestedBoundSql);
         if (propertyMapping.isLazy()) {
@@ -48,6 +48,7 @@ public class ResultSetWrapper {
   private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<>();
   private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<>();
   private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<>();
+  private String columnLayout;
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
@@ -78,6 +79,23 @@ public class ResultSetWrapper {
     return jdbcTypes;
   }
 
+  /**
+   * Gets a key identifying the names, JDBC types and classes of the columns, which is all a
+   * {@link CompiledRowMapper} depends on.
+   *
+   * @since 3.5.0
+   */
+  public String getColumnLayout() {
+    if (columnLayout == null) {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < columnNames.size(); i++) {
+        builder.append(columnNames.get(i)).append(':').append(jdbcTypes.get(i)).append(':').append(classNames.get(i)).append(',');
+      }
+      columnLayout = builder.toString();
+    }
+    return columnLayout;
+  }
+
   public JdbcType getJdbcType(String columnName) {
     for (int i = 0 ; i < columnNames.size(); i++) {
       if (columnNames.get(i).equalsIgnoreCase(columnName)) {
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2016 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@ package org.apache.ibatis.mapping;
 
 import java.sql.ResultSet;
 
+import org.apache.ibatis.reflection.CompiledPropertyPath;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
@@ -38,6 +39,7 @@ public class ParameterMapping {
   private String resultMapId;
   private String jdbcTypeName;
   private String expression;
+  private CompiledPropertyPath compiledProperty;
 
   private ParameterMapping() {
   }
@@ -135,6 +137,20 @@ public class ParameterMapping {
     return property;
   }
 
+  /**
+   * Used when setting parameters to the PreparedStatement, to read the property from the parameter object
+   * @return
+   * @since 3.5.0
+   */
+  public CompiledPropertyPath getCompiledProperty() {
+    if (compiledProperty == null) {
+      // concurrent compilations produce equivalent paths
+      compiledProperty = CompiledPropertyPath.compile(property, configuration.getObjectFactory(),
+          configuration.getObjectWrapperFactory(), configuration.getReflectorFactory());
+    }
+    return compiledProperty;
+  }
+
   /**
    * Used for handling output of callable statements
    * @return
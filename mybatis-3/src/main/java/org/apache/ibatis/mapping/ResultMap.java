@@ -22,10 +22,13 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.executor.resultset.CompiledRowMapper;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.reflection.ParamNameUtil;
@@ -49,6 +52,7 @@ public class ResultMap {
   private boolean hasNestedResultMaps;
   private boolean hasNestedQueries;
   private Boolean autoMapping;
+  private final Map<String, CompiledRowMapper> compiledRowMappers = new ConcurrentHashMap<>();
 
   private ResultMap() {
   }
@@ -258,4 +262,13 @@ public class ResultMap {
     return autoMapping;
   }
 
+  /**
+   * Gets the row mappers compiled for this result map, keyed by the column layout of the result sets they map.
+   *
+   * @since 3.5.0
+   */
+  public Map<String, CompiledRowMapper> getCompiledRowMappers() {
+    return compiledRowMappers;
+  }
+
 }
@@ -38,6 +38,8 @@ public class ResultMapping {
   private TypeHandler<?> typeHandler;
   private String nestedResultMapId;
   private String nestedQueryId;
+  private String nestedBatchQueryId;
+  private String batchKeyProperty;
   private Set<String> notNullColumns;
   private String columnPrefix;
   private List<ResultFlag> flags;
@@ -92,6 +94,16 @@ public class ResultMapping {
       return this;
     }
 
+    public Builder nestedBatchQueryId(String nestedBatchQueryId) {
+      resultMapping.nestedBatchQueryId = nestedBatchQueryId;
+      return this;
+    }
+
+    public Builder batchKeyProperty(String batchKeyProperty) {
+      resultMapping.batchKeyProperty = batchKeyProperty;
+      return this;
+    }
+
     public Builder resultSet(String resultSet) {
       resultMapping.resultSet = resultSet;
       return this;
@@ -154,6 +166,17 @@ public class ResultMapping {
       if (resultMapping.nestedResultMapId == null && resultMapping.column == null && resultMapping.composites.isEmpty()) {
         throw new IllegalStateException("Mapping is missing column attribute for property " + resultMapping.property);
       }
+      if (resultMapping.nestedBatchQueryId != null) {
+        if (resultMapping.nestedQueryId == null) {
+          throw new IllegalStateException("Cannot define a batch select without a select in property " + resultMapping.property);
+        }
+        if (resultMapping.batchKeyProperty == null) {
+          throw new IllegalStateException("Mapping is missing batchKeyProperty attribute for property " + resultMapping.property);
+        }
+        if (!resultMapping.composites.isEmpty()) {
+          throw new IllegalStateException("Cannot define a batch select with a composite column in property " + resultMapping.property);
+        }
+      }
       if (resultMapping.getResultSet() != null) {
         int numColumns = 0;
         if (resultMapping.column != null) {
@@ -211,6 +234,14 @@ public class ResultMapping {
     return nestedQueryId;
   }
 
+  public String getNestedBatchQueryId() {
+    return nestedBatchQueryId;
+  }
+
+  public String getBatchKeyProperty() {
+    return batchKeyProperty;
+  }
+
   public Set<String> getNotNullColumns() {
     return notNullColumns;
   }
@@ -291,6 +322,8 @@ public class ResultMapping {
     //sb.append(", typeHandler=").append(typeHandler); // typeHandler also doesn't have a useful .toString()
     sb.append(", nestedResultMapId='").append(nestedResultMapId).append('\'');
     sb.append(", nestedQueryId='").append(nestedQueryId).append('\'');
+    sb.append(", nestedBatchQueryId='").append(nestedBatchQueryId).append('\'');
+    sb.append(", batchKeyProperty='").append(batchKeyProperty).append('\'');
     sb.append(", notNullColumns=").append(notNullColumns);
     sb.append(", columnPrefix='").append(columnPrefix).append('\'');
     sb.append(", flags=").append(flags);
@@ -0,0 +1,186 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
+
+/**
+ * A property path such as <code>order.customer.name</code> read without building a {@link MetaObject} for each of its
+ * names.
+ * <p>
+ * The path is split once. Map entries, including the ones of a <code>ParamMap</code>, are read directly, and for beans
+ * each name remembers the getter of the last class it was read from, as a {@link MethodHandle} where the property is
+ * backed by a method or a field. Whatever else is met on the way (an {@link ObjectWrapper}, a collection, a bean
+ * without a getter for the name) has the rest of the path read by {@link MetaObject}, so results and errors do not
+ * change. Paths with indexed names and objects wrapped by a custom {@link ObjectWrapperFactory} are always read by
+ * {@link MetaObject}.
+ *
+ * @since 3.5.0
+ */
+public final class CompiledPropertyPath {
+
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private final String path;
+  private final ObjectFactory objectFactory;
+  private final ObjectWrapperFactory objectWrapperFactory;
+  private final ReflectorFactory reflectorFactory;
+  private final String[] names;
+  private final String[] remainingPaths;
+  // racy but getters are immutable, concurrent resolutions produce equivalent getters
+  private final Getter[] getters;
+
+  private CompiledPropertyPath(String path, String[] names, ObjectFactory objectFactory, ObjectWrapperFactory objectWrapperFactory,
+      ReflectorFactory reflectorFactory) {
+    this.path = path;
+    this.names = names;
+    this.objectFactory = objectFactory;
+    this.objectWrapperFactory = objectWrapperFactory;
+    this.reflectorFactory = reflectorFactory;
+    if (names == null) {
+      this.remainingPaths = null;
+      this.getters = null;
+    } else {
+      this.remainingPaths = new String[names.length];
+      for (int i = 0; i < names.length; i++) {
+        remainingPaths[i] = i == 0 ? path : remainingPaths[i - 1].substring(names[i - 1].length() + 1);
+      }
+      this.getters = new Getter[names.length];
+    }
+  }
+
+  public static CompiledPropertyPath compile(String path, ObjectFactory objectFactory, ObjectWrapperFactory objectWrapperFactory,
+      ReflectorFactory reflectorFactory) {
+    String[] names = null;
+    if (path != null && path.indexOf('[') < 0 && objectWrapperFactory.getClass() == DefaultObjectWrapperFactory.class) {
+      names = path.split("\\.", -1);
+      for (String name : names) {
+        if (name.isEmpty()) {
+          names = null;
+          break;
+        }
+      }
+    }
+    return new CompiledPropertyPath(path, names, objectFactory, objectWrapperFactory, reflectorFactory);
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * Gets the value of the property path, the same way {@link MetaObject#getValue(String)} does.
+   */
+  public Object getValue(Object object) {
+    if (names == null || object == null) {
+      return getValue(object, path);
+    }
+    Object value = object;
+    for (int i = 0; i < names.length; i++) {
+      if (value == null) {
+        return null;
+      }
+      if (value instanceof Map && !(value instanceof ObjectWrapper)) {
+        value = ((Map<?, ?>) value).get(names[i]);
+        continue;
+      }
+      Getter getter = getters[i];
+      if (getter == null || getter.type != value.getClass()) {
+        getter = Getter.resolve(value, names[i], reflectorFactory);
+        getters[i] = getter;
+      }
+      if (getter.invoker == null) {
+        return getValue(value, remainingPaths[i]);
+      }
+      value = getter.get(value);
+    }
+    return value;
+  }
+
+  private Object getValue(Object object, String path) {
+    return MetaObject.forObject(object, objectFactory, objectWrapperFactory, reflectorFactory).getValue(path);
+  }
+
+  private static final class Getter {
+    private final Class<?> type;
+    private final String name;
+    private final Invoker invoker;
+    private final MethodHandle handle;
+
+    private Getter(Class<?> type, String name, Invoker invoker) {
+      this.type = type;
+      this.name = name;
+      this.invoker = invoker;
+      this.handle = invoker == null ? null : unreflect(invoker);
+    }
+
+    /**
+     * @return the getter of the name for the class of the object, without invoker if it has to be read by {@link MetaObject}
+     */
+    static Getter resolve(Object object, String name, ReflectorFactory reflectorFactory) {
+      final Class<?> type = object.getClass();
+      if (object instanceof ObjectWrapper || object instanceof Collection) {
+        return new Getter(type, name, null);
+      }
+      final Reflector reflector = reflectorFactory.findForClass(type);
+      return new Getter(type, name, reflector.hasGetter(name) ? reflector.getGetInvoker(name) : null);
+    }
+
+    private static MethodHandle unreflect(Invoker invoker) {
+      try {
+        if (invoker instanceof MethodInvoker) {
+          return MethodHandles.lookup().unreflect(((MethodInvoker) invoker).getMethod()).asType(GETTER_TYPE);
+        } else if (invoker instanceof GetFieldInvoker) {
+          return MethodHandles.lookup().unreflectGetter(((GetFieldInvoker) invoker).getField()).asType(GETTER_TYPE);
+        }
+      } catch (IllegalAccessException e) {
+        // not accessible, fall back to the invoker
+      }
+      return null;
+    }
+
+    Object get(Object target) {
+      try {
+        if (handle != null) {
+          return (Object) handle.invokeExact(target);
+        }
+        try {
+          return invoker.invoke(target, NO_ARGUMENTS);
+        } catch (Throwable t) {
+          throw ExceptionUtil.unwrapThrowable(t);
+        }
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new ReflectionException("Could not get property '" + name + "' from " + target.getClass() + ".  Cause: " + t.toString(), t);
+      }
+    }
+  }
+
+}
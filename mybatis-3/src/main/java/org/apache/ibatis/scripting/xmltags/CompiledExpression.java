@@ -0,0 +1,379 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+
+/**
+ * An OGNL expression compiled to plain Java, used to evaluate the common tests of dynamic SQL such as
+ * <code>name != null and name != ''</code> without OGNL.
+ * <p>
+ * Property paths, comparisons of a path with <code>null</code>, a string or an integer using <code>==</code> or
+ * <code>!=</code>, and <code>and</code> / <code>or</code> of those are compiled. Whenever the result could differ
+ * from the one of OGNL, e.g. a string compared to a number or a property of a null value, {@link #UNDECIDED} is
+ * returned and the expression must be evaluated by OGNL.
+ *
+ * @since 3.5.0
+ */
+final class CompiledExpression {
+
+  static final Object UNDECIDED = new Object();
+
+  private static final ReflectorFactory REFLECTOR_FACTORY = new DefaultReflectorFactory();
+
+  private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+      "not", "in", "instanceof", "new", "true", "false", "shl", "shr", "ushr", "band", "bor", "xor",
+      "lt", "lte", "gt", "gte"));
+
+  // properties OGNL resolves on the map itself instead of looking up its entries
+  private static final Set<String> MAP_PROPERTIES = new HashSet<>(Arrays.asList(
+      "size", "keys", "keySet", "values", "isEmpty"));
+
+  private final Node node;
+
+  private CompiledExpression(Node node) {
+    this.node = node;
+  }
+
+  /**
+   * @return the compiled expression, whose value is always {@link #UNDECIDED} if the expression is not supported
+   */
+  static CompiledExpression compile(String expression) {
+    return new CompiledExpression(new Parser(expression).parse());
+  }
+
+  Object getValue(Object root) {
+    if (node == null) {
+      return UNDECIDED;
+    }
+    try {
+      return node.getValue(root);
+    } catch (RuntimeException e) {
+      // let OGNL report it
+      return UNDECIDED;
+    }
+  }
+
+  private interface Node {
+    Object getValue(Object root);
+  }
+
+  private static final class Path implements Node {
+
+    private final String[] names;
+
+    Path(List<String> names) {
+      this.names = names.toArray(new String[names.size()]);
+    }
+
+    @Override
+    public Object getValue(Object root) {
+      Object value = root instanceof DynamicContext.ContextMap
+          ? getBinding((DynamicContext.ContextMap) root, names[0]) : getProperty(root, names[0]);
+      for (int i = 1; i < names.length && value != UNDECIDED; i++) {
+        value = getProperty(value, names[i]);
+      }
+      return value;
+    }
+
+    // same lookup as DynamicContext.ContextAccessor
+    private static Object getBinding(DynamicContext.ContextMap bindings, String name) {
+      Object result = bindings.get(name);
+      if (bindings.containsKey(name) || result != null) {
+        return result;
+      }
+      Object parameterObject = bindings.get(DynamicContext.PARAMETER_OBJECT_KEY);
+      if (parameterObject instanceof Map) {
+        return ((Map<?, ?>) parameterObject).get(name);
+      }
+      return null;
+    }
+
+    private static Object getProperty(Object target, String name) {
+      if (target == null) {
+        return UNDECIDED;
+      }
+      if (target instanceof Map) {
+        return MAP_PROPERTIES.contains(name) ? UNDECIDED : ((Map<?, ?>) target).get(name);
+      }
+      if (target instanceof Collection || target instanceof Iterator || target instanceof Enumeration
+          || target instanceof Class || target.getClass().isArray()) {
+        return UNDECIDED;
+      }
+      Reflector reflector = REFLECTOR_FACTORY.findForClass(target.getClass());
+      if (!reflector.hasGetter(name)) {
+        return UNDECIDED;
+      }
+      try {
+        return reflector.getGetInvoker(name).invoke(target, null);
+      } catch (Exception e) {
+        return UNDECIDED;
+      }
+    }
+  }
+
+  private static final class Comparison implements Node {
+
+    private final Path path;
+    private final Object literal;
+    private final boolean negated;
+
+    Comparison(Path path, Object literal, boolean negated) {
+      this.path = path;
+      this.literal = literal;
+      this.negated = negated;
+    }
+
+    @Override
+    public Object getValue(Object root) {
+      Object value = path.getValue(root);
+      if (value == UNDECIDED) {
+        return UNDECIDED;
+      }
+      boolean equal;
+      if (value == null || literal == null) {
+        equal = value == literal;
+      } else if (literal instanceof String) {
+        if (!(value instanceof String)) {
+          return UNDECIDED;
+        }
+        equal = literal.equals(value);
+      } else {
+        if (!(value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)) {
+          return UNDECIDED;
+        }
+        equal = ((Number) value).longValue() == (Integer) literal;
+      }
+      return equal != negated;
+    }
+  }
+
+  private static final class Junction implements Node {
+
+    private final Node[] operands;
+    private final boolean and;
+
+    Junction(List<Node> operands, boolean and) {
+      this.operands = operands.toArray(new Node[operands.size()]);
+      this.and = and;
+    }
+
+    @Override
+    public Object getValue(Object root) {
+      // like OGNL, the value of the last evaluated operand is returned
+      Object result = null;
+      for (int i = 0; i < operands.length; i++) {
+        result = operands[i].getValue(root);
+        if (result == UNDECIDED) {
+          return UNDECIDED;
+        }
+        if (i < operands.length - 1) {
+          if (result != null && !(result instanceof Boolean)) {
+            return UNDECIDED;
+          }
+          if ((result != null && (Boolean) result) != and) {
+            break;
+          }
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Recursive descent parser of the supported subset, returns null for anything else.
+   */
+  private static final class Parser {
+
+    private static final String EQ = "==";
+    private static final String NE = "!=";
+    private static final String AND = "&&";
+    private static final String OR = "||";
+
+    private final List<Object> tokens = new ArrayList<>();
+    private int position;
+
+    Parser(String expression) {
+      if (!tokenize(expression)) {
+        tokens.clear();
+      }
+    }
+
+    Node parse() {
+      if (tokens.isEmpty()) {
+        return null;
+      }
+      Node node = parseOr();
+      return position == tokens.size() ? node : null;
+    }
+
+    private Node parseOr() {
+      List<Node> operands = new ArrayList<>();
+      do {
+        Node operand = parseAnd();
+        if (operand == null) {
+          return null;
+        }
+        operands.add(operand);
+      } while (accept(OR));
+      return operands.size() == 1 ? operands.get(0) : new Junction(operands, false);
+    }
+
+    private Node parseAnd() {
+      List<Node> operands = new ArrayList<>();
+      do {
+        Node operand = parseComparison();
+        if (operand == null) {
+          return null;
+        }
+        operands.add(operand);
+      } while (accept(AND));
+      return operands.size() == 1 ? operands.get(0) : new Junction(operands, true);
+    }
+
+    private Node parseComparison() {
+      Path path = parsePath();
+      if (path == null) {
+        return null;
+      }
+      boolean negated = accept(NE);
+      if (!negated && !accept(EQ)) {
+        return path;
+      }
+      if (position == tokens.size()) {
+        return null;
+      }
+      Object token = tokens.get(position++);
+      return token instanceof Literal ? new Comparison(path, ((Literal) token).value, negated) : null;
+    }
+
+    private Path parsePath() {
+      List<String> names = new ArrayList<>();
+      do {
+        if (position == tokens.size() || !(tokens.get(position) instanceof Name)) {
+          return null;
+        }
+        names.add(((Name) tokens.get(position++)).value);
+      } while (accept("."));
+      return new Path(names);
+    }
+
+    private boolean accept(String operator) {
+      if (position < tokens.size() && operator.equals(tokens.get(position))) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    // operators are Strings
+    private boolean tokenize(String expression) {
+      int i = 0;
+      int length = expression.length();
+      while (i < length) {
+        char c = expression.charAt(i);
+        if (Character.isWhitespace(c)) {
+          i++;
+        } else if (c == '.') {
+          tokens.add(".");
+          i++;
+        } else if (expression.startsWith(EQ, i) || expression.startsWith(NE, i)
+            || expression.startsWith(AND, i) || expression.startsWith(OR, i)) {
+          tokens.add(expression.substring(i, i + 2));
+          i += 2;
+        } else if (c == '\'' || c == '"') {
+          int end = expression.indexOf(c, i + 1);
+          if (end < 0) {
+            return false;
+          }
+          String value = expression.substring(i + 1, end);
+          // OGNL reads a single quoted character as a Character, and unescapes backslashes
+          if (value.indexOf('\\') >= 0 || (c == '\'' && value.length() == 1)) {
+            return false;
+          }
+          tokens.add(new Literal(value));
+          i = end + 1;
+        } else if (c >= '0' && c <= '9') {
+          int start = i;
+          while (i < length && expression.charAt(i) >= '0' && expression.charAt(i) <= '9') {
+            i++;
+          }
+          // a leading zero makes an octal number
+          if (i - start > 9 || (c == '0' && i - start > 1)
+              || (i < length && Character.isJavaIdentifierPart(expression.charAt(i)))) {
+            return false;
+          }
+          tokens.add(new Literal(Integer.valueOf(expression.substring(start, i))));
+        } else if (Character.isJavaIdentifierStart(c)) {
+          int start = i;
+          while (i < length && Character.isJavaIdentifierPart(expression.charAt(i))) {
+            i++;
+          }
+          String name = expression.substring(start, i);
+          if (KEYWORDS.contains(name)) {
+            return false;
+          } else if ("and".equals(name)) {
+            tokens.add(AND);
+          } else if ("or".equals(name)) {
+            tokens.add(OR);
+          } else if ("eq".equals(name)) {
+            tokens.add(EQ);
+          } else if ("neq".equals(name)) {
+            tokens.add(NE);
+          } else if ("null".equals(name)) {
+            tokens.add(new Literal(null));
+          } else {
+            tokens.add(new Name(name));
+          }
+        } else {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static final class Name {
+
+    final String value;
+
+    Name(String value) {
+      this.value = value;
+    }
+  }
+
+  private static final class Literal {
+
+    final Object value;
+
+    Literal(Object value) {
+      this.value = value;
+    }
+  }
+
+}
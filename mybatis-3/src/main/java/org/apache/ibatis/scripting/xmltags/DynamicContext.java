@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -23,6 +23,7 @@ import ognl.OgnlException;
 import ognl.OgnlRuntime;
 import ognl.PropertyAccessor;
 
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 
@@ -40,9 +41,22 @@ public class DynamicContext {
 
   private final ContextMap bindings;
   private final StringBuilder sqlBuilder = new StringBuilder();
+  private final CacheKey shape;
+  private final boolean shapeOnly;
   private int uniqueNumber = 0;
 
   public DynamicContext(Configuration configuration, Object parameterObject) {
+    this(configuration, parameterObject, null, false);
+  }
+
+  /**
+   * @param shape receives the values recorded by {@link #recordShape(Object)}, may be null
+   * @param shapeOnly true to evaluate the nodes without building the SQL
+   * @since 3.5.0
+   */
+  public DynamicContext(Configuration configuration, Object parameterObject, CacheKey shape, boolean shapeOnly) {
+    this.shape = shape;
+    this.shapeOnly = shapeOnly;
     if (parameterObject != null && !(parameterObject instanceof Map)) {
       MetaObject metaObject = configuration.newMetaObject(parameterObject);
       bindings = new ContextMap(metaObject);
@@ -62,8 +76,10 @@ public class DynamicContext {
   }
 
   public void appendSql(String sql) {
-    sqlBuilder.append(sql);
-    sqlBuilder.append(" ");
+    if (!shapeOnly) {
+      sqlBuilder.append(sql);
+      sqlBuilder.append(" ");
+    }
   }
 
   public String getSql() {
@@ -74,6 +90,26 @@ public class DynamicContext {
     return uniqueNumber++;
   }
 
+  /**
+   * Records a value the SQL depends on, such as the result of a test or the size of a collection.
+   * Applying the same nodes twice yields the same SQL if the same values were recorded in the same order.
+   *
+   * @since 3.5.0
+   */
+  public void recordShape(Object value) {
+    if (shape != null) {
+      shape.update(value);
+    }
+  }
+
+  /**
+   * @return true if the SQL is not built, so nodes only need to evaluate their tests and bindings
+   * @since 3.5.0
+   */
+  public boolean isShapeOnly() {
+    return shapeOnly;
+  }
+
   static class ContextMap extends HashMap<String, Object> {
     private static final long serialVersionUID = 2977601501966151582L;
 
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,38 +15,167 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.session.Configuration;
 
 /**
+ * The SQL text and parameter mappings built for a parameter are cached by the shape recorded while applying the
+ * nodes (see {@link DynamicContext#recordShape(Object)}), so a call with an already seen shape only evaluates the
+ * tests and bindings.
+ *
  * @author Clinton Begin
  */
 public class DynamicSqlSource implements SqlSource {
 
+  private static final int MAXIMUM_PLANS = 64;
+
   private final Configuration configuration;
   private final SqlNode rootSqlNode;
+  private final boolean plannable;
+  private final Map<CacheKey, Plan> plans = new ConcurrentHashMap<>();
 
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
     this.configuration = configuration;
     this.rootSqlNode = rootSqlNode;
+    this.plannable = isPlannable(rootSqlNode);
   }
 
   @Override
   public BoundSql getBoundSql(Object parameterObject) {
-    DynamicContext context = new DynamicContext(configuration, parameterObject);
-    rootSqlNode.apply(context);
-    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
     Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
-    BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
+    if (!plannable || !configuration.isDynamicSqlPlanCacheEnabled()) {
+      DynamicContext context = new DynamicContext(configuration, parameterObject);
+      rootSqlNode.apply(context);
+      SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+      SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+      return bindAdditionalParameters(sqlSource.getBoundSql(parameterObject), context);
+    }
+    CacheKey shape = newShape(parameterType);
+    DynamicContext context = new DynamicContext(configuration, parameterObject, shape, true);
+    rootSqlNode.apply(context);
+    Plan plan = plans.get(shape);
+    if (plan == null || !plan.accepts(configuration, context.getBindings())) {
+      shape = newShape(parameterType);
+      context = new DynamicContext(configuration, parameterObject, shape, false);
+      rootSqlNode.apply(context);
+      plan = new Plan(configuration, context, parameterType);
+      if (plans.size() < MAXIMUM_PLANS || plans.containsKey(shape)) {
+        plans.put(shape, plan);
+      }
+    }
+    BoundSql boundSql = new BoundSql(configuration, plan.sql, new ArrayList<>(plan.parameterMappings), parameterObject);
+    return bindAdditionalParameters(boundSql, context);
+  }
+
+  private BoundSql bindAdditionalParameters(BoundSql boundSql, DynamicContext context) {
     for (Map.Entry<String, Object> entry : context.getBindings().entrySet()) {
       boundSql.setAdditionalParameter(entry.getKey(), entry.getValue());
     }
     return boundSql;
   }
 
+  private static CacheKey newShape(Class<?> parameterType) {
+    CacheKey shape = new CacheKey();
+    shape.update(parameterType);
+    return shape;
+  }
+
+  /**
+   * Custom nodes may build SQL that depends on values they do not record, so only the built-in nodes are planned.
+   */
+  private static boolean isPlannable(SqlNode node) {
+    Class<?> type = node.getClass();
+    if (type == StaticTextSqlNode.class || type == TextSqlNode.class || type == VarDeclSqlNode.class) {
+      return true;
+    }
+    if (type == MixedSqlNode.class) {
+      return isPlannable(((MixedSqlNode) node).getContents());
+    }
+    if (type == IfSqlNode.class) {
+      return isPlannable(((IfSqlNode) node).getContents());
+    }
+    if (type == ChooseSqlNode.class) {
+      ChooseSqlNode chooseSqlNode = (ChooseSqlNode) node;
+      return isPlannable(chooseSqlNode.getIfSqlNodes())
+          && (chooseSqlNode.getDefaultSqlNode() == null || isPlannable(chooseSqlNode.getDefaultSqlNode()));
+    }
+    if (type == ForEachSqlNode.class) {
+      return isPlannable(((ForEachSqlNode) node).getContents());
+    }
+    if (type == TrimSqlNode.class || type == WhereSqlNode.class || type == SetSqlNode.class) {
+      return isPlannable(((TrimSqlNode) node).getContents());
+    }
+    return false;
+  }
+
+  private static boolean isPlannable(List<SqlNode> nodes) {
+    for (SqlNode node : nodes) {
+      if (!isPlannable(node)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The SQL and parameter mappings of one shape.
+   * <p>
+   * The type of a parameter bound by the nodes, e.g. a foreach item, is the type of its value, so the plan is only
+   * reused if those still resolve to the same types.
+   */
+  private static final class Plan {
+
+    private final String sql;
+    private final List<ParameterMapping> parameterMappings;
+    private final String[] boundProperties;
+    private final Class<?>[] boundPropertyTypes;
+
+    Plan(Configuration configuration, DynamicContext context, Class<?> parameterType) {
+      SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+      Map<String, Object> bindings = context.getBindings();
+      BoundSql boundSql = sqlSourceParser.parse(context.getSql(), parameterType, bindings).getBoundSql(null);
+      this.sql = boundSql.getSql();
+      this.parameterMappings = boundSql.getParameterMappings();
+      List<String> properties = new ArrayList<>();
+      for (ParameterMapping parameterMapping : parameterMappings) {
+        String property = parameterMapping.getProperty();
+        if (property != null && bindings.containsKey(new PropertyTokenizer(property).getName())) {
+          properties.add(property);
+        }
+      }
+      this.boundProperties = properties.toArray(new String[properties.size()]);
+      this.boundPropertyTypes = new Class<?>[boundProperties.length];
+      MetaObject metaBindings = boundProperties.length == 0 ? null : configuration.newMetaObject(bindings);
+      for (int i = 0; i < boundProperties.length; i++) {
+        boundPropertyTypes[i] = typeOf(metaBindings, boundProperties[i]);
+      }
+    }
+
+    boolean accepts(Configuration configuration, Map<String, Object> bindings) {
+      MetaObject metaBindings = boundProperties.length == 0 ? null : configuration.newMetaObject(bindings);
+      for (int i = 0; i < boundProperties.length; i++) {
+        if (typeOf(metaBindings, boundProperties[i]) != boundPropertyTypes[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    // same resolution as SqlSourceBuilder, null if the type does not come from the bindings
+    private static Class<?> typeOf(MetaObject metaBindings, String property) {
+      return metaBindings.hasGetter(property) ? metaBindings.getGetterType(property) : null;
+    }
+  }
+
 }
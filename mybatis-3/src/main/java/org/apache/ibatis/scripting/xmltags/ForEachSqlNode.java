@@ -15,6 +15,8 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
 
 import org.apache.ibatis.parsing.GenericTokenParser;
@@ -52,6 +54,7 @@ public class ForEachSqlNode implements SqlNode {
   public boolean apply(DynamicContext context) {
     Map<String, Object> bindings = context.getBindings();
     final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
+    context.recordShape(sizeOf(iterable));
     if (!iterable.iterator().hasNext()) {
       return true;
     }
@@ -89,6 +92,10 @@ public class ForEachSqlNode implements SqlNode {
     return true;
   }
 
+  SqlNode getContents() {
+    return contents;
+  }
+
   private void applyIndex(DynamicContext context, Object o, int i) {
     if (index != null) {
       context.bind(index, o);
@@ -119,6 +126,17 @@ public class ForEachSqlNode implements SqlNode {
     return ITEM_PREFIX + item + "_" + i;
   }
 
+  private static int sizeOf(Iterable<?> iterable) {
+    if (iterable instanceof Collection) {
+      return ((Collection<?>) iterable).size();
+    }
+    int size = 0;
+    for (Iterator<?> iterator = iterable.iterator(); iterator.hasNext(); iterator.next()) {
+      size++;
+    }
+    return size;
+  }
+
   private static class FilteredDynamicContext extends DynamicContext {
     private final DynamicContext delegate;
     private final int index;
@@ -166,6 +184,16 @@ public class ForEachSqlNode implements SqlNode {
       return delegate.getUniqueNumber();
     }
 
+    @Override
+    public void recordShape(Object value) {
+      delegate.recordShape(value);
+    }
+
+    @Override
+    public boolean isShapeOnly() {
+      return delegate.isShapeOnly();
+    }
+
   }
 
 
@@ -213,6 +241,16 @@ public class ForEachSqlNode implements SqlNode {
     public int getUniqueNumber() {
       return delegate.getUniqueNumber();
     }
+
+    @Override
+    public void recordShape(Object value) {
+      delegate.recordShape(value);
+    }
+
+    @Override
+    public boolean isShapeOnly() {
+      return delegate.isShapeOnly();
+    }
   }
 
 }
@@ -25,6 +25,7 @@ import org.apache.ibatis.builder.BuilderException;
 
 /**
  * Caches OGNL parsed expressions.
+ * The simple ones are compiled to plain Java as well, and only evaluated by OGNL when the compiled form cannot.
  *
  * @author Eduardo Macarron
  *
@@ -35,12 +36,17 @@ public final class OgnlCache {
   private static final OgnlMemberAccess MEMBER_ACCESS = new OgnlMemberAccess();
   private static final OgnlClassResolver CLASS_RESOLVER = new OgnlClassResolver();
   private static final Map<String, Object> expressionCache = new ConcurrentHashMap<>();
+  private static final Map<String, CompiledExpression> compiledExpressionCache = new ConcurrentHashMap<>();
 
   private OgnlCache() {
     // Prevent Instantiation of Static Class
   }
 
   public static Object getValue(String expression, Object root) {
+    Object value = compileExpression(expression).getValue(root);
+    if (value != CompiledExpression.UNDECIDED) {
+      return value;
+    }
     try {
       Map context = Ognl.createDefaultContext(root, MEMBER_ACCESS, CLASS_RESOLVER, null);
       return Ognl.getValue(parseExpression(expression), context, root);
@@ -58,4 +64,13 @@ public final class OgnlCache {
     return node;
   }
 
+  private static CompiledExpression compileExpression(String expression) {
+    CompiledExpression compiled = compiledExpressionCache.get(expression);
+    if (compiled == null) {
+      compiled = CompiledExpression.compile(expression);
+      compiledExpressionCache.put(expression, compiled);
+    }
+    return compiled;
+  }
+
 }
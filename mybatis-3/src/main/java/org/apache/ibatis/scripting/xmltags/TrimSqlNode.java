@@ -57,6 +57,10 @@ public class TrimSqlNode implements SqlNode {
     return result;
   }
 
+  SqlNode getContents() {
+    return contents;
+  }
+
   private static List<String> parseOverrides(String overrides) {
     if (overrides != null) {
       final StringTokenizer parser = new StringTokenizer(overrides, "|", false);
@@ -108,6 +112,16 @@ public class TrimSqlNode implements SqlNode {
       return delegate.getUniqueNumber();
     }
 
+    @Override
+    public void recordShape(Object value) {
+      delegate.recordShape(value);
+    }
+
+    @Override
+    public boolean isShapeOnly() {
+      return delegate.isShapeOnly();
+    }
+
     @Override
     public void appendSql(String sql) {
       sqlBuffer.append(sql);
@@ -37,6 +37,7 @@ import org.apache.ibatis.cache.decorators.SoftCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
@@ -109,6 +110,11 @@ public class Configuration {
   protected boolean callSettersOnNulls;
   protected boolean useActualParamName = true;
   protected boolean returnInstanceForEmptyRow;
+  protected boolean compiledRowMappingEnabled = true;
+  protected boolean compiledParameterAccessEnabled = true;
+  protected boolean dynamicSqlPlanCacheEnabled = true;
+  protected int batchSelectSize = 1000;
+  protected int batchFlushSize;
 
   protected String logPrefix;
   protected Class <? extends Log> logImpl;
@@ -177,6 +183,7 @@ public class Configuration {
 
     typeAliasRegistry.registerAlias("JNDI", JndiDataSourceFactory.class);
     typeAliasRegistry.registerAlias("POOLED", PooledDataSourceFactory.class);
+    typeAliasRegistry.registerAlias("CONCURRENT_POOLED", ConcurrentPooledDataSourceFactory.class);
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
@@ -259,6 +266,76 @@ public class Configuration {
     this.returnInstanceForEmptyRow = returnEmptyInstance;
   }
 
+  /**
+   * @since 3.5.0
+   */
+  public boolean isCompiledRowMappingEnabled() {
+    return compiledRowMappingEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setCompiledRowMappingEnabled(boolean compiledRowMappingEnabled) {
+    this.compiledRowMappingEnabled = compiledRowMappingEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public boolean isCompiledParameterAccessEnabled() {
+    return compiledParameterAccessEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setCompiledParameterAccessEnabled(boolean compiledParameterAccessEnabled) {
+    this.compiledParameterAccessEnabled = compiledParameterAccessEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public boolean isDynamicSqlPlanCacheEnabled() {
+    return dynamicSqlPlanCacheEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setDynamicSqlPlanCacheEnabled(boolean dynamicSqlPlanCacheEnabled) {
+    this.dynamicSqlPlanCacheEnabled = dynamicSqlPlanCacheEnabled;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public int getBatchSelectSize() {
+    return batchSelectSize;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setBatchSelectSize(int batchSelectSize) {
+    this.batchSelectSize = batchSelectSize;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public int getBatchFlushSize() {
+    return batchFlushSize;
+  }
+
+  /**
+   * @since 3.5.0
+   */
+  public void setBatchFlushSize(int batchFlushSize) {
+    this.batchFlushSize = batchFlushSize;
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -570,6 +647,8 @@ public class Configuration {
     Executor executor;
     if (ExecutorType.BATCH == executorType) {
       executor = new BatchExecutor(this, transaction);
+    } else if (ExecutorType.GROUPED_BATCH == executorType) {
+      executor = new BatchExecutor(this, transaction, true);
     } else if (ExecutorType.REUSE == executorType) {
       executor = new ReuseExecutor(this, transaction);
     } else {
@@ -0,0 +1,88 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.io.Reader;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+
+/**
+ * Creates a new in-memory HSQLDB or Derby database with {@link #AUTHORS} authors of {@link #POSTS_PER_AUTHOR} posts each,
+ * and the session factory of <code>mybatis-config.xml</code> for it.
+ */
+final class BenchmarkDatabase {
+
+  static final String SELECT_AUTHORS = "org.apache.ibatis.benchmark.BenchmarkMapper.selectAuthors";
+  static final String SELECT_AUTHORS_WITH_POSTS = "org.apache.ibatis.benchmark.BenchmarkMapper.selectAuthorsWithPosts";
+  static final String SELECT_AUTHORS_BY_EXAMPLE = "org.apache.ibatis.benchmark.BenchmarkMapper.selectAuthorsByExample";
+  static final String INSERT_AUTHOR = "org.apache.ibatis.benchmark.BenchmarkMapper.insertAuthor";
+  static final String INSERT_POST = "org.apache.ibatis.benchmark.BenchmarkMapper.insertPost";
+  static final String SELECT_CACHED_AUTHORS = "org.apache.ibatis.benchmark.CachedBenchmarkMapper.selectAuthors";
+
+  static final int AUTHORS = 1000;
+  static final int POSTS_PER_AUTHOR = 5;
+
+  private static final AtomicInteger DATABASE_COUNT = new AtomicInteger();
+
+  private BenchmarkDatabase() {
+  }
+
+  /**
+   * @param database hsqldb or derby
+   * @param compiled whether the compiled paths of row mapping, parameter access and dynamic SQL are enabled
+   */
+  static SqlSessionFactory create(String database, boolean compiled) throws Exception {
+    final String name = "benchmark" + DATABASE_COUNT.incrementAndGet();
+    final Properties properties = new Properties();
+    if ("hsqldb".equals(database)) {
+      properties.setProperty("driver", "org.hsqldb.jdbcDriver");
+      properties.setProperty("url", "jdbc:hsqldb:mem:" + name);
+    } else if ("derby".equals(database)) {
+      properties.setProperty("driver", "org.apache.derby.jdbc.EmbeddedDriver");
+      properties.setProperty("url", "jdbc:derby:memory:" + name + ";create=true");
+    } else {
+      throw new IllegalArgumentException("Unknown database " + database + ", expected hsqldb or derby");
+    }
+    final SqlSessionFactory sqlSessionFactory;
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/benchmark/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader, properties);
+    }
+    final Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setCompiledRowMappingEnabled(compiled);
+    configuration.setCompiledParameterAccessEnabled(compiled);
+    configuration.setDynamicSqlPlanCacheEnabled(compiled);
+    BaseDataTest.runScript(configuration.getEnvironment().getDataSource(), "org/apache/ibatis/benchmark/CreateDB.sql");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      for (int authorId = 1; authorId <= AUTHORS; authorId++) {
+        sqlSession.insert(INSERT_AUTHOR, new Author(authorId));
+        for (int i = 0; i < POSTS_PER_AUTHOR; i++) {
+          sqlSession.insert(INSERT_POST, new Post((authorId - 1) * POSTS_PER_AUTHOR + i + 1, authorId));
+        }
+      }
+      sqlSession.commit();
+    }
+    return sqlSessionFactory;
+  }
+
+}
@@ -0,0 +1,210 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The stages of the statement pipeline, each measured on its own on statements prepared once.
+ * <p>
+ * <code>executeSimple</code> and <code>executeNested</code> only execute the selects and read every column of the
+ * JDBC result set, they are the baselines to subtract from <code>mapSimple</code> and <code>mapNested</code>, which
+ * execute the same selects and map their results with the simple and the nested result map.
+ *
+ * @since 3.5.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StageBenchmark {
+
+  @Param({"hsqldb", "derby"})
+  public String database;
+
+  @Param({"10", "100"})
+  public int rows;
+
+  @Param({"true", "false"})
+  public boolean compiled;
+
+  private Configuration configuration;
+  private Executor executor;
+
+  private MappedStatement selectByExample;
+  private Map<String, Object> example;
+  private BoundSql exampleBoundSql;
+
+  private MappedStatement insertAuthor;
+  private Author author;
+  private BoundSql insertBoundSql;
+  private PreparedStatement insertStatement;
+
+  private MappedStatement selectSimple;
+  private BoundSql simpleBoundSql;
+  private PreparedStatement simpleStatement;
+
+  private MappedStatement selectNested;
+  private BoundSql nestedBoundSql;
+  private PreparedStatement nestedStatement;
+
+  private Cache cache;
+  private CacheKey cachedKey;
+
+  @Setup
+  public void setUp() throws Exception {
+    configuration = BenchmarkDatabase.create(database, compiled).getConfiguration();
+    Connection connection = configuration.getEnvironment().getDataSource().getConnection();
+    executor = configuration.newExecutor(new JdbcTransaction(connection), ExecutorType.SIMPLE);
+
+    List<Integer> ids = new ArrayList<>();
+    for (int i = 1; i <= rows; i++) {
+      ids.add(i);
+    }
+    example = new HashMap<>();
+    example.put("username", null);
+    example.put("ids", ids);
+    selectByExample = configuration.getMappedStatement(BenchmarkDatabase.SELECT_AUTHORS_BY_EXAMPLE);
+    exampleBoundSql = selectByExample.getBoundSql(example);
+
+    author = new Author(BenchmarkDatabase.AUTHORS + 1);
+    insertAuthor = configuration.getMappedStatement(BenchmarkDatabase.INSERT_AUTHOR);
+    insertBoundSql = insertAuthor.getBoundSql(author);
+    insertStatement = connection.prepareStatement(insertBoundSql.getSql());
+
+    selectSimple = configuration.getMappedStatement(BenchmarkDatabase.SELECT_AUTHORS);
+    simpleBoundSql = selectSimple.getBoundSql(rows);
+    simpleStatement = prepare(connection, selectSimple, simpleBoundSql);
+
+    selectNested = configuration.getMappedStatement(BenchmarkDatabase.SELECT_AUTHORS_WITH_POSTS);
+    nestedBoundSql = selectNested.getBoundSql(rows);
+    nestedStatement = prepare(connection, selectNested, nestedBoundSql);
+
+    MappedStatement selectCached = configuration.getMappedStatement(BenchmarkDatabase.SELECT_CACHED_AUTHORS);
+    cache = selectCached.getCache();
+    cachedKey = executor.createCacheKey(selectCached, rows, RowBounds.DEFAULT, selectCached.getBoundSql(rows));
+    cache.putObject(cachedKey, executor.query(selectCached, rows, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER));
+  }
+
+  private PreparedStatement prepare(Connection connection, MappedStatement mappedStatement, BoundSql boundSql) throws SQLException {
+    PreparedStatement statement = connection.prepareStatement(boundSql.getSql());
+    configuration.newParameterHandler(mappedStatement, rows, boundSql).setParameters(statement);
+    return statement;
+  }
+
+  @TearDown
+  public void tearDown() throws SQLException {
+    insertStatement.close();
+    simpleStatement.close();
+    nestedStatement.close();
+    executor.close(false);
+  }
+
+  @Benchmark
+  public BoundSql getBoundSql() {
+    return selectByExample.getBoundSql(example);
+  }
+
+  @Benchmark
+  public PreparedStatement bindParameters() throws SQLException {
+    configuration.newParameterHandler(insertAuthor, author, insertBoundSql).setParameters(insertStatement);
+    return insertStatement;
+  }
+
+  @Benchmark
+  public CacheKey createCacheKey() {
+    return executor.createCacheKey(selectByExample, example, RowBounds.DEFAULT, exampleBoundSql);
+  }
+
+  @Benchmark
+  public Object getCachedResult() {
+    return cache.getObject(cachedKey);
+  }
+
+  @Benchmark
+  public int executeSimple() throws SQLException {
+    return execute(simpleStatement);
+  }
+
+  @Benchmark
+  public List<Object> mapSimple() throws SQLException {
+    return map(selectSimple, simpleBoundSql, simpleStatement);
+  }
+
+  @Benchmark
+  public int executeNested() throws SQLException {
+    return execute(nestedStatement);
+  }
+
+  @Benchmark
+  public List<Object> mapNested() throws SQLException {
+    return map(selectNested, nestedBoundSql, nestedStatement);
+  }
+
+  private static int execute(PreparedStatement statement) throws SQLException {
+    int values = 0;
+    try (ResultSet rs = statement.executeQuery()) {
+      int columnCount = rs.getMetaData().getColumnCount();
+      while (rs.next()) {
+        for (int i = 1; i <= columnCount; i++) {
+          if (rs.getObject(i) != null) {
+            values++;
+          }
+        }
+      }
+    }
+    return values;
+  }
+
+  private List<Object> map(MappedStatement mappedStatement, BoundSql boundSql, PreparedStatement statement) throws SQLException {
+    statement.execute();
+    return configuration.newResultSetHandler(executor, mappedStatement, RowBounds.DEFAULT,
+        configuration.newParameterHandler(mappedStatement, rows, boundSql), null, boundSql).handleResultSets(statement);
+  }
+
+}
@@ -0,0 +1,126 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The whole statement pipeline, from opening a {@link SqlSession} to closing it, over an in-memory database.
+ * <p>
+ * The selects return <code>rows</code> authors: mapped by a simple result map, by a nested result map joining their
+ * posts, by a dynamic statement with a <code>foreach</code> over their ids, or from the second level cache.
+ * The insert writes <code>rows</code> authors in one transaction.
+ *
+ * @since 3.5.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementBenchmark {
+
+  @Param({"hsqldb", "derby"})
+  public String database;
+
+  @Param({"10", "100"})
+  public int rows;
+
+  @Param({"true", "false"})
+  public boolean compiled;
+
+  private SqlSessionFactory sqlSessionFactory;
+  private Map<String, Object> example;
+  private final AtomicInteger nextAuthorId = new AtomicInteger(BenchmarkDatabase.AUTHORS);
+
+  @Setup
+  public void setUp() throws Exception {
+    sqlSessionFactory = BenchmarkDatabase.create(database, compiled);
+    List<Integer> ids = new ArrayList<>();
+    for (int i = 1; i <= rows; i++) {
+      ids.add(i);
+    }
+    example = new HashMap<>();
+    example.put("username", null);
+    example.put("ids", ids);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.selectList(BenchmarkDatabase.SELECT_CACHED_AUTHORS, rows);
+      // the result is put in the second level cache on commit
+      sqlSession.commit();
+    }
+  }
+
+  @Benchmark
+  public List<Author> selectSimple() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.selectList(BenchmarkDatabase.SELECT_AUTHORS, rows);
+    }
+  }
+
+  @Benchmark
+  public List<Author> selectNested() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.selectList(BenchmarkDatabase.SELECT_AUTHORS_WITH_POSTS, rows);
+    }
+  }
+
+  @Benchmark
+  public List<Author> selectDynamic() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.selectList(BenchmarkDatabase.SELECT_AUTHORS_BY_EXAMPLE, example);
+    }
+  }
+
+  @Benchmark
+  public List<Author> selectCached() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.selectList(BenchmarkDatabase.SELECT_CACHED_AUTHORS, rows);
+    }
+  }
+
+  @Benchmark
+  public int insert() {
+    int count = 0;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      for (int i = 0; i < rows; i++) {
+        count += sqlSession.insert(BenchmarkDatabase.INSERT_AUTHOR, new Author(nextAuthorId.incrementAndGet()));
+      }
+      sqlSession.commit();
+    }
+    return count;
+  }
+
+}
@@ -96,6 +96,11 @@ public class XmlConfigBuilderTest {
       assertThat(config.isSafeResultHandlerEnabled()).isTrue();
       assertThat(config.getDefaultScriptingLanuageInstance()).isInstanceOf(XMLLanguageDriver.class);
       assertThat(config.isCallSettersOnNulls()).isFalse();
+      assertThat(config.isCompiledRowMappingEnabled()).isTrue();
+      assertThat(config.isCompiledParameterAccessEnabled()).isTrue();
+      assertThat(config.isDynamicSqlPlanCacheEnabled()).isTrue();
+      assertThat(config.getBatchSelectSize()).isEqualTo(1000);
+      assertThat(config.getBatchFlushSize()).isEqualTo(0);
       assertNull(config.getLogPrefix());
       assertNull(config.getLogImpl());
       assertNull(config.getConfigurationFactory());
@@ -189,6 +194,11 @@ public class XmlConfigBuilderTest {
         assertThat(config.isSafeResultHandlerEnabled()).isFalse();
         assertThat(config.getDefaultScriptingLanuageInstance()).isInstanceOf(RawLanguageDriver.class);
         assertThat(config.isCallSettersOnNulls()).isTrue();
+        assertThat(config.isCompiledRowMappingEnabled()).isFalse();
+        assertThat(config.isCompiledParameterAccessEnabled()).isFalse();
+        assertThat(config.isDynamicSqlPlanCacheEnabled()).isFalse();
+        assertThat(config.getBatchSelectSize()).isEqualTo(200);
+        assertThat(config.getBatchFlushSize()).isEqualTo(500);
         assertThat(config.getLogPrefix()).isEqualTo("mybatis_");
         assertThat(config.getLogImpl().getName()).isEqualTo(Slf4jImpl.class.getName());
         assertThat(config.getVfsImpl().getName()).isEqualTo(JBoss6VFS.class.getName());
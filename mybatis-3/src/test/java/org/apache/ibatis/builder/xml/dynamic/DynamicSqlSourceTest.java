@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -29,7 +29,9 @@ import java.util.Map;
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.scripting.xmltags.ChooseSqlNode;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
 import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
 import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
 import org.apache.ibatis.scripting.xmltags.IfSqlNode;
@@ -387,6 +389,82 @@ public class DynamicSqlSourceTest extends BaseDataTest {
     Assert.assertEquals("id=", sql);
   }
 
+  @Test
+  public void shouldBuildTheSameSqlFromACachedPlan() {
+    Configuration uncached = new Configuration();
+    uncached.setDynamicSqlPlanCacheEnabled(false);
+    DynamicSqlSource expectedSource = createShapedSqlSource(uncached);
+    DynamicSqlSource source = createShapedSqlSource(new Configuration());
+    List<Map<String, Object>> params = new ArrayList<Map<String, Object>>();
+    params.add(shapedParam("a", "ID", 1, 2));
+    params.add(shapedParam(null, "ID", 3, 4));
+    params.add(shapedParam("b", "ID", 5, 6));
+    params.add(shapedParam("c", "TITLE"));
+    params.add(shapedParam("d", "ID", 7, 8, 9));
+    params.add(shapedParam("e", "TITLE", 10));
+    for (int i = 0; i < 2; i++) {
+      for (Map<String, Object> param : params) {
+        BoundSql expected = expectedSource.getBoundSql(param);
+        BoundSql boundSql = source.getBoundSql(param);
+        assertEquals(expected.getSql(), boundSql.getSql());
+        assertEquals(expected.getParameterMappings().size(), boundSql.getParameterMappings().size());
+        for (int j = 0; j < expected.getParameterMappings().size(); j++) {
+          ParameterMapping expectedMapping = expected.getParameterMappings().get(j);
+          ParameterMapping parameterMapping = boundSql.getParameterMappings().get(j);
+          assertEquals(expectedMapping.getProperty(), parameterMapping.getProperty());
+          assertEquals(expectedMapping.getJavaType(), parameterMapping.getJavaType());
+          assertEquals(expected.getAdditionalParameter(expectedMapping.getProperty()),
+              boundSql.getAdditionalParameter(parameterMapping.getProperty()));
+        }
+      }
+    }
+    assertEquals("SELECT * FROM BLOG WHERE  TITLE = ? AND ID IN (?,?) ORDER BY ID",
+        source.getBoundSql(shapedParam("f", "ID", 11, 12)).getSql());
+  }
+
+  @Test
+  public void shouldRebuildAPlanWhenTheTypeOfABoundParameterChanges() {
+    DynamicSqlSource source = createShapedSqlSource(new Configuration());
+    BoundSql boundSql = source.getBoundSql(shapedParam(null, "ID", 1));
+    assertEquals(Integer.class, boundSql.getParameterMappings().get(0).getJavaType());
+    boundSql = source.getBoundSql(shapedParam(null, "ID", "1"));
+    assertEquals(String.class, boundSql.getParameterMappings().get(0).getJavaType());
+    assertEquals("1", boundSql.getAdditionalParameter(boundSql.getParameterMappings().get(0).getProperty()));
+  }
+
+  @Test
+  public void shouldBuildTheSqlOfCustomSqlNodesOnEveryCall() {
+    final SqlNode tableSqlNode = new SqlNode() {
+      @Override
+      public boolean apply(DynamicContext context) {
+        context.appendSql((String) context.getBindings().get("_parameter"));
+        return true;
+      }
+    };
+    DynamicSqlSource source = new DynamicSqlSource(new Configuration(), mixedContents(
+        new TextSqlNode("SELECT * FROM"), tableSqlNode));
+    assertEquals("SELECT * FROM BLOG", source.getBoundSql("BLOG").getSql());
+    assertEquals("SELECT * FROM AUTHOR", source.getBoundSql("AUTHOR").getSql());
+  }
+
+  private DynamicSqlSource createShapedSqlSource(Configuration configuration) {
+    return new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG"),
+        new WhereSqlNode(configuration, mixedContents(
+            new IfSqlNode(mixedContents(new TextSqlNode("AND TITLE = #{title} ")), "title != null"),
+            new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{id}")), "ids", null, "id",
+                "AND ID IN (", ")", ","))),
+        new TextSqlNode("ORDER BY ${order}")));
+  }
+
+  private Map<String, Object> shapedParam(String title, String order, Object... ids) {
+    Map<String, Object> param = new HashMap<String, Object>();
+    param.put("title", title);
+    param.put("order", order);
+    param.put("ids", Arrays.asList(ids));
+    return param;
+  }
+
   public static class Bean {
     public String id;
     public Bean(String property) {
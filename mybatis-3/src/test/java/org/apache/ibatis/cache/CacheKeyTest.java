@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -90,6 +90,36 @@ public class CacheKeyTest {
     assertTrue(key1.equals(key2));
   }
 
+  @Test
+  public void shouldTestCacheKeysOfManyUpdates() {
+    CacheKey key1 = new CacheKey();
+    CacheKey key2 = new CacheKey();
+    for (int i = 0; i < 100; i++) {
+      key1.update(i);
+      key2.update(Integer.valueOf(i));
+    }
+    assertEquals(100, key1.getUpdateCount());
+    assertEquals(key1, key2);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    key2.update(null);
+    assertFalse(key1.equals(key2));
+    assertFalse(key2.equals(key1));
+  }
+
+  @Test
+  public void shouldUpdateClonesIndependently() throws Exception {
+    CacheKey key = new CacheKey(new Object[] { 1, "hello" });
+    CacheKey clone = key.clone();
+    assertEquals(key, clone);
+    clone.update("world");
+    assertEquals(2, key.getUpdateCount());
+    assertEquals(3, clone.getUpdateCount());
+    assertFalse(key.equals(clone));
+    key.update("world");
+    assertEquals(key, clone);
+    assertEquals(key.hashCode(), clone.hashCode());
+  }
+
   @Test (expected = NotSerializableException.class)
   public void serializationExceptionTest() throws Exception {
     CacheKey cacheKey = new CacheKey();
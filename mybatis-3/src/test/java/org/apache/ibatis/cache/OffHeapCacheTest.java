@@ -0,0 +1,160 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class OffHeapCacheTest {
+
+  @Test
+  public void shouldReturnCopiesOfCachedObjects() throws Exception {
+    OffHeapCache cache = newCache(1024, 256);
+    List<String> value = new ArrayList<>(Arrays.asList("a", "b"));
+    cache.putObject(0, value);
+    Object cached = cache.getObject(0);
+    assertEquals(value, cached);
+    assertNotSame(value, cached);
+    assertEquals(1, cache.getHitCount());
+  }
+
+  @Test
+  public void shouldReplaceItemOnPut() throws Exception {
+    OffHeapCache cache = newCache(1024, 256);
+    cache.putObject(0, "a");
+    cache.putObject(0, "b");
+    assertEquals("b", cache.getObject(0));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldEvictWhenFull() throws Exception {
+    OffHeapCache cache = newCache(1024, 256);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    assertTrue(cache.getSize() < 100);
+    assertEquals(100, cache.getSize() + cache.getEvictionCount());
+    assertTrue(cache.getUsedBytes() <= 1024);
+    assertEquals(99, cache.getObject(99));
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  public void shouldKeepRecentlyReadItemsOnCompaction() throws Exception {
+    OffHeapCache cache = newCache(1024, 256);
+    cache.putObject(0, 0);
+    for (int i = 1; i < 100; i++) {
+      assertEquals(0, cache.getObject(0));
+      cache.putObject(i, i);
+    }
+    assertEquals(0, cache.getObject(0));
+  }
+
+  @Test
+  public void shouldNotCacheItemsLargerThanASegment() throws Exception {
+    OffHeapCache cache = newCache(1024, 256);
+    cache.putObject(0, new byte[512]);
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldRemoveItemOnDemand() throws Exception {
+    OffHeapCache cache = newCache(1024, 256);
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() throws Exception {
+    OffHeapCache cache = newCache(1024, 256);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getUsedBytes());
+  }
+
+  @Test
+  public void shouldStoreInMappedFile() throws Exception {
+    File file = File.createTempFile("mybatis-cache", ".bin");
+    try {
+      OffHeapCache cache = new OffHeapCache("default");
+      cache.setCapacity(1024);
+      cache.setSegmentSize(256);
+      cache.setFile(file.getAbsolutePath());
+      cache.initialize();
+      cache.putObject(0, "a");
+      assertEquals("a", cache.getObject(0));
+      assertEquals(1024, file.length());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void shouldUseConfiguredSerializer() {
+    Properties properties = new Properties();
+    properties.setProperty("capacity", "1024");
+    properties.setProperty("segmentSize", "256");
+    properties.setProperty("serializer", StringSerializer.class.getName());
+    Cache cache = new CacheBuilder("default").implementation(OffHeapCache.class).properties(properties).build();
+    cache.putObject(0, "a");
+    assertEquals("a!", cache.getObject(0));
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldRequireTwoSegments() throws Exception {
+    newCache(256, 256);
+  }
+
+  private OffHeapCache newCache(long capacity, int segmentSize) throws Exception {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setCapacity(capacity);
+    cache.setSegmentSize(segmentSize);
+    cache.initialize();
+    return cache;
+  }
+
+  public static class StringSerializer implements CacheSerializer {
+
+    @Override
+    public byte[] serialize(Object value) {
+      return value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+      return new String(bytes, StandardCharsets.UTF_8) + "!";
+    }
+  }
+
+}
@@ -0,0 +1,159 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.cache.impl.TinyLfuCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class TinyLfuCacheTest {
+
+  @Test
+  public void shouldBeBoundedBySize() {
+    TinyLfuCache cache = new TinyLfuCache("default");
+    cache.setSize(100);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(100, cache.getSize());
+    assertEquals(900, cache.getEvictionCount());
+  }
+
+  @Test
+  public void shouldBeBoundedByRows() {
+    TinyLfuCache cache = new TinyLfuCache("default");
+    cache.setMaxRows(10);
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, Arrays.asList(i, i, i, i));
+    }
+    assertEquals(2, cache.getSize());
+  }
+
+  @Test
+  public void shouldKeepFrequentlyReadEntries() {
+    TinyLfuCache cache = new TinyLfuCache("default");
+    cache.setSize(100);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    for (int n = 0; n < 3; n++) {
+      for (int i = 0; i < 50; i++) {
+        assertEquals(i, cache.getObject(i));
+      }
+    }
+    // keys read only once
+    for (int i = 100; i < 1000; i++) {
+      cache.putObject(i, i);
+      cache.getObject(i);
+    }
+    for (int i = 0; i < 50; i++) {
+      assertEquals(i, cache.getObject(i));
+    }
+  }
+
+  @Test
+  public void shouldCountHitsAndMisses() {
+    TinyLfuCache cache = new TinyLfuCache("default");
+    cache.putObject(0, 0);
+    assertEquals(0, cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(0.5, cache.getHitRatio(), 0);
+  }
+
+  @Test
+  public void shouldReplaceItemOnPut() {
+    TinyLfuCache cache = new TinyLfuCache("default");
+    cache.putObject(0, 0);
+    cache.putObject(0, 1);
+    assertEquals(1, cache.getObject(0));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldRemoveItemOnDemand() {
+    Cache cache = new TinyLfuCache("default");
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() {
+    Cache cache = new TinyLfuCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    cache.putObject(0, 0);
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldStayBoundedUnderConcurrentAccess() throws Exception {
+    final TinyLfuCache cache = new TinyLfuCache("default");
+    cache.setSize(64);
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        final int seed = t;
+        futures.add(executorService.submit(() -> {
+          for (int i = 0; i < 10000; i++) {
+            int key = (i * 31 + seed) % 256;
+            if (cache.getObject(key) == null) {
+              cache.putObject(key, key);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdown();
+    }
+    assertTrue(cache.getSize() <= 64);
+  }
+
+  @Test
+  public void shouldBeConfiguredAsCustomCache() {
+    Properties properties = new Properties();
+    properties.setProperty("size", "5");
+    Cache cache = new CacheBuilder("default").implementation(TinyLfuCache.class).properties(properties).build();
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(5, cache.getSize());
+  }
+
+}
@@ -0,0 +1,77 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.Test;
+
+public class GroupedBatchExecutorTest extends BaseExecutorTest {
+
+  @Test
+  public void shouldGroupInterleavedUpdates() throws Exception {
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      MappedStatement updateStatement = ExecutorTestHelper.prepareUpdateAuthorMappedStatement(config);
+      executor.update(insertStatement, new Author(200, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      executor.update(updateStatement, new Author(101, "jim", "******", "jim@apache.org", null, Section.NEWS));
+      executor.update(insertStatement, new Author(201, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      executor.update(updateStatement, new Author(102, "sally", "******", "sally@apache.org", null, Section.NEWS));
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(2, results.size());
+      assertSame(insertStatement, results.get(0).getMappedStatement());
+      assertEquals(2, results.get(0).getUpdateCounts().length);
+      assertSame(updateStatement, results.get(1).getMappedStatement());
+      assertEquals(2, results.get(1).getUpdateCounts().length);
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldFlushWhenBatchFlushSizeIsReached() throws Exception {
+    config.setBatchFlushSize(2);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      for (int i = 0; i < 3; i++) {
+        executor.update(insertStatement, new Author(200 + i, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(2, results.get(0).getUpdateCounts().length);
+      assertEquals(1, results.get(1).getUpdateCounts().length);
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Override
+  protected Executor createExecutor(Transaction transaction) {
+    return new BatchExecutor(config, transaction, true);
+  }
+}
@@ -0,0 +1,202 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.Test;
+
+public class CompiledRowMapperTest {
+
+  @Test
+  public void shouldMapPropertyAndAutomaticMappings() throws Exception {
+    final Configuration config = new Configuration();
+    final ResultMap resultMap = new ResultMap.Builder(config, "userMap", User.class, Collections.singletonList(
+        new ResultMapping.Builder(config, "name", "USER_NAME", config.getTypeHandlerRegistry().getTypeHandler(String.class)).build())).build();
+    final MappedStatement ms = getMappedStatement(config, resultMap);
+
+    for (int i = 0; i < 2; i++) {
+      final Statement stmt = mockStatement();
+      final ResultSet rs = stmt.getResultSet();
+      when(rs.next()).thenReturn(true).thenReturn(false);
+      when(rs.getInt("ID")).thenReturn(10 + i);
+      when(rs.getString("USER_NAME")).thenReturn("user" + i);
+      when(rs.getString("NOTE")).thenReturn("note" + i);
+
+      final List<Object> results = newHandler(ms).handleResultSets(stmt);
+      assertEquals(1, results.size());
+      final User user = (User) results.get(0);
+      assertEquals(Integer.valueOf(10 + i), user.getId());
+      assertEquals("user" + i, user.getName());
+      assertEquals("note" + i, user.note);
+    }
+    assertEquals(1, resultMap.getCompiledRowMappers().size());
+    assertTrue(resultMap.getCompiledRowMappers().values().iterator().next() != CompiledRowMapper.UNSUPPORTED);
+  }
+
+  @Test
+  public void shouldReturnNullForEmptyRow() throws Exception {
+    final Configuration config = new Configuration();
+    final ResultMap resultMap = new ResultMap.Builder(config, "userMap", User.class, new ArrayList<>()).build();
+    final MappedStatement ms = getMappedStatement(config, resultMap);
+
+    final Statement stmt = mockStatement();
+    final ResultSet rs = stmt.getResultSet();
+    when(rs.next()).thenReturn(true).thenReturn(false);
+    when(rs.wasNull()).thenReturn(true);
+
+    final List<Object> results = newHandler(ms).handleResultSets(stmt);
+    assertEquals(1, results.size());
+    assertNull(results.get(0));
+  }
+
+  @Test
+  public void shouldCallSettersOnNulls() throws Exception {
+    final Configuration config = new Configuration();
+    config.setCallSettersOnNulls(true);
+    final ResultMap resultMap = new ResultMap.Builder(config, "userMap", User.class, Collections.singletonList(
+        new ResultMapping.Builder(config, "name", "USER_NAME", config.getTypeHandlerRegistry().getTypeHandler(String.class)).build())).build();
+    final MappedStatement ms = getMappedStatement(config, resultMap);
+
+    final Statement stmt = mockStatement();
+    final ResultSet rs = stmt.getResultSet();
+    when(rs.next()).thenReturn(true).thenReturn(false);
+    when(rs.getInt("ID")).thenReturn(1);
+
+    final List<Object> results = newHandler(ms).handleResultSets(stmt);
+    final User user = (User) results.get(0);
+    assertEquals(Integer.valueOf(1), user.getId());
+    assertTrue(user.nameSet);
+    assertNull(user.getName());
+  }
+
+  @Test
+  public void shouldLeaveMapsToReflectiveMapping() throws Exception {
+    final Configuration config = new Configuration();
+    final ResultMap resultMap = new ResultMap.Builder(config, "mapMap", HashMap.class, new ArrayList<>()).build();
+    final MappedStatement ms = getMappedStatement(config, resultMap);
+
+    final Statement stmt = mockStatement();
+    final ResultSet rs = stmt.getResultSet();
+    when(rs.next()).thenReturn(true).thenReturn(false);
+    when(rs.getInt("ID")).thenReturn(1);
+
+    final List<Object> results = newHandler(ms).handleResultSets(stmt);
+    assertEquals(1, ((HashMap<?, ?>) results.get(0)).get("ID"));
+    assertSame(CompiledRowMapper.UNSUPPORTED, resultMap.getCompiledRowMappers().values().iterator().next());
+  }
+
+  @Test
+  public void shouldNotCompileWhenDisabled() throws Exception {
+    final Configuration config = new Configuration();
+    config.setCompiledRowMappingEnabled(false);
+    final ResultMap resultMap = new ResultMap.Builder(config, "userMap", User.class, new ArrayList<>()).build();
+    final MappedStatement ms = getMappedStatement(config, resultMap);
+
+    final Statement stmt = mockStatement();
+    final ResultSet rs = stmt.getResultSet();
+    when(rs.next()).thenReturn(true).thenReturn(false);
+    when(rs.getInt("ID")).thenReturn(1);
+
+    final List<Object> results = newHandler(ms).handleResultSets(stmt);
+    assertEquals(Integer.valueOf(1), ((User) results.get(0)).getId());
+    assertTrue(resultMap.getCompiledRowMappers().isEmpty());
+  }
+
+  private DefaultResultSetHandler newHandler(MappedStatement ms) {
+    return new DefaultResultSetHandler(null/*executor*/, ms, null/*parameterHandler*/, null/*resultHandler*/,
+        null/*boundSql*/, new RowBounds(0, 100));
+  }
+
+  private Statement mockStatement() throws SQLException {
+    final Statement stmt = mock(Statement.class);
+    final ResultSet rs = mock(ResultSet.class);
+    final ResultSetMetaData rsmd = mock(ResultSetMetaData.class);
+    final Connection conn = mock(Connection.class);
+    final DatabaseMetaData dbmd = mock(DatabaseMetaData.class);
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rsmd.getColumnCount()).thenReturn(3);
+    when(rsmd.getColumnLabel(1)).thenReturn("ID");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getName());
+    when(rsmd.getColumnLabel(2)).thenReturn("USER_NAME");
+    when(rsmd.getColumnType(2)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(2)).thenReturn(String.class.getName());
+    when(rsmd.getColumnLabel(3)).thenReturn("NOTE");
+    when(rsmd.getColumnType(3)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(3)).thenReturn(String.class.getName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+    return stmt;
+  }
+
+  private MappedStatement getMappedStatement(Configuration config, ResultMap resultMap) {
+    return new MappedStatement.Builder(config, "testSelect", new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT)
+        .resultMaps(Collections.singletonList(resultMap)).build();
+  }
+
+  public static class User {
+    private Integer id;
+    private String name;
+    private boolean nameSet;
+    private String note;
+
+    public Integer getId() {
+      return id;
+    }
+
+    public void setId(Integer id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+      this.nameSet = true;
+    }
+  }
+
+}
@@ -0,0 +1,148 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSource;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.junit.Test;
+
+public class ConcurrentPooledDataSourceTest extends BaseDataTest {
+
+  @Test
+  public void shouldProperlyMaintainPoolOf3ActiveAnd2IdleConnections() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    try {
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(0, ds.getActiveConnectionCount());
+      assertEquals(2, ds.getIdleConnectionCount());
+      assertEquals(3, ds.getRequestCount());
+      assertEquals(0, ds.getBadConnectionCount());
+      assertEquals(0, ds.getHadToWaitCount());
+      assertEquals(0, ds.getClaimedOverdueConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldReuseIdleConnection() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    try {
+      Connection c = ds.getConnection();
+      Connection real = PooledDataSource.unwrapConnection(c);
+      c.close();
+      // closing twice does not return it twice
+      c.close();
+      assertEquals(1, ds.getIdleConnectionCount());
+      c = ds.getConnection();
+      assertSame(real, PooledDataSource.unwrapConnection(c));
+      c.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldWaitForAReturnedConnection() throws Exception {
+    final ConcurrentPooledDataSource ds = createDataSource();
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolTimeToWait(10000);
+      Connection c = ds.getConnection();
+      Future<Connection> waiting = executorService.submit(() -> ds.getConnection());
+      while (ds.getHadToWaitCount() == 0) {
+        Thread.sleep(10);
+      }
+      assertFalse(waiting.isDone());
+      c.close();
+      waiting.get().close();
+      assertEquals(1, ds.getHadToWaitCount());
+      assertEquals(0, ds.getClaimedOverdueConnectionCount());
+    } finally {
+      executorService.shutdown();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldClaimOverdueConnection() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(100);
+      ds.setPoolTimeToWait(50);
+      Connection overdue = ds.getConnection();
+      Thread.sleep(200);
+      Connection c = ds.getConnection();
+      assertEquals(1, ds.getClaimedOverdueConnectionCount());
+      try {
+        overdue.getAutoCommit();
+        fail();
+      } catch (SQLException e) {
+        // invalidated
+      }
+      overdue.close();
+      c.close();
+      assertEquals(1, ds.getIdleConnectionCount());
+      assertEquals(0, ds.getActiveConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldCloseAllConnectionsOnConfigurationChange() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    try {
+      Connection active = ds.getConnection();
+      ds.getConnection().close();
+      ds.setPoolMaximumIdleConnections(3);
+      assertEquals(0, ds.getActiveConnectionCount());
+      assertEquals(0, ds.getIdleConnectionCount());
+      active.close();
+      assertEquals(0, ds.getIdleConnectionCount());
+      ds.getConnection().close();
+      assertEquals(1, ds.getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private ConcurrentPooledDataSource createDataSource() throws Exception {
+    return new ConcurrentPooledDataSource(createUnpooledDataSource(JPETSTORE_PROPERTIES));
+  }
+}
@@ -0,0 +1,130 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.misc.CustomBeanWrapperFactory;
+import org.apache.ibatis.domain.misc.RichType;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
+import org.junit.Test;
+
+public class CompiledPropertyPathTest {
+
+  @Test
+  public void shouldGetPropertiesAndFields() {
+    RichType rich = new RichType();
+    rich.setRichProperty("foo");
+    rich.setRichType(new RichType());
+    SystemMetaObject.forObject(rich).setValue("richType.richField", "bar");
+    assertEquals("foo", compile("richProperty").getValue(rich));
+    assertEquals("bar", compile("richType.richField").getValue(rich));
+  }
+
+  @Test
+  public void shouldGetMapEntries() {
+    RichType rich = new RichType();
+    rich.setRichProperty("foo");
+    Map<String, Object> map = new HashMap<>();
+    map.put("rich", rich);
+    map.put("name", "bar");
+    assertEquals("foo", compile("rich.richProperty").getValue(map));
+    assertEquals("bar", compile("name").getValue(map));
+    assertNull(compile("missing").getValue(map));
+  }
+
+  @Test
+  public void shouldGetParamMapEntries() {
+    RichType rich = new RichType();
+    rich.setRichProperty("foo");
+    ParamMap<Object> map = new ParamMap<>();
+    map.put("rich", rich);
+    assertEquals("foo", compile("rich.richProperty").getValue(map));
+    try {
+      compile("missing").getValue(map);
+      fail();
+    } catch (BindingException e) {
+      assertTrue(e.getMessage().contains("'missing' not found"));
+    }
+  }
+
+  @Test
+  public void shouldReturnNullForPropertyOfNull() {
+    assertNull(compile("richType.richProperty").getValue(new RichType()));
+  }
+
+  @Test
+  public void shouldFollowClassChanges() {
+    CompiledPropertyPath path = compile("richType.richProperty");
+    RichType rich = new RichType();
+    rich.setRichType(new RichType());
+    rich.getRichType().setRichProperty("foo");
+    assertEquals("foo", path.getValue(rich));
+    Map<String, Object> inner = new HashMap<>();
+    inner.put("richProperty", "bar");
+    Map<String, Object> map = new HashMap<>();
+    map.put("richType", inner);
+    assertEquals("bar", path.getValue(map));
+    Author author = new Author();
+    author.setUsername("baz");
+    map.put("richType", author);
+    try {
+      path.getValue(map);
+      fail();
+    } catch (ReflectionException e) {
+      assertTrue(e.getMessage().contains("There is no getter for property named 'richProperty'"));
+    }
+    assertEquals("foo", path.getValue(rich));
+  }
+
+  @Test
+  public void shouldGetIndexedProperties() {
+    RichType rich = new RichType();
+    rich.getRichList().add("foo");
+    rich.getRichMap().put("key", "bar");
+    assertEquals("foo", compile("richList[1]").getValue(rich));
+    assertEquals("bar", compile("richMap[key]").getValue(rich));
+    assertEquals("bar", compile("richMap.key").getValue(rich));
+  }
+
+  @Test
+  public void shouldUseObjectWrapperFactory() {
+    ObjectWrapperFactory objectWrapperFactory = new CustomBeanWrapperFactory();
+    Author author = new Author();
+    author.setUsername("foo");
+    Map<String, Object> map = new HashMap<>();
+    map.put("author", author);
+    CompiledPropertyPath path = CompiledPropertyPath.compile("author.username", SystemMetaObject.DEFAULT_OBJECT_FACTORY,
+        objectWrapperFactory, new DefaultReflectorFactory());
+    assertEquals(MetaObject.forObject(map, SystemMetaObject.DEFAULT_OBJECT_FACTORY, objectWrapperFactory,
+        new DefaultReflectorFactory()).getValue("author.username"), path.getValue(map));
+  }
+
+  private static CompiledPropertyPath compile(String path) {
+    return CompiledPropertyPath.compile(path, SystemMetaObject.DEFAULT_OBJECT_FACTORY,
+        SystemMetaObject.DEFAULT_OBJECT_WRAPPER_FACTORY, new DefaultReflectorFactory());
+  }
+
+}
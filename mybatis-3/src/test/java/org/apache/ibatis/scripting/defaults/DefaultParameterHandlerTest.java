@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -22,7 +22,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
 import org.apache.ibatis.mapping.*;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
@@ -36,6 +38,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -70,6 +73,34 @@ public class DefaultParameterHandlerTest {
 
   }
 
+  @Test
+  public void setParametersReadsPropertyPaths() throws SQLException {
+    final MappedStatement mappedStatement = getMappedStatement();
+    assertPropertyPathsSet(mappedStatement);
+    mappedStatement.getConfiguration().setCompiledParameterAccessEnabled(false);
+    assertPropertyPathsSet(mappedStatement);
+  }
+
+  private void assertPropertyPathsSet(MappedStatement mappedStatement) throws SQLException {
+    final Configuration config = mappedStatement.getConfiguration();
+    final Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "", null);
+    final ParamMap<Object> parameterObject = new ParamMap<>();
+    parameterObject.put("author", author);
+    parameterObject.put("id", 102);
+    final BoundSql boundSql = mock(BoundSql.class);
+    List<ParameterMapping> parameterMappings = new ArrayList<>();
+    parameterMappings.add(new ParameterMapping.Builder(config, "author.username", String.class).build());
+    parameterMappings.add(new ParameterMapping.Builder(config, "author.id", int.class).build());
+    parameterMappings.add(new ParameterMapping.Builder(config, "id", Integer.class).build());
+    when(boundSql.getParameterMappings()).thenReturn(parameterMappings);
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    new DefaultParameterHandler(mappedStatement, parameterObject, boundSql).setParameters(ps);
+    verify(ps).setString(1, "jim");
+    verify(ps).setInt(2, 101);
+    verify(ps).setInt(3, 102);
+  }
+
   MappedStatement getMappedStatement() {
     final Configuration config = new Configuration();
     final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
@@ -0,0 +1,96 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class CompiledExpressionTest {
+
+  private final Author author = new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS);
+
+  @Test
+  public void shouldCompareBeanProperties() {
+    assertEquals(true, CompiledExpression.compile("username == 'cbegin'").getValue(author));
+    assertEquals(false, CompiledExpression.compile("username eq \"norm\"").getValue(author));
+    assertEquals(true, CompiledExpression.compile("password == null").getValue(author));
+    assertEquals(true, CompiledExpression.compile("id != 2").getValue(author));
+    assertEquals("cbegin", CompiledExpression.compile("username").getValue(author));
+  }
+
+  @Test
+  public void shouldResolveBindingsLikeOgnl() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("name", "");
+    parameter.put("author", author);
+    Map<String, Object> bindings = new DynamicContext(new Configuration(), parameter).getBindings();
+    assertEquals(false, CompiledExpression.compile("name != null and name != ''").getValue(bindings));
+    assertEquals(true, CompiledExpression.compile("missing == null").getValue(bindings));
+    assertEquals(true, CompiledExpression.compile("author.username == 'cbegin'").getValue(bindings));
+    assertEquals(true, CompiledExpression.compile("_parameter.name == ''").getValue(bindings));
+  }
+
+  @Test
+  public void shouldShortCircuitLikeOgnl() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("author", null);
+    parameter.put("flag", null);
+    assertEquals(true, CompiledExpression.compile("author == null or author.username == 'cbegin'").getValue(parameter));
+    assertEquals(false, CompiledExpression.compile("author != null && author.username == 'cbegin'").getValue(parameter));
+    // the value of the last evaluated operand, as OGNL does
+    parameter.put("author", author);
+    assertEquals(author, CompiledExpression.compile("flag != null or author").getValue(parameter));
+  }
+
+  @Test
+  public void shouldLeaveUnsupportedExpressionsToOgnl() {
+    assertUndecided("list.size() > 0", author);
+    assertUndecided("username == 'c'", author);
+    assertUndecided("id == 010", author);
+    assertUndecided("username == 'a\\'b'", author);
+    assertUndecided("not username", author);
+    assertUndecided("id > 0", author);
+    assertUndecided("true", author);
+  }
+
+  @Test
+  public void shouldLeaveUncertainValuesToOgnl() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("id", "1");
+    parameter.put("ids", Arrays.asList(1, 2));
+    parameter.put("author", null);
+    assertUndecided("id == 1", parameter);
+    assertUndecided("id != 1 and id != ''", parameter);
+    assertUndecided("ids.size == 2", parameter);
+    assertUndecided("size == 2", parameter);
+    assertUndecided("author.username == null", parameter);
+    assertUndecided("unknown == null", author);
+  }
+
+  private void assertUndecided(String expression, Object root) {
+    assertSame(expression, CompiledExpression.UNDECIDED, CompiledExpression.compile(expression).getValue(root));
+  }
+
+}
@@ -0,0 +1,116 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_select;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BatchSelectTest {
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_select/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/batch_select/CreateDB.sql");
+  }
+
+  @Before
+  public void resetCounter() {
+    StatementCounter.getAndReset();
+  }
+
+  @Test
+  public void shouldLoadNestedSelectsInOneBatchEach() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Blog> blogs = mapper.selectBlogs();
+      assertBlogs(blogs);
+      // blogs, authors and posts
+      assertEquals(3, StatementCounter.getAndReset());
+    }
+  }
+
+  @Test
+  public void shouldSplitBatchesByBatchSelectSize() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setBatchSelectSize(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Blog> blogs = mapper.selectBlogs();
+      assertBlogs(blogs);
+      // blogs, 3 authors in 2 batches and 4 blogs with posts in 3 batches
+      assertEquals(6, StatementCounter.getAndReset());
+    } finally {
+      configuration.setBatchSelectSize(1000);
+    }
+  }
+
+  @Test
+  public void shouldUseNestedSelectWithResultHandler() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Blog> blogs = new ArrayList<>();
+      sqlSession.select("org.apache.ibatis.submitted.batch_select.Mapper.selectBlogs",
+          context -> blogs.add((Blog) context.getResultObject()));
+      assertBlogs(blogs);
+    }
+  }
+
+  @Test
+  public void shouldUseNestedSelectWhenLazy() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Blog> blogs = mapper.selectLazyBlogs();
+      assertEquals(1, StatementCounter.getAndReset());
+      assertEquals("Author2", blogs.get(1).getAuthor().getName());
+      assertEquals(1, StatementCounter.getAndReset());
+    }
+  }
+
+  private void assertBlogs(List<Blog> blogs) {
+    assertEquals(5, blogs.size());
+    assertEquals("Author1", blogs.get(0).getAuthor().getName());
+    assertEquals("Author2", blogs.get(1).getAuthor().getName());
+    assertSame(blogs.get(0).getAuthor(), blogs.get(2).getAuthor());
+    assertEquals("Author3", blogs.get(3).getAuthor().getName());
+    assertNull(blogs.get(4).getAuthor());
+    assertEquals(2, blogs.get(0).getPosts().size());
+    assertEquals("Post1", blogs.get(0).getPosts().get(0).getSubject());
+    assertEquals("Post2", blogs.get(0).getPosts().get(1).getSubject());
+    assertEquals(1, blogs.get(1).getPosts().size());
+    assertTrue(blogs.get(2).getPosts().isEmpty());
+    assertEquals("Post4", blogs.get(3).getPosts().get(0).getSubject());
+    assertTrue(blogs.get(4).getPosts().isEmpty());
+  }
+}